@@ -0,0 +1,67 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/*
+ * Reports bundles exceeding their budget from the "bundleBudget" section of the package.json. The budgets are given in
+ * bytes of the minified bundle. The size of all other chunks is printed for information only. The check is not part
+ * of the build and only fails with "--strict", because the budgets are estimates and have not been measured against a
+ * release build yet.
+ */
+const fs = require("fs");
+const path = require("path");
+
+const root = path.resolve(__dirname, "..");
+const args = process.argv.slice(2);
+const strict = args.includes("--strict");
+const assets = path.resolve(root, args.find(arg => arg !== "--strict") || path.join("build", "webapp", "assets"));
+const budgets = require(path.join(root, "package.json")).bundleBudget || {};
+
+if (!fs.existsSync(assets)) {
+  console.error(`bundle directory ${assets} does not exist, run the build first`);
+  process.exit(strict ? 1 : 0);
+}
+
+let failed = false;
+const files = fs.readdirSync(assets).filter(file => file.endsWith(".js"));
+for (const file of files) {
+  const size = fs.statSync(path.join(assets, file)).size;
+  const budget = budgets[file];
+  if (budget && size > budget) {
+    console.error(`${file}: ${size} bytes exceeds the budget of ${budget} bytes`);
+    failed = true;
+  } else {
+    console.log(`${file}: ${size} bytes${budget ? ` (budget ${budget} bytes)` : ""}`);
+  }
+}
+
+for (const file of Object.keys(budgets)) {
+  if (!files.includes(file)) {
+    console.error(`${file} has a budget, but was not found in ${assets}`);
+    failed = true;
+  }
+}
+
+if (failed && strict) {
+  process.exit(1);
+}
@@ -0,0 +1,215 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.scm.folder.loadtest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives concurrent folder create, delete and browse traffic against a running SCM-Manager, for example one started
+ * with {@code gradle run}, and prints the results as json. Start it with {@code gradle loadTest}, the settings are
+ * described in {@link LoadTestConfiguration}.
+ */
+public final class FolderLoadTest {
+
+  private final LoadTestConfiguration configuration;
+  private final ScmClient client;
+  private final List<LoadTestRepository> repositories;
+
+  FolderLoadTest(LoadTestConfiguration configuration, ScmClient client, List<LoadTestRepository> repositories) {
+    this.configuration = configuration;
+    this.client = client;
+    this.repositories = repositories;
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadTestConfiguration configuration = LoadTestConfiguration.fromSystemProperties();
+    ScmClient client = new ScmClient(configuration);
+
+    List<LoadTestRepository> repositories = new ArrayList<>();
+    try {
+      String suffix = Long.toString(System.currentTimeMillis(), 36);
+      for (String type : configuration.getRepositoryTypes()) {
+        repositories.add(client.createRepository(type, "folder-load-test-" + type + "-" + suffix));
+      }
+
+      Map<String, Map<Operation, LatencySamples>> samples = new FolderLoadTest(configuration, client, repositories).run();
+      String report = new LoadTestReport(configuration, samples).toJson();
+      if (configuration.getOutput() != null) {
+        Files.write(Path.of(configuration.getOutput()), report.getBytes(StandardCharsets.UTF_8));
+      } else {
+        System.out.println(report);
+      }
+    } finally {
+      if (!configuration.isKeepRepositories()) {
+        for (LoadTestRepository repository : repositories) {
+          client.deleteRepository(repository);
+        }
+      }
+    }
+  }
+
+  /**
+   * Runs all workers until warmup and measurement are over and returns the merged samples by repository type.
+   */
+  Map<String, Map<Operation, LatencySamples>> run() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(configuration.getThreads());
+    CountDownLatch start = new CountDownLatch(1);
+    long measureFrom = System.nanoTime() + configuration.getWarmup().toNanos();
+    long end = measureFrom + configuration.getDuration().toNanos();
+
+    List<Worker> workers = new ArrayList<>();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < configuration.getThreads(); i++) {
+      Worker worker = new Worker(i, start, measureFrom, end);
+      workers.add(worker);
+      futures.add(executor.submit(worker));
+    }
+    start.countDown();
+
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("load test worker failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Map<String, Map<Operation, LatencySamples>> merged = new LinkedHashMap<>();
+    for (Worker worker : workers) {
+      worker.samples.forEach((type, byOperation) -> byOperation.forEach(
+        (operation, samples) -> merged
+          .computeIfAbsent(type, t -> new EnumMap<>(Operation.class))
+          .computeIfAbsent(operation, o -> new LatencySamples())
+          .addAll(samples)
+      ));
+    }
+    return merged;
+  }
+
+  private Operation pickOperation() {
+    Map<Operation, Integer> mix = configuration.getMix();
+    int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+    int pick = ThreadLocalRandom.current().nextInt(total);
+    for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+      pick -= entry.getValue();
+      if (pick < 0) {
+        return entry.getKey();
+      }
+    }
+    throw new IllegalStateException("weights of mix changed during run");
+  }
+
+  private final class Worker implements Runnable {
+
+    private final int id;
+    private final CountDownLatch start;
+    private final Map<String, Map<Operation, LatencySamples>> samples = new HashMap<>();
+    // each worker only deletes folders it created itself, so deletes do not fail because of other workers
+    private final Map<LoadTestRepository, Deque<String>> createdFolders = new HashMap<>();
+    private final long measureFrom;
+    private final long end;
+    private int counter;
+
+    private Worker(int id, CountDownLatch start, long measureFrom, long end) {
+      this.id = id;
+      this.start = start;
+      this.measureFrom = measureFrom;
+      this.end = end;
+    }
+
+    @Override
+    public void run() {
+      try {
+        start.await();
+        while (System.nanoTime() < end) {
+          LoadTestRepository repository = repositories.get(ThreadLocalRandom.current().nextInt(repositories.size()));
+          execute(repository, pickOperation());
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void execute(LoadTestRepository repository, Operation operation) throws InterruptedException {
+      Deque<String> folders = createdFolders.computeIfAbsent(repository, r -> new ArrayDeque<>());
+      if (operation == Operation.DELETE && folders.isEmpty()) {
+        operation = Operation.CREATE;
+      }
+
+      String path = null;
+      long started = System.nanoTime();
+      int status;
+      try {
+        switch (operation) {
+          case CREATE:
+            path = "load-test/worker-" + id + "/folder-" + counter++;
+            status = client.createFolder(repository, path);
+            break;
+          case DELETE:
+            path = folders.pop();
+            status = client.deleteFolder(repository, path);
+            break;
+          case BROWSE:
+            status = client.browse(repository);
+            break;
+          default:
+            status = client.tree(repository);
+        }
+      } catch (IOException e) {
+        status = -1;
+      }
+      long latency = System.nanoTime() - started;
+
+      if (operation == Operation.CREATE && status >= 200 && status < 300) {
+        folders.push(path);
+      }
+      if (started >= measureFrom) {
+        samples
+          .computeIfAbsent(repository.getType(), type -> new EnumMap<>(Operation.class))
+          .computeIfAbsent(operation, o -> new LatencySamples())
+          .record(latency, status);
+      }
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.scm.folder.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencies of one operation, recorded by a single worker. Samples of all workers are merged after the run, so no
+ * synchronization is needed while recording.
+ */
+final class LatencySamples {
+
+  private long[] nanos = new long[1024];
+  private int size;
+  private long errors;
+  private final Map<Integer, Long> statusCodes = new TreeMap<>();
+
+  /**
+   * Records one request. A status of {@code -1} stands for a request which failed without a response.
+   */
+  void record(long latencyNanos, int status) {
+    if (size == nanos.length) {
+      nanos = Arrays.copyOf(nanos, size * 2);
+    }
+    nanos[size++] = latencyNanos;
+    if (status < 0 || status >= 400) {
+      errors++;
+    }
+    statusCodes.merge(status, 1L, Long::sum);
+  }
+
+  void addAll(LatencySamples other) {
+    if (size + other.size > nanos.length) {
+      nanos = Arrays.copyOf(nanos, Math.max(nanos.length * 2, size + other.size));
+    }
+    System.arraycopy(other.nanos, 0, nanos, size, other.size);
+    size += other.size;
+    errors += other.errors;
+    other.statusCodes.forEach((status, count) -> statusCodes.merge(status, count, Long::sum));
+  }
+
+  int count() {
+    return size;
+  }
+
+  long errors() {
+    return errors;
+  }
+
+  Map<Integer, Long> statusCodes() {
+    return statusCodes;
+  }
+
+  /**
+   * Returns the given percentile in milliseconds using the nearest-rank method. Sorts the samples in place, so it must
+   * not be called while recording.
+   */
+  double percentileMillis(double percentile) {
+    if (size == 0) {
+      return 0;
+    }
+    Arrays.sort(nanos, 0, size);
+    int rank = (int) Math.ceil(percentile / 100 * size);
+    return nanos[Math.max(rank, 1) - 1] / 1_000_000d;
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.scm.folder.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, read from {@code loadtest.*} system properties.
+ */
+final class LoadTestConfiguration {
+
+  private static final String PREFIX = "loadtest.";
+
+  private final String url;
+  private final String username;
+  private final String password;
+  private final List<String> repositoryTypes;
+  private final int threads;
+  private final Duration warmup;
+  private final Duration duration;
+  private final Map<Operation, Integer> mix;
+  private final String output;
+  private final boolean keepRepositories;
+  private final String pluginVersion;
+
+  private LoadTestConfiguration(String url, String username, String password, List<String> repositoryTypes,
+                                int threads, Duration warmup, Duration duration, Map<Operation, Integer> mix,
+                                String output, boolean keepRepositories, String pluginVersion) {
+    this.url = url;
+    this.username = username;
+    this.password = password;
+    this.repositoryTypes = repositoryTypes;
+    this.threads = threads;
+    this.warmup = warmup;
+    this.duration = duration;
+    this.mix = mix;
+    this.output = output;
+    this.keepRepositories = keepRepositories;
+    this.pluginVersion = pluginVersion;
+  }
+
+  static LoadTestConfiguration fromSystemProperties() {
+    int threads = Integer.parseInt(property("threads", "16"));
+    if (threads < 1) {
+      throw new IllegalArgumentException("loadtest.threads must be at least 1");
+    }
+    return new LoadTestConfiguration(
+      stripTrailingSlash(property("url", "http://localhost:8081/scm")),
+      property("username", "scmadmin"),
+      property("password", "scmadmin"),
+      parseList(property("repositoryTypes", "git,hg,svn")),
+      threads,
+      Duration.ofSeconds(Long.parseLong(property("warmup", "10"))),
+      Duration.ofSeconds(Long.parseLong(property("duration", "60"))),
+      parseMix(property("mix", "create=2,delete=2,browse=5,tree=1")),
+      property("output", null),
+      Boolean.parseBoolean(property("keepRepositories", "false")),
+      property("pluginVersion", "unknown")
+    );
+  }
+
+  private static String property(String name, String defaultValue) {
+    return System.getProperty(PREFIX + name, defaultValue);
+  }
+
+  private static String stripTrailingSlash(String url) {
+    return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+  }
+
+  private static List<String> parseList(String value) {
+    List<String> values = new ArrayList<>();
+    for (String part : value.split(",")) {
+      if (!part.isBlank()) {
+        values.add(part.trim());
+      }
+    }
+    if (values.isEmpty()) {
+      throw new IllegalArgumentException("loadtest.repositoryTypes must not be empty");
+    }
+    return Collections.unmodifiableList(values);
+  }
+
+  static Map<Operation, Integer> parseMix(String value) {
+    Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    for (String part : value.split(",")) {
+      if (part.isBlank()) {
+        continue;
+      }
+      String[] keyAndWeight = part.split("=", 2);
+      int weight = keyAndWeight.length == 2 ? Integer.parseInt(keyAndWeight[1].trim()) : 1;
+      if (weight < 0) {
+        throw new IllegalArgumentException("weights of loadtest.mix must not be negative: " + part);
+      }
+      mix.put(Operation.fromKey(keyAndWeight[0]), weight);
+    }
+    if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+      throw new IllegalArgumentException("loadtest.mix must contain at least one operation with a positive weight");
+    }
+    return Collections.unmodifiableMap(mix);
+  }
+
+  String getUrl() {
+    return url;
+  }
+
+  String getUsername() {
+    return username;
+  }
+
+  String getPassword() {
+    return password;
+  }
+
+  List<String> getRepositoryTypes() {
+    return repositoryTypes;
+  }
+
+  int getThreads() {
+    return threads;
+  }
+
+  Duration getWarmup() {
+    return warmup;
+  }
+
+  Duration getDuration() {
+    return duration;
+  }
+
+  Map<Operation, Integer> getMix() {
+    return mix;
+  }
+
+  String getOutput() {
+    return output;
+  }
+
+  boolean isKeepRepositories() {
+    return keepRepositories;
+  }
+
+  String getPluginVersion() {
+    return pluginVersion;
+  }
+}
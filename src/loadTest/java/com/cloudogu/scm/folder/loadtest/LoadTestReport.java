@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.scm.folder.loadtest;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders the results of a run as json, so that runs against different plugin versions can be compared by scripts.
+ */
+final class LoadTestReport {
+
+  private final LoadTestConfiguration configuration;
+  private final Map<String, Map<Operation, LatencySamples>> samples;
+  private final StringBuilder json = new StringBuilder();
+
+  LoadTestReport(LoadTestConfiguration configuration, Map<String, Map<Operation, LatencySamples>> samples) {
+    this.configuration = configuration;
+    this.samples = samples;
+  }
+
+  String toJson() {
+    Map<Operation, LatencySamples> byOperation = new EnumMap<>(Operation.class);
+    samples.values().forEach(typeSamples -> typeSamples.forEach(
+      (operation, operationSamples) -> byOperation.computeIfAbsent(operation, o -> new LatencySamples()).addAll(operationSamples)
+    ));
+
+    json.append('{');
+    field("pluginVersion").append(quote(configuration.getPluginVersion())).append(',');
+    field("timestamp").append(quote(Instant.now().toString())).append(',');
+    field("configuration");
+    appendConfiguration();
+    json.append(',');
+    field("total");
+    appendStats(total(byOperation));
+    json.append(',');
+    field("operations");
+    appendOperations(byOperation);
+    json.append(',');
+    field("repositoryTypes").append('{');
+    Iterator<Map.Entry<String, Map<Operation, LatencySamples>>> types = samples.entrySet().iterator();
+    while (types.hasNext()) {
+      Map.Entry<String, Map<Operation, LatencySamples>> type = types.next();
+      field(type.getKey()).append('{');
+      field("total");
+      appendStats(total(type.getValue()));
+      json.append(',');
+      field("operations");
+      appendOperations(type.getValue());
+      json.append('}');
+      if (types.hasNext()) {
+        json.append(',');
+      }
+    }
+    json.append("}}");
+    return json.toString();
+  }
+
+  private void appendConfiguration() {
+    json.append('{');
+    field("threads").append(configuration.getThreads()).append(',');
+    field("warmupSeconds").append(configuration.getWarmup().getSeconds()).append(',');
+    field("durationSeconds").append(configuration.getDuration().getSeconds()).append(',');
+    field("repositoryTypes").append('[');
+    for (int i = 0; i < configuration.getRepositoryTypes().size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append(quote(configuration.getRepositoryTypes().get(i)));
+    }
+    json.append("],");
+    field("mix").append('{');
+    Iterator<Map.Entry<Operation, Integer>> mix = configuration.getMix().entrySet().iterator();
+    while (mix.hasNext()) {
+      Map.Entry<Operation, Integer> entry = mix.next();
+      field(entry.getKey().getKey()).append(entry.getValue());
+      if (mix.hasNext()) {
+        json.append(',');
+      }
+    }
+    json.append("}}");
+  }
+
+  private void appendOperations(Map<Operation, LatencySamples> byOperation) {
+    json.append('{');
+    Iterator<Map.Entry<Operation, LatencySamples>> operations = byOperation.entrySet().iterator();
+    while (operations.hasNext()) {
+      Map.Entry<Operation, LatencySamples> entry = operations.next();
+      field(entry.getKey().getKey());
+      appendStats(entry.getValue());
+      if (operations.hasNext()) {
+        json.append(',');
+      }
+    }
+    json.append('}');
+  }
+
+  private void appendStats(LatencySamples stats) {
+    double seconds = configuration.getDuration().toMillis() / 1000d;
+    json.append('{');
+    field("requests").append(stats.count()).append(',');
+    field("errors").append(stats.errors()).append(',');
+    field("errorRate").append(number(stats.count() == 0 ? 0 : (double) stats.errors() / stats.count())).append(',');
+    field("throughput").append(number(seconds == 0 ? 0 : stats.count() / seconds)).append(',');
+    field("latencyMillis").append('{');
+    field("p50").append(number(stats.percentileMillis(50))).append(',');
+    field("p95").append(number(stats.percentileMillis(95))).append(',');
+    field("p99").append(number(stats.percentileMillis(99))).append(',');
+    field("max").append(number(stats.percentileMillis(100)));
+    json.append("},");
+    field("statusCodes").append('{');
+    Iterator<Map.Entry<Integer, Long>> statusCodes = stats.statusCodes().entrySet().iterator();
+    while (statusCodes.hasNext()) {
+      Map.Entry<Integer, Long> entry = statusCodes.next();
+      field(String.valueOf(entry.getKey())).append(entry.getValue());
+      if (statusCodes.hasNext()) {
+        json.append(',');
+      }
+    }
+    json.append("}}");
+  }
+
+  private static LatencySamples total(Map<Operation, LatencySamples> byOperation) {
+    LatencySamples total = new LatencySamples();
+    byOperation.values().forEach(total::addAll);
+    return total;
+  }
+
+  private StringBuilder field(String name) {
+    return json.append(quote(name)).append(':');
+  }
+
+  private static String quote(String value) {
+    return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+
+  private static String number(double value) {
+    return String.format(Locale.ENGLISH, "%.3f", value);
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.cloudogu.scm.folder.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Minimal client for the REST endpoints used by the load test. Responses are drained but not parsed, so the client
+ * adds as little overhead as possible to the measured latencies.
+ */
+final class ScmClient {
+
+  private static final String REPOSITORY_MEDIA_TYPE = "application/vnd.scmm-repository+json;v=2";
+  private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+  private final HttpClient httpClient;
+  private final String apiUrl;
+  private final String authorization;
+
+  ScmClient(LoadTestConfiguration configuration) {
+    this.httpClient = HttpClient.newBuilder()
+      .connectTimeout(Duration.ofSeconds(10))
+      .followRedirects(HttpClient.Redirect.NEVER)
+      .build();
+    this.apiUrl = configuration.getUrl() + "/api/v2/";
+    String credentials = configuration.getUsername() + ":" + configuration.getPassword();
+    this.authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Creates and initializes a repository and returns it as namespace and name, taken from the location header because
+   * the namespace strategy of the server may override the requested namespace.
+   */
+  LoadTestRepository createRepository(String type, String name) throws IOException, InterruptedException {
+    String body = "{\"namespace\":\"loadtest\",\"name\":\"" + name + "\",\"type\":\"" + type + "\","
+      + "\"description\":\"created by the manage folder load test\"}";
+    HttpResponse<String> response = httpClient.send(
+      request("repositories/?initialize=true")
+        .header("Content-Type", REPOSITORY_MEDIA_TYPE)
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build(),
+      HttpResponse.BodyHandlers.ofString()
+    );
+    String location = response.headers().firstValue("Location").orElse(null);
+    if (response.statusCode() != 201 || location == null) {
+      throw new IOException("could not create " + type + " repository " + name + ": " + response.statusCode() + " " + response.body());
+    }
+    String[] segments = URI.create(location).getPath().split("/");
+    return new LoadTestRepository(type, segments[segments.length - 2], segments[segments.length - 1]);
+  }
+
+  void deleteRepository(LoadTestRepository repository) throws IOException, InterruptedException {
+    httpClient.send(
+      request("repositories/" + repository.getNamespaceAndName()).DELETE().build(),
+      HttpResponse.BodyHandlers.discarding()
+    );
+  }
+
+  int createFolder(LoadTestRepository repository, String path) throws IOException, InterruptedException {
+    return postCommit("folder/" + repository.getNamespaceAndName() + "/create/" + encode(path), "create " + path);
+  }
+
+  int deleteFolder(LoadTestRepository repository, String path) throws IOException, InterruptedException {
+    return postCommit("folder/" + repository.getNamespaceAndName() + "/delete/" + encode(path), "delete " + path);
+  }
+
+  int browse(LoadTestRepository repository) throws IOException, InterruptedException {
+    return get("repositories/" + repository.getNamespaceAndName() + "/sources/");
+  }
+
+  int tree(LoadTestRepository repository) throws IOException, InterruptedException {
+    return get("folder/" + repository.getNamespaceAndName() + "/tree/?depth=2");
+  }
+
+  private int postCommit(String path, String commitMessage) throws IOException, InterruptedException {
+    String body = "{\"commitMessage\":\"" + commitMessage + "\"}";
+    return send(
+      request(path)
+        .header("Content-Type", "application/json")
+        .POST(HttpRequest.BodyPublishers.ofString(body))
+        .build()
+    );
+  }
+
+  private int get(String path) throws IOException, InterruptedException {
+    return send(request(path).GET().build());
+  }
+
+  private int send(HttpRequest request) throws IOException, InterruptedException {
+    return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+  }
+
+  private HttpRequest.Builder request(String path) {
+    return HttpRequest.newBuilder(URI.create(apiUrl + path))
+      .timeout(TIMEOUT)
+      .header("Authorization", authorization);
+  }
+
+  private static String encode(String path) {
+    return URLEncoder.encode(path, StandardCharsets.UTF_8).replace("+", "%20").replace("%2F", "/");
+  }
+}
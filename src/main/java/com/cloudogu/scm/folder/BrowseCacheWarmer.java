@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.github.legman.Subscribe;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.shiro.SecurityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.EagerSingleton;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.PostReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.HookFeature;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Browses the page the ui redirects to after a folder operation in the background, so that the browse result of the
+ * new revision is already cached when the user lands on it. The browse command is built with the same parameters as
+ * the one of the sources view, because otherwise its result is cached under a different key. The revision is chosen
+ * like the ui does: the branch of the new changeset if known, its id otherwise.
+ * <p>
+ * The core clears the browse cache of a repository while the post receive event of a new changeset is dispatched.
+ * This plugin listens to the same event synchronously and only remembers the changeset. The page is browsed, when the
+ * folder operation has returned from its modify command, and only if the event of its changeset has been received
+ * before: the event is then completely dispatched, so the cache clearing of the core has already run and cannot
+ * remove the warmed result. Changesets whose event is dispatched later are not warmed up. Warming is best effort; if
+ * too many requests are pending, new ones are dropped.
+ */
+@Extension
+@EagerSingleton
+public class BrowseCacheWarmer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BrowseCacheWarmer.class);
+
+  static final int MAX_PENDING = 100;
+
+  private final RepositoryServiceFactory repositoryServiceFactory;
+  private final FolderConfigStore configStore;
+  private final Executor executor;
+  private final AtomicInteger pending = new AtomicInteger();
+
+  // changesets whose post receive event has been dispatched completely
+  private final Cache<String, Boolean> received = CacheBuilder.newBuilder()
+    .maximumSize(MAX_PENDING)
+    .expireAfterWrite(1, TimeUnit.MINUTES)
+    .build();
+
+  @Inject
+  public BrowseCacheWarmer(RepositoryServiceFactory repositoryServiceFactory, FolderConfigStore configStore) {
+    this(repositoryServiceFactory, configStore, Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setNameFormat("folder-browse-cache-warmer-%d").setDaemon(true).build()
+    ));
+  }
+
+  @VisibleForTesting
+  BrowseCacheWarmer(RepositoryServiceFactory repositoryServiceFactory, FolderConfigStore configStore, Executor executor) {
+    this.repositoryServiceFactory = repositoryServiceFactory;
+    this.configStore = configStore;
+    this.executor = executor;
+  }
+
+  /**
+   * Warms up the browse cache for the given changeset. Has to be called after the modify command, which created the
+   * changeset, has returned.
+   */
+  void warmUp(Repository repository, @CheckForNull Changeset changeset, String path) {
+    if (changeset == null || !configStore.get().isWarmUpBrowseCache()) {
+      return;
+    }
+    String key = key(repository, changeset.getId());
+    if (received.getIfPresent(key) == null) {
+      LOG.debug("skipped browse cache warm up of {}, post receive event of {} not dispatched yet", repository, changeset.getId());
+      return;
+    }
+    received.invalidate(key);
+
+    String revision = changeset.getBranches() != null && !changeset.getBranches().isEmpty()
+      ? changeset.getBranches().get(0)
+      : changeset.getId();
+    NamespaceAndName namespaceAndName = repository.getNamespaceAndName();
+    // the repository service checks the permissions of the user who triggered the folder operation
+    submit(SecurityUtils.getSubject().associateWith(() -> browse(namespaceAndName, revision, path)));
+  }
+
+  @Subscribe(async = false)
+  public void onEvent(PostReceiveRepositoryHookEvent event) {
+    HookContext context = event.getContext();
+    if (!configStore.get().isWarmUpBrowseCache() || !context.isFeatureSupported(HookFeature.CHANGESET_PROVIDER)) {
+      return;
+    }
+    for (Changeset changeset : context.getChangesetProvider().getChangesets()) {
+      received.put(key(event.getRepository(), changeset.getId()), Boolean.TRUE);
+    }
+  }
+
+  private void submit(Runnable task) {
+    if (pending.incrementAndGet() > MAX_PENDING) {
+      pending.decrementAndGet();
+      LOG.debug("dropped browse cache warm up, too many pending");
+      return;
+    }
+    try {
+      executor.execute(() -> {
+        try {
+          task.run();
+        } finally {
+          pending.decrementAndGet();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      pending.decrementAndGet();
+      LOG.debug("dropped browse cache warm up, executor rejected it", e);
+    }
+  }
+  private void browse(NamespaceAndName namespaceAndName, String revision, String path) {
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(namespaceAndName)) {
+      // the same parameters as the sources view uses for the first page of a directory
+      repositoryService.getBrowseCommand()
+        .setRevision(revision)
+        .setPath(path)
+        .setOffset(0)
+        .setCollapse(true)
+        .getBrowserResult();
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("could not warm up browse cache of {} for path '{}' at {}", namespaceAndName, path, revision, e);
+    }
+  }
+
+  private static String key(Repository repository, String changesetId) {
+    return repository.getId() + ":" + changesetId;
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import sonia.scm.api.v2.resources.Enrich;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricher;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.NamespaceAndName;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import java.util.Objects;
+
+/**
+ * Appends the read only folder links to the browsed directory. Unlike the links of the {@link FileLinkEnricher}
+ * these are not repeated for every child directory of the listing.
+ */
+@Extension
+@Enrich(FileObject.class)
+public class DirectoryLinkEnricher implements HalEnricher {
+
+  private final Provider<ScmPathInfoStore> scmPathInfoStore;
+
+  @Inject
+  public DirectoryLinkEnricher(Provider<ScmPathInfoStore> scmPathInfoStore) {
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+
+  @Override
+  public void enrich(HalEnricherContext context, HalAppender appender) {
+    NamespaceAndName namespaceAndName = context.oneRequireByType(NamespaceAndName.class);
+    FileObject fileObject = context.oneRequireByType(FileObject.class);
+    BrowserResult browserResult = context.oneRequireByType(BrowserResult.class);
+
+    if (fileObject.isDirectory() && isBrowsedDirectory(fileObject, browserResult)) {
+      LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get().get(), FolderResource.class);
+      String path = FolderTreeService.normalizePath(fileObject.getPath());
+
+      appender.appendLink("folderTree", linkBuilder
+        .method("getTree")
+        .parameters(namespaceAndName.getNamespace(), namespaceAndName.getName(), path)
+        .href()
+      );
+      appender.appendLink("folderArchive", linkBuilder
+        .method("getArchive")
+        .parameters(namespaceAndName.getNamespace(), namespaceAndName.getName(), path)
+        .href()
+      );
+      appender.appendLink("folderManifest", linkBuilder
+        .method("checkManifest")
+        .parameters(namespaceAndName.getNamespace(), namespaceAndName.getName(), path)
+        .href()
+      );
+      appender.appendLink("folderLastModified", linkBuilder
+        .method("getLastModified")
+        .parameters(namespaceAndName.getNamespace(), namespaceAndName.getName(), path)
+        .href()
+      );
+      appender.appendLink("folderDiff", linkBuilder
+        .method("getDiff")
+        .parameters(namespaceAndName.getNamespace(), namespaceAndName.getName(), path)
+        .href()
+      );
+      appender.appendLink("folderSearch", linkBuilder
+        .method("search")
+        .parameters(namespaceAndName.getNamespace(), namespaceAndName.getName())
+        .href()
+      );
+      appender.appendLink("folderEvents", linkBuilder
+        .method("subscribe")
+        .parameters(namespaceAndName.getNamespace(), namespaceAndName.getName())
+        .href()
+      );
+    }
+  }
+
+  static boolean isBrowsedDirectory(FileObject fileObject, BrowserResult browserResult) {
+    return browserResult.getFile() != null
+      && Objects.equals(FolderTreeService.normalizePath(fileObject.getPath()), FolderTreeService.normalizePath(browserResult.getFile().getPath()));
+  }
+}
@@ -39,6 +39,12 @@ import sonia.scm.repository.NamespaceAndName;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 
+/**
+ * Appends the links to create and delete folders. By default every directory of a listing gets its own links. If
+ * link templates are enabled in the {@link FolderConfig}, only the browsed directory gets its links together with
+ * one template per link, which clients expand for the child directories. The change guards are checked for the
+ * browsed directory in both modes, so the templates apply to all child directories of the listing.
+ */
 @Extension
 @Enrich(FileObject.class)
 public class FileLinkEnricher implements HalEnricher {
@@ -46,12 +52,14 @@ public class FileLinkEnricher implements HalEnricher {
   private final EditorPreconditions editorPreconditions;
   private final ChangeGuardCheck changeGuardCheck;
   private final Provider<ScmPathInfoStore> scmPathInfoStore;
+  private final FolderConfigStore configStore;
 
   @Inject
-  public FileLinkEnricher(EditorPreconditions editorPreconditions, ChangeGuardCheck changeGuardCheck, Provider<ScmPathInfoStore> scmPathInfoStore) {
+  public FileLinkEnricher(EditorPreconditions editorPreconditions, ChangeGuardCheck changeGuardCheck, Provider<ScmPathInfoStore> scmPathInfoStore, FolderConfigStore configStore) {
     this.editorPreconditions = editorPreconditions;
     this.changeGuardCheck = changeGuardCheck;
     this.scmPathInfoStore = scmPathInfoStore;
+    this.configStore = configStore;
   }
 
   @Override
@@ -60,29 +68,54 @@ public class FileLinkEnricher implements HalEnricher {
     FileObject fileObject = context.oneRequireByType(FileObject.class);
     BrowserResult browserResult = context.oneRequireByType(BrowserResult.class);
 
-    if (fileObject.isDirectory() && editorPreconditions.isEditable(namespaceAndName, browserResult)) {
+    if (!fileObject.isDirectory()) {
+      return;
+    }
+    boolean templates = configStore.get().isFolderLinkTemplates();
+    if (templates && !DirectoryLinkEnricher.isBrowsedDirectory(fileObject, browserResult)) {
+      return;
+    }
+
+    if (editorPreconditions.isEditable(namespaceAndName, browserResult)) {
       LinkBuilder linkBuilder = new LinkBuilder(scmPathInfoStore.get().get(), FolderResource.class);
 
       if (changeGuardCheck.canCreateFilesIn(namespaceAndName, browserResult.getRequestedRevision(), browserResult.getFile().getPath()).isEmpty()) {
-        appender.appendLink("createFolder", linkBuilder
-          .method("createFolder")
-          .parameters(
-            namespaceAndName.getNamespace(),
-            namespaceAndName.getName(),
-            "PATH_PART"
-          ).href().replace("PATH_PART", fixObjectPath(fileObject.getPath()) + "{path}")
-        );
+        appender.appendLink("createFolder", pathLink(linkBuilder, namespaceAndName, "createFolder", fixObjectPath(fileObject.getPath())));
+        if (templates) {
+          appender.appendLink("createFolderTemplate", pathLink(linkBuilder, namespaceAndName, "createFolder", ""));
+        }
+        if (DirectoryLinkEnricher.isBrowsedDirectory(fileObject, browserResult)) {
+          String directoryPath = fixObjectPath(fileObject.getPath());
+          appender.appendLink("transplantFolder", pathLink(linkBuilder, namespaceAndName, "transplantFolder", directoryPath));
+          appender.appendLink("restoreFolder", pathLink(linkBuilder, namespaceAndName, "restoreFolder", directoryPath));
+        }
       }
 
-      if (isNotRoot(fileObject) && changeGuardCheck.isDeletable(namespaceAndName, browserResult.getRequestedRevision(), browserResult.getFile().getPath()).isEmpty()) {
-        appender.appendLink("deleteFolder", linkBuilder
-          .method("deleteFolder")
-          .parameters(namespaceAndName.getNamespace(), namespaceAndName.getName(), fileObject.getPath()).href()
-        );
+      boolean notRoot = isNotRoot(fileObject);
+      if ((templates || notRoot) && changeGuardCheck.isDeletable(namespaceAndName, browserResult.getRequestedRevision(), browserResult.getFile().getPath()).isEmpty()) {
+        if (notRoot) {
+          appender.appendLink("deleteFolder", linkBuilder
+            .method("deleteFolder")
+            .parameters(namespaceAndName.getNamespace(), namespaceAndName.getName(), fileObject.getPath()).href()
+          );
+        }
+        if (templates) {
+          appender.appendLink("deleteFolderTemplate", pathLink(linkBuilder, namespaceAndName, "deleteFolder", ""));
+        }
       }
     }
   }
 
+  private String pathLink(LinkBuilder linkBuilder, NamespaceAndName namespaceAndName, String method, String parentPath) {
+    return linkBuilder
+      .method(method)
+      .parameters(
+        namespaceAndName.getNamespace(),
+        namespaceAndName.getName(),
+        "PATH_PART"
+      ).href().replace("PATH_PART", parentPath + "{path}");
+  }
+
   private boolean isNotRoot(FileObject fileObject) {
     return !fileObject.getPath().equals("") && !fileObject.getPath().equals("/");
   }
@@ -0,0 +1,226 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.shiro.SecurityUtils;
+import sonia.scm.ContextEntry;
+import sonia.scm.repository.NamespaceAndName;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission control for folder operations with one token bucket per repository and one per user. An operation takes
+ * a token from both buckets. If a bucket is empty, the operation reserves the next free token and waits for it, so
+ * waiting operations are admitted in the order they arrived. Operations which would have to wait longer than the
+ * configured maximum are rejected without reserving anything, and operations interrupted while waiting return their
+ * reservation. Callers should acquire the admission before they open any resources, like a repository service, because
+ * they are blocked while waiting.
+ */
+@Singleton
+public class FolderAdmission {
+
+  private static final String METRIC_PREFIX = "scm.folder.admission";
+
+  private final FolderConfigStore configStore;
+  private final Ticker ticker;
+  private final Sleeper sleeper;
+  private final Cache<String, TokenBucket> buckets = CacheBuilder.newBuilder()
+    .maximumSize(10_000)
+    .expireAfterAccess(1, TimeUnit.HOURS)
+    .build();
+
+  private final Counter admitted;
+  private final Counter queued;
+  private final Counter rejected;
+  private final Timer waitTimer;
+  private final AtomicInteger waiting = new AtomicInteger();
+
+  @Inject
+  public FolderAdmission(FolderConfigStore configStore, MeterRegistry meterRegistry) {
+    this(configStore, meterRegistry, Ticker.systemTicker(), TimeUnit.NANOSECONDS::sleep);
+  }
+
+  @VisibleForTesting
+  FolderAdmission(FolderConfigStore configStore, MeterRegistry meterRegistry, Ticker ticker, Sleeper sleeper) {
+    this.configStore = configStore;
+    this.ticker = ticker;
+    this.sleeper = sleeper;
+    this.admitted = Counter.builder(METRIC_PREFIX)
+      .description("Folder operations admitted without waiting")
+      .tag("result", "admitted")
+      .register(meterRegistry);
+    this.queued = Counter.builder(METRIC_PREFIX)
+      .description("Folder operations admitted after waiting for a token")
+      .tag("result", "queued")
+      .register(meterRegistry);
+    this.rejected = Counter.builder(METRIC_PREFIX)
+      .description("Folder operations rejected, because the wait would exceed the limit")
+      .tag("result", "rejected")
+      .register(meterRegistry);
+    this.waitTimer = Timer.builder(METRIC_PREFIX + ".wait")
+      .description("Time queued folder operations waited for a token")
+      .register(meterRegistry);
+    meterRegistry.gauge(METRIC_PREFIX + ".waiting", waiting);
+  }
+
+  /**
+   * Returns as soon as the operation on the given repository may run for the current user.
+   *
+   * @throws FolderOperationRejectedException if the operation would have to wait longer than configured
+   */
+  void acquire(NamespaceAndName namespaceAndName) {
+    FolderConfig config = configStore.get();
+    TokenBucket repositoryBucket = bucket("repository", namespaceAndName.toString(), config.getRepositoryRate(), config.getRepositoryBurst());
+    TokenBucket userBucket = bucket("user", String.valueOf(SecurityUtils.getSubject().getPrincipal()), config.getUserRate(), config.getUserBurst());
+
+    long waitNanos = reserve(namespaceAndName, repositoryBucket, userBucket, TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMillis()));
+    if (waitNanos == 0) {
+      admitted.increment();
+      return;
+    }
+
+    queued.increment();
+    waiting.incrementAndGet();
+    try {
+      sleeper.sleep(waitNanos);
+      waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      // the operation will not run, so the reserved tokens are free for the operations waiting behind it
+      release(repositoryBucket);
+      release(userBucket);
+      throw new FolderOperationRejectedException(ContextEntry.ContextBuilder.entity(namespaceAndName).build(), waitNanos);
+    } finally {
+      waiting.decrementAndGet();
+    }
+  }
+
+  private long reserve(NamespaceAndName namespaceAndName, @CheckForNull TokenBucket repositoryBucket, @CheckForNull TokenBucket userBucket, long maxWaitNanos) {
+    if (repositoryBucket == null && userBucket == null) {
+      return 0;
+    }
+    // buckets are always locked in the same order, repository before user, so that reservations cannot dead lock
+    TokenBucket first = repositoryBucket != null ? repositoryBucket : userBucket;
+    TokenBucket second = repositoryBucket != null ? userBucket : null;
+    synchronized (first) {
+      if (second == null) {
+        return reserveLocked(namespaceAndName, first, null, maxWaitNanos);
+      }
+      synchronized (second) {
+        return reserveLocked(namespaceAndName, first, second, maxWaitNanos);
+      }
+    }
+  }
+
+  private long reserveLocked(NamespaceAndName namespaceAndName, TokenBucket first, @CheckForNull TokenBucket second, long maxWaitNanos) {
+    long now = ticker.read();
+    long waitNanos = Math.max(first.waitNanos(now), second != null ? second.waitNanos(now) : 0);
+    if (waitNanos > maxWaitNanos) {
+      rejected.increment();
+      throw new FolderOperationRejectedException(ContextEntry.ContextBuilder.entity(namespaceAndName).build(), waitNanos);
+    }
+    first.take();
+    if (second != null) {
+      second.take();
+    }
+    return waitNanos;
+  }
+
+  private void release(@CheckForNull TokenBucket bucket) {
+    if (bucket != null) {
+      synchronized (bucket) {
+        bucket.giveBack();
+      }
+    }
+  }
+
+  @CheckForNull
+  private TokenBucket bucket(String scope, String id, int ratePerMinute, int burst) {
+    if (ratePerMinute <= 0) {
+      return null;
+    }
+    // rate and burst are part of the key, so that changes of the configuration take effect immediately
+    String key = scope + ":" + ratePerMinute + ":" + burst + ":" + id;
+    try {
+      return buckets.get(key, () -> new TokenBucket(ratePerMinute, burst, ticker.read()));
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("failed to create token bucket", e.getCause());
+    }
+  }
+
+  @FunctionalInterface
+  interface Sleeper {
+    void sleep(long nanos) throws InterruptedException;
+  }
+
+  /**
+   * Token bucket whose token count becomes negative for reserved tokens. Not thread safe, callers have to synchronize
+   * on the bucket.
+   */
+  static class TokenBucket {
+
+    private final double nanosPerToken;
+    private final double capacity;
+    private double tokens;
+    private long updated;
+
+    TokenBucket(int ratePerMinute, int burst, long now) {
+      this.nanosPerToken = TimeUnit.MINUTES.toNanos(1) / (double) ratePerMinute;
+      this.capacity = Math.max(burst, 1);
+      this.tokens = capacity;
+      this.updated = now;
+    }
+
+    long waitNanos(long now) {
+      if (now > updated) {
+        tokens = Math.min(capacity, tokens + (now - updated) / nanosPerToken);
+        updated = now;
+      }
+      if (tokens >= 1) {
+        return 0;
+      }
+      return (long) Math.ceil((1 - tokens) * nanosPerToken);
+    }
+
+    void take() {
+      tokens -= 1;
+    }
+
+    void giveBack() {
+      tokens = Math.min(capacity, tokens + 1);
+    }
+  }
+}
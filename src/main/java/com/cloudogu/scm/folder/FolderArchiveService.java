@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import lombok.Value;
+import sonia.scm.ContextEntry;
+import sonia.scm.NotFoundException;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.util.ValidationUtil;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static sonia.scm.ScmConstraintViolationException.Builder.doThrow;
+
+/**
+ * Streams the content of a directory as zip archive. Files are copied one by one from the repository into the
+ * response, so the memory needed does not depend on the size of the directory.
+ */
+public class FolderArchiveService {
+
+  private final RepositoryServiceFactory repositoryServiceFactory;
+
+  @Inject
+  public FolderArchiveService(RepositoryServiceFactory repositoryServiceFactory) {
+    this.repositoryServiceFactory = repositoryServiceFactory;
+  }
+
+  /**
+   * Resolves the revision and computes the entity tag of the archive. The entity tag is derived from the last
+   * changeset which modified the directory, so it stays the same for all revisions with an unchanged directory.
+   */
+  FolderArchive prepare(String namespace, String repositoryName, @CheckForNull String revision, @CheckForNull String path) throws IOException {
+    String normalizedPath = FolderTreeService.normalizePath(path);
+    doThrow()
+      .violation("invalid path: ", path)
+      .when(!normalizedPath.isEmpty() && !ValidationUtil.isPathValid(normalizedPath));
+
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(namespace, repositoryName))) {
+      Repository repository = repositoryService.getRepository();
+      RepositoryPermissions.pull(repository).check();
+
+      BrowseCommandBuilder browseCommand = repositoryService.getBrowseCommand()
+        .setDisableLastCommit(true)
+        .setDisablePreProcessors(true)
+        .setDisableSubRepositoryDetection(true)
+        .setPath(normalizedPath)
+        .setLimit(1);
+      if (!Strings.isNullOrEmpty(revision)) {
+        browseCommand.setRevision(revision);
+      }
+      BrowserResult browserResult = browseCommand.getBrowserResult();
+      assertIsDirectory(repository, revision, normalizedPath, browserResult);
+
+      String resolvedRevision = browserResult.getRevision();
+      String lastModification = findLastModification(repositoryService, resolvedRevision, normalizedPath);
+      String entityTag = Hashing.sha256()
+        .hashString(repository.getId() + ":" + normalizedPath + ":" + lastModification, UTF_8)
+        .toString();
+      return new FolderArchive(namespace, repositoryName, resolvedRevision, normalizedPath, entityTag);
+    }
+  }
+
+  void write(FolderArchive archive, OutputStream outputStream) throws IOException {
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(archive.getNamespace(), archive.getName()));
+         ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+      RepositoryPermissions.pull(repositoryService.getRepository()).check();
+
+      OutputStream entryStream = new NonClosingOutputStream(zip);
+      new FolderWalker(repositoryService, archive.getRevision()).walk(archive.getPath(), new FolderWalker.Visitor() {
+        @Override
+        public boolean visitDirectory(FileObject directory) throws IOException {
+          zip.putNextEntry(new ZipEntry(archive.relativize(directory.getPath()) + "/"));
+          zip.closeEntry();
+          return true;
+        }
+
+        @Override
+        public boolean visitFile(FileObject file) throws IOException {
+          ZipEntry entry = new ZipEntry(archive.relativize(file.getPath()));
+          if (file.getLastModified() != null) {
+            entry.setTime(file.getLastModified());
+          }
+          zip.putNextEntry(entry);
+          repositoryService.getCatCommand()
+            .setRevision(archive.getRevision())
+            .retriveContent(entryStream, file.getPath());
+          zip.closeEntry();
+          return true;
+        }
+      });
+    }
+  }
+
+  private String findLastModification(RepositoryService repositoryService, String revision, String path) throws IOException {
+    if (path.isEmpty()) {
+      return revision;
+    }
+    List<Changeset> changesets = repositoryService.getLogCommand()
+      .setStartChangeset(revision)
+      .setPath(path)
+      .setPagingStart(0)
+      .setPagingLimit(1)
+      .getChangesets()
+      .getChangesets();
+    return changesets.isEmpty() ? revision : changesets.get(0).getId();
+  }
+
+  private void assertIsDirectory(Repository repository, @CheckForNull String revision, String path, BrowserResult browserResult) {
+    ContextEntry.ContextBuilder context = new ContextEntry.ContextBuilder().in(repository);
+    if (!Strings.isNullOrEmpty(revision)) {
+      context.in("revision", revision);
+    }
+    context.in("path", path);
+    if (browserResult == null || browserResult.getFile() == null) {
+      throw NotFoundException.notFound(context);
+    }
+    if (!browserResult.getFile().isDirectory()) {
+      throw new PathIsNotADirectoryException(context.build(), "The provided path does not belong to a directory, but a file");
+    }
+  }
+
+  @Value
+  static class FolderArchive {
+    String namespace;
+    String name;
+    String revision;
+    String path;
+    String entityTag;
+
+    String getFileName() {
+      String folderName = path.isEmpty() ? name : path.substring(path.lastIndexOf('/') + 1);
+      return folderName + ".zip";
+    }
+
+    String relativize(String filePath) {
+      String normalized = FolderTreeService.normalizePath(filePath);
+      return path.isEmpty() ? normalized : normalized.substring(path.length() + 1);
+    }
+  }
+
+  private static class NonClosingOutputStream extends FilterOutputStream {
+
+    NonClosingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import lombok.Getter;
+import lombok.ToString;
+import sonia.scm.event.Event;
+import sonia.scm.repository.Repository;
+
+import java.util.List;
+
+/**
+ * Posted asynchronously after a folder operation of this plugin has been committed. There is exactly one event per
+ * commit, which lists all folders created and deleted by it, so that consumers like search indices can update the
+ * affected paths instead of processing the whole repository.
+ */
+@Event
+@Getter
+@ToString
+public class FolderChangedEvent {
+
+  private final Repository repository;
+  /**
+   * Name of the branch the commit was made on. Requests without a branch are resolved to the default branch, so the
+   * name is only empty for repositories without branches.
+   */
+  private final String branch;
+  private final String changesetId;
+  private final List<String> createdFolders;
+  private final List<String> deletedFolders;
+
+  public FolderChangedEvent(Repository repository, String branch, String changesetId, List<String> createdFolders, List<String> deletedFolders) {
+    this.repository = repository;
+    this.branch = branch;
+    this.changesetId = changesetId;
+    this.createdFolders = List.copyOf(createdFolders);
+    this.deletedFolders = List.copyOf(deletedFolders);
+  }
+
+  static FolderChangedEvent created(Repository repository, String branch, String changesetId, String path) {
+    return new FolderChangedEvent(repository, branch, changesetId, List.of(path), List.of());
+  }
+
+  static FolderChangedEvent deleted(Repository repository, String branch, String changesetId, String path) {
+    return new FolderChangedEvent(repository, branch, changesetId, List.of(), List.of(path));
+  }
+}
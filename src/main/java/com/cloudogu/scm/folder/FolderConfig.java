@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlRootElement;
+
+/**
+ * Global limits and settings for folder operations. A limit of {@code 0} disables the check; all limits are disabled
+ * by default, so that administrators enable only those they need.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@XmlRootElement(name = "manage-folder")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class FolderConfig {
+
+  static final long DEFAULT_MAX_ENTRIES = 0;
+  static final int DEFAULT_MAX_DEPTH = 0;
+  static final long DEFAULT_MAX_BYTES_PER_COMMIT = 0;
+  static final int DEFAULT_MAX_PATHS_PER_BATCH = 0;
+  static final int DEFAULT_REPOSITORY_RATE = 0;
+  static final int DEFAULT_REPOSITORY_BURST = 20;
+  static final int DEFAULT_USER_RATE = 0;
+  static final int DEFAULT_USER_BURST = 10;
+  static final long DEFAULT_MAX_WAIT_MILLIS = 5_000;
+  static final boolean DEFAULT_WARM_UP_BROWSE_CACHE = false;
+  static final boolean DEFAULT_FOLDER_LINK_TEMPLATES = false;
+
+  /**
+   * Maximum number of files and directories a single operation may affect, e.g. when deleting a folder.
+   */
+  private long maxEntries = DEFAULT_MAX_ENTRIES;
+  /**
+   * Maximum number of path segments of a folder touched by an operation, counted from the repository root.
+   */
+  private int maxDepth = DEFAULT_MAX_DEPTH;
+  /**
+   * Maximum number of bytes a single operation may write in one commit.
+   */
+  private long maxBytesPerCommit = DEFAULT_MAX_BYTES_PER_COMMIT;
+  /**
+   * Maximum number of files and folders a single upload may contain, checked for the upload manifest.
+   */
+  private int maxPathsPerBatch = DEFAULT_MAX_PATHS_PER_BATCH;
+  /**
+   * Folder operations per minute a single repository may receive, from all users together.
+   */
+  private int repositoryRate = DEFAULT_REPOSITORY_RATE;
+  /**
+   * Folder operations a single repository may receive at once, before the {@link #repositoryRate} applies.
+   */
+  private int repositoryBurst = DEFAULT_REPOSITORY_BURST;
+  /**
+   * Folder operations per minute a single user may send, across all repositories.
+   */
+  private int userRate = DEFAULT_USER_RATE;
+  /**
+   * Folder operations a single user may send at once, before the {@link #userRate} applies.
+   */
+  private int userBurst = DEFAULT_USER_BURST;
+  /**
+   * Maximum time an operation waits for its turn, before it is rejected.
+   */
+  private long maxWaitMillis = DEFAULT_MAX_WAIT_MILLIS;
+  /**
+   * Browse the page shown after a folder operation in the background, so that it is served from the cache.
+   */
+  private boolean warmUpBrowseCache = DEFAULT_WARM_UP_BROWSE_CACHE;
+  /**
+   * Append the links to create and delete folders only to the browsed directory, together with templates for its
+   * child directories, instead of appending them to every directory of a listing.
+   */
+  private boolean folderLinkTemplates = DEFAULT_FOLDER_LINK_TEMPLATES;
+}
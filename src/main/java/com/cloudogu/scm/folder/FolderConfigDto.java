@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import de.otto.edison.hal.HalRepresentation;
+import de.otto.edison.hal.Links;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import jakarta.validation.constraints.Min;
+
+import static com.google.common.base.MoreObjects.firstNonNull;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@SuppressWarnings("java:S2160") // we do not need equals for dto
+public class FolderConfigDto extends HalRepresentation {
+
+  @Min(0)
+  private Long maxEntries;
+  @Min(0)
+  private Integer maxDepth;
+  @Min(0)
+  private Long maxBytesPerCommit;
+  @Min(0)
+  private Integer maxPathsPerBatch;
+  @Min(0)
+  private Integer repositoryRate;
+  @Min(0)
+  private Integer repositoryBurst;
+  @Min(0)
+  private Integer userRate;
+  @Min(0)
+  private Integer userBurst;
+  @Min(0)
+  private Long maxWaitMillis;
+  private Boolean warmUpBrowseCache;
+  private Boolean folderLinkTemplates;
+
+  FolderConfigDto(Links links, FolderConfig config) {
+    super(links);
+    this.maxEntries = config.getMaxEntries();
+    this.maxDepth = config.getMaxDepth();
+    this.maxBytesPerCommit = config.getMaxBytesPerCommit();
+    this.maxPathsPerBatch = config.getMaxPathsPerBatch();
+    this.repositoryRate = config.getRepositoryRate();
+    this.repositoryBurst = config.getRepositoryBurst();
+    this.userRate = config.getUserRate();
+    this.userBurst = config.getUserBurst();
+    this.maxWaitMillis = config.getMaxWaitMillis();
+    this.warmUpBrowseCache = config.isWarmUpBrowseCache();
+    this.folderLinkTemplates = config.isFolderLinkTemplates();
+  }
+
+  /**
+   * Creates the config to store. Fields missing in the request keep their stored value.
+   */
+  FolderConfig toConfig(FolderConfig stored) {
+    FolderConfig config = new FolderConfig();
+    config.setMaxEntries(firstNonNull(maxEntries, stored.getMaxEntries()));
+    config.setMaxDepth(firstNonNull(maxDepth, stored.getMaxDepth()));
+    config.setMaxBytesPerCommit(firstNonNull(maxBytesPerCommit, stored.getMaxBytesPerCommit()));
+    config.setMaxPathsPerBatch(firstNonNull(maxPathsPerBatch, stored.getMaxPathsPerBatch()));
+    config.setRepositoryRate(firstNonNull(repositoryRate, stored.getRepositoryRate()));
+    config.setRepositoryBurst(firstNonNull(repositoryBurst, stored.getRepositoryBurst()));
+    config.setUserRate(firstNonNull(userRate, stored.getUserRate()));
+    config.setUserBurst(firstNonNull(userBurst, stored.getUserBurst()));
+    config.setMaxWaitMillis(firstNonNull(maxWaitMillis, stored.getMaxWaitMillis()));
+    config.setWarmUpBrowseCache(firstNonNull(warmUpBrowseCache, stored.isWarmUpBrowseCache()));
+    config.setFolderLinkTemplates(firstNonNull(folderLinkTemplates, stored.isFolderLinkTemplates()));
+    return config;
+  }
+}
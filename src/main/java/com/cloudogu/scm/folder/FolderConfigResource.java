@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import de.otto.edison.hal.Links;
+import sonia.scm.api.v2.resources.LinkBuilder;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.config.ConfigurationPermissions;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Provider;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.PUT;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import static de.otto.edison.hal.Link.link;
+
+@Path("v2/config/manage-folder")
+public class FolderConfigResource {
+
+  static final String PERMISSION_NAME = "manageFolder";
+
+  private final FolderConfigStore configStore;
+  private final Provider<ScmPathInfoStore> scmPathInfoStore;
+
+  @Inject
+  public FolderConfigResource(FolderConfigStore configStore, Provider<ScmPathInfoStore> scmPathInfoStore) {
+    this.configStore = configStore;
+    this.scmPathInfoStore = scmPathInfoStore;
+  }
+
+  @GET
+  @Path("")
+  @Produces(MediaType.APPLICATION_JSON)
+  public FolderConfigDto get() {
+    ConfigurationPermissions.read(PERMISSION_NAME).check();
+    Links.Builder links = Links.linkingTo().self(selfLink());
+    if (ConfigurationPermissions.write(PERMISSION_NAME).isPermitted()) {
+      links.single(link("update", updateLink()));
+    }
+    return new FolderConfigDto(links.build(), configStore.get());
+  }
+
+  @PUT
+  @Path("")
+  @Consumes(MediaType.APPLICATION_JSON)
+  public Response update(@Valid FolderConfigDto dto) {
+    ConfigurationPermissions.write(PERMISSION_NAME).check();
+    configStore.set(dto.toConfig(configStore.get()));
+    return Response.noContent().build();
+  }
+
+  private String selfLink() {
+    return new LinkBuilder(scmPathInfoStore.get().get(), FolderConfigResource.class).method("get").parameters().href();
+  }
+
+  private String updateLink() {
+    return new LinkBuilder(scmPathInfoStore.get().get(), FolderConfigResource.class).method("update").parameters().href();
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.ConfigurationStoreFactory;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+/**
+ * Keeps the read configuration in memory, because it is needed for every directory of a listing. All changes have to
+ * go through {@link #set(FolderConfig)}, which replaces the kept configuration.
+ */
+@Singleton
+public class FolderConfigStore {
+
+  static final String STORE_NAME = "manage-folder";
+
+  private final ConfigurationStore<FolderConfig> store;
+  private volatile FolderConfig config;
+
+  @Inject
+  public FolderConfigStore(ConfigurationStoreFactory storeFactory) {
+    this.store = storeFactory.withType(FolderConfig.class).withName(STORE_NAME).build();
+  }
+
+  public FolderConfig get() {
+    FolderConfig current = config;
+    if (current == null) {
+      current = store.getOptional().orElseGet(FolderConfig::new);
+      config = current;
+    }
+    return current;
+  }
+
+  public void set(FolderConfig config) {
+    store.set(config);
+    this.config = config;
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.base.Strings;
+import lombok.Value;
+import sonia.scm.ContextEntry;
+import sonia.scm.NotFoundException;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.Feature;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Modifications;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.util.ValidationUtil;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static sonia.scm.ScmConstraintViolationException.Builder.doThrow;
+
+/**
+ * Compares the directory structure below a path of two revisions and streams the added, removed and keep only
+ * directories as newline delimited json. The repository api does not expose tree ids, so a subtree is treated as
+ * identical, if none of the paths modified between the two revisions lies below it. Identical subtrees are skipped
+ * without browsing them. Repository types which cannot compute the modifications between two revisions are compared
+ * completely.
+ */
+public class FolderDiffService {
+
+  static final int BROWSE_PAGE_SIZE = 1000;
+
+  private static final ObjectWriter WRITER = new ObjectMapper().writerFor(FolderDiffEntryDto.class);
+
+  private final RepositoryServiceFactory repositoryServiceFactory;
+
+  @Inject
+  public FolderDiffService(RepositoryServiceFactory repositoryServiceFactory) {
+    this.repositoryServiceFactory = repositoryServiceFactory;
+  }
+
+  /**
+   * Validates the request and resolves both revisions, so that errors can be reported before the response is
+   * streamed.
+   */
+  FolderDiff prepare(String namespace, String repositoryName, String from, String to, @CheckForNull String path) throws IOException {
+    String normalizedPath = FolderTreeService.normalizePath(path);
+    doThrow()
+      .violation("invalid path: ", path)
+      .when(!normalizedPath.isEmpty() && !ValidationUtil.isPathValid(normalizedPath));
+    doThrow()
+      .violation("from revision is required", "from")
+      .when(Strings.isNullOrEmpty(from));
+    doThrow()
+      .violation("to revision is required", "to")
+      .when(Strings.isNullOrEmpty(to));
+
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(namespace, repositoryName))) {
+      Repository repository = repositoryService.getRepository();
+      RepositoryPermissions.pull(repository).check();
+
+      String fromRevision = resolve(repositoryService, from, normalizedPath);
+      String toRevision = resolve(repositoryService, to, normalizedPath);
+      return new FolderDiff(namespace, repositoryName, fromRevision, toRevision, normalizedPath);
+    }
+  }
+
+  void write(FolderDiff diff, OutputStream outputStream) throws IOException {
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(diff.getNamespace(), diff.getName()))) {
+      RepositoryPermissions.pull(repositoryService.getRepository()).check();
+
+      Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, UTF_8));
+      if (!diff.getFromRevision().equals(diff.getToRevision())) {
+        compare(repositoryService, diff, changedDirectories(repositoryService, diff), writer);
+      }
+      writer.flush();
+    }
+  }
+
+  private void compare(RepositoryService repositoryService, FolderDiff diff, @CheckForNull Set<String> changedDirectories, Writer writer) throws IOException {
+    Deque<String> pendingDirectories = new ArrayDeque<>();
+    pendingDirectories.push(diff.getPath());
+    while (!pendingDirectories.isEmpty()) {
+      String directory = pendingDirectories.pop();
+      Listing from = list(repositoryService, diff.getFromRevision(), directory);
+      Listing to = list(repositoryService, diff.getToRevision(), directory);
+
+      if (!directory.equals(diff.getPath()) && from.isWithContent() && !to.isWithContent()) {
+        emit(writer, FolderDiffEntryDto.KEEP_ONLY, directory);
+      }
+
+      List<String> common = new ArrayList<>();
+      for (Map.Entry<String, String> child : to.getDirectories().entrySet()) {
+        if (from.getDirectories().containsKey(child.getKey())) {
+          common.add(child.getValue());
+        } else {
+          emitTree(repositoryService, diff.getToRevision(), child.getValue(), FolderDiffEntryDto.ADDED, writer);
+        }
+      }
+      for (Map.Entry<String, String> child : from.getDirectories().entrySet()) {
+        if (!to.getDirectories().containsKey(child.getKey())) {
+          emitTree(repositoryService, diff.getFromRevision(), child.getValue(), FolderDiffEntryDto.REMOVED, writer);
+        }
+      }
+      // pushed in reverse order, so that the output is sorted depth first like the walk of a single revision
+      for (int i = common.size() - 1; i >= 0; i--) {
+        String childPath = common.get(i);
+        if (changedDirectories == null || changedDirectories.contains(childPath)) {
+          pendingDirectories.push(childPath);
+        }
+      }
+    }
+  }
+
+  private void emitTree(RepositoryService repositoryService, String revision, String path, String type, Writer writer) throws IOException {
+    emit(writer, type, path);
+    new FolderWalker(repositoryService, revision).walk(path, new FolderWalker.Visitor() {
+      @Override
+      public boolean visitDirectory(FileObject directory) throws IOException {
+        emit(writer, type, FolderTreeService.normalizePath(directory.getPath()));
+        return true;
+      }
+
+      @Override
+      public boolean visitFile(FileObject file) {
+        return true;
+      }
+    });
+  }
+
+  private void emit(Writer writer, String type, String path) throws IOException {
+    writer.write(WRITER.writeValueAsString(new FolderDiffEntryDto(type, path)));
+    writer.write('\n');
+  }
+
+  /**
+   * Returns all directories containing a path modified between the two revisions, or {@code null} if the repository
+   * type cannot compute these modifications.
+   */
+  @CheckForNull
+  private Set<String> changedDirectories(RepositoryService repositoryService, FolderDiff diff) throws IOException {
+    if (!repositoryService.isSupported(Feature.MODIFICATIONS_BETWEEN_REVISIONS)) {
+      return null;
+    }
+    Modifications modifications = repositoryService.getModificationsCommand()
+      .baseRevision(diff.getFromRevision())
+      .revision(diff.getToRevision())
+      .getModifications();
+    if (modifications == null) {
+      return null;
+    }
+
+    List<String> modifiedPaths = new ArrayList<>();
+    modifications.getAdded().forEach(added -> modifiedPaths.add(added.getPath()));
+    modifications.getModified().forEach(modified -> modifiedPaths.add(modified.getPath()));
+    modifications.getRemoved().forEach(removed -> modifiedPaths.add(removed.getPath()));
+    modifications.getRenamed().forEach(renamed -> {
+      modifiedPaths.add(renamed.getOldPath());
+      modifiedPaths.add(renamed.getNewPath());
+    });
+    modifications.getCopied().forEach(copied -> modifiedPaths.add(copied.getTargetPath()));
+
+    Set<String> directories = new HashSet<>();
+    for (String modifiedPath : modifiedPaths) {
+      String parent = FolderPathIndex.parentOf(FolderTreeService.normalizePath(modifiedPath));
+      while (!parent.isEmpty() && directories.add(parent)) {
+        parent = FolderPathIndex.parentOf(parent);
+      }
+    }
+    return directories;
+  }
+
+  private Listing list(RepositoryService repositoryService, String revision, String path) throws IOException {
+    Map<String, String> directories = new TreeMap<>();
+    boolean withContent = false;
+    int offset = 0;
+    while (true) {
+      BrowserResult browserResult = repositoryService.getBrowseCommand()
+        .setDisableCache(true)
+        .setDisableLastCommit(true)
+        .setDisablePreProcessors(true)
+        .setDisableSubRepositoryDetection(true)
+        .setRevision(revision)
+        .setPath(path)
+        .setOffset(offset)
+        .setLimit(BROWSE_PAGE_SIZE)
+        .getBrowserResult();
+      FileObject listing = browserResult.getFile();
+      for (FileObject child : listing.getChildren()) {
+        if (child.isDirectory()) {
+          directories.put(child.getName(), FolderTreeService.normalizePath(child.getPath()));
+          withContent = true;
+        } else if (!KeepFileFolderStrategy.KEEP_FILE_NAME.equals(child.getName())) {
+          withContent = true;
+        }
+      }
+      offset += listing.getChildren().size();
+      if (!listing.isTruncated() || listing.getChildren().isEmpty()) {
+        return new Listing(directories, withContent);
+      }
+    }
+  }
+
+  private String resolve(RepositoryService repositoryService, String revision, String path) throws IOException {
+    BrowserResult browserResult = repositoryService.getBrowseCommand()
+      .setDisableCache(true)
+      .setDisableLastCommit(true)
+      .setDisablePreProcessors(true)
+      .setDisableSubRepositoryDetection(true)
+      .setRevision(revision)
+      .setPath(path)
+      .setLimit(1)
+      .getBrowserResult();
+
+    ContextEntry.ContextBuilder context = new ContextEntry.ContextBuilder()
+      .in(repositoryService.getRepository())
+      .in("revision", revision)
+      .in("path", path);
+    if (browserResult == null || browserResult.getFile() == null) {
+      throw NotFoundException.notFound(context);
+    }
+    if (!browserResult.getFile().isDirectory()) {
+      throw new PathIsNotADirectoryException(context.build(), "The provided path does not belong to a directory, but a file");
+    }
+    return browserResult.getRevision();
+  }
+
+  @Value
+  static class FolderDiff {
+    String namespace;
+    String name;
+    String fromRevision;
+    String toRevision;
+    String path;
+  }
+
+  @Value
+  private static class Listing {
+    Map<String, String> directories;
+    boolean withContent;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.legman.Subscribe;
+import com.google.common.base.Strings;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.EagerSingleton;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.InternalRepositoryException;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.security.SessionId;
+import sonia.scm.sse.ChannelRegistry;
+import sonia.scm.sse.Message;
+import sonia.scm.sse.Registration;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import java.io.IOException;
+
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+import static sonia.scm.NotFoundException.notFound;
+
+/**
+ * Pushes {@link FolderChangedEvent}s as server sent events to the open sources views of a repository and branch,
+ * using one channel of the core {@link ChannelRegistry} per repository and branch. The registry keeps the
+ * connections and drops closed ones.
+ * Subscriptions without a branch are registered for the name of the default branch, which is the branch the events
+ * of requests without a branch carry, too.
+ */
+@Extension
+@EagerSingleton
+public class FolderEventBroadcaster {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FolderEventBroadcaster.class);
+
+  static final String EVENT_NAME = "folderChanged";
+
+  private static final ObjectWriter WRITER = new ObjectMapper().writerFor(FolderEventDto.class);
+
+  private final RepositoryManager repositoryManager;
+  private final RepositoryServiceFactory repositoryServiceFactory;
+  private final ChannelRegistry channelRegistry;
+
+  @Inject
+  public FolderEventBroadcaster(RepositoryManager repositoryManager, RepositoryServiceFactory repositoryServiceFactory, ChannelRegistry channelRegistry) {
+    this.repositoryManager = repositoryManager;
+    this.repositoryServiceFactory = repositoryServiceFactory;
+    this.channelRegistry = channelRegistry;
+  }
+
+  /**
+   * Registers the sink for the folder changes of the given branch, or of the default branch if no branch is given.
+   */
+  void subscribe(String namespace, String repositoryName, @CheckForNull String branch, @CheckForNull SessionId sessionId, SseEventSink sink, Sse sse) {
+    NamespaceAndName namespaceAndName = new NamespaceAndName(namespace, repositoryName);
+    Repository repository = repositoryManager.get(namespaceAndName);
+    if (repository == null) {
+      throw notFound(entity(namespaceAndName));
+    }
+    RepositoryPermissions.pull(repository).check();
+
+    channelRegistry.channel(new ChannelId(repository.getId(), resolveBranch(repository, branch)))
+      .register(new Registration(sessionId, sse, sink));
+  }
+
+  @Subscribe
+  public void onEvent(FolderChangedEvent event) {
+    String data;
+    try {
+      data = WRITER.writeValueAsString(new FolderEventDto(event.getChangesetId(), event.getBranch(), event.getCreatedFolders(), event.getDeletedFolders()));
+    } catch (JsonProcessingException e) {
+      LOG.warn("could not serialize folder event {}", event, e);
+      return;
+    }
+    // the folder operations of the frontend skip their own events by the changeset id, so there is no sender
+    channelRegistry.channel(new ChannelId(event.getRepository().getId(), event.getBranch()))
+      .broadcast(new Message(EVENT_NAME, String.class, data, null));
+  }
+
+  private String resolveBranch(Repository repository, @CheckForNull String branch) {
+    if (!Strings.isNullOrEmpty(branch)) {
+      return branch;
+    }
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(repository)) {
+      return FolderLookup.resolveBranch(repositoryService, branch);
+    } catch (IOException e) {
+      throw new InternalRepositoryException(repository, "could not resolve default branch", e);
+    }
+  }
+
+  @Value
+  static class ChannelId {
+    String repositoryId;
+    String branch;
+  }
+}
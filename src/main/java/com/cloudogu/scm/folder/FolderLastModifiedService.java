@@ -0,0 +1,307 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Value;
+import sonia.scm.ContextEntry;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.ChangesetPagingResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Modifications;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.LogCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.util.ValidationUtil;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+import static sonia.scm.NotFoundException.notFound;
+import static sonia.scm.ScmConstraintViolationException.Builder.doThrow;
+
+/**
+ * Finds the last changeset which modified each direct subdirectory of a directory. The history of the directory is
+ * walked once, newest first, until every subdirectory has been seen in the modifications of a changeset. Results are
+ * cached per revision. If the result for the parent of a revision is cached, only subdirectories touched by the new
+ * changeset get the new changeset, all others are taken from the parent result without walking the history.
+ */
+@Singleton
+public class FolderLastModifiedService {
+
+  static final int LOG_PAGE_SIZE = 100;
+  static final int BROWSE_PAGE_SIZE = 1000;
+
+  private final RepositoryServiceFactory repositoryServiceFactory;
+  private final Cache<ResultKey, Map<String, LastChange>> results;
+
+  @Inject
+  public FolderLastModifiedService(RepositoryServiceFactory repositoryServiceFactory) {
+    this(repositoryServiceFactory, 1_000);
+  }
+
+  @VisibleForTesting
+  FolderLastModifiedService(RepositoryServiceFactory repositoryServiceFactory, long maxCachedResults) {
+    this.repositoryServiceFactory = repositoryServiceFactory;
+    this.results = CacheBuilder.newBuilder().maximumSize(maxCachedResults).build();
+  }
+
+  FolderLastModifiedDto getLastModified(String namespace, String repositoryName, @CheckForNull String revision, @CheckForNull String path) throws IOException {
+    String normalizedPath = FolderTreeService.normalizePath(path);
+    doThrow()
+      .violation("invalid path: ", path)
+      .when(!normalizedPath.isEmpty() && !ValidationUtil.isPathValid(normalizedPath));
+
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(namespace, repositoryName))) {
+      RepositoryPermissions.pull(repositoryService.getRepository()).check();
+
+      Listing listing = listDirectories(repositoryService, revision, normalizedPath);
+      Map<String, LastChange> changes = getChanges(repositoryService, listing.getRevision(), normalizedPath, listing.getNames());
+
+      List<FolderLastModifiedEntryDto> entries = new ArrayList<>(listing.getNames().size());
+      for (String name : listing.getNames()) {
+        String childPath = normalizedPath.isEmpty() ? name : normalizedPath + "/" + name;
+        LastChange change = changes.get(name);
+        if (change != null) {
+          entries.add(new FolderLastModifiedEntryDto(name, childPath, change.getId(), change.getDate(), change.getAuthor(), change.getDescription()));
+        } else {
+          entries.add(new FolderLastModifiedEntryDto(name, childPath, null, null, null, null));
+        }
+      }
+      return new FolderLastModifiedDto(listing.getRevision(), normalizedPath, entries);
+    }
+  }
+
+  private Map<String, LastChange> getChanges(RepositoryService repositoryService, String revision, String path, List<String> names) throws IOException {
+    ResultKey key = new ResultKey(repositoryService.getRepository().getId(), revision, path);
+    Map<String, LastChange> cached = results.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+
+    Map<String, LastChange> changes = new HashMap<>();
+    Set<String> unresolved = new HashSet<>(names);
+    takeFromParent(repositoryService, revision, path, unresolved, changes);
+    if (!unresolved.isEmpty()) {
+      walkHistory(repositoryService, revision, path, unresolved, changes);
+    }
+
+    Map<String, LastChange> result = Collections.unmodifiableMap(changes);
+    results.put(key, result);
+    return result;
+  }
+
+  private void takeFromParent(RepositoryService repositoryService, String revision, String path, Set<String> unresolved, Map<String, LastChange> changes) throws IOException {
+    Changeset changeset = repositoryService.getLogCommand().getChangeset(revision);
+    if (changeset == null || changeset.getParents() == null || changeset.getParents().size() != 1) {
+      return;
+    }
+    ResultKey parentKey = new ResultKey(repositoryService.getRepository().getId(), changeset.getParents().get(0), path);
+    Map<String, LastChange> parentChanges = results.getIfPresent(parentKey);
+    if (parentChanges == null) {
+      return;
+    }
+
+    Set<String> touched = touchedChildren(repositoryService, changeset.getId(), path);
+    Iterator<String> iterator = unresolved.iterator();
+    while (iterator.hasNext()) {
+      String name = iterator.next();
+      if (touched.contains(name)) {
+        changes.put(name, LastChange.of(changeset));
+        iterator.remove();
+      } else if (parentChanges.containsKey(name)) {
+        changes.put(name, parentChanges.get(name));
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Walks the history of the directory page by page and stops as soon as all subdirectories are resolved. Children
+   * which are never seen, e.g. because the history ends first, stay unresolved.
+   */
+  private void walkHistory(RepositoryService repositoryService, String revision, String path, Set<String> unresolved, Map<String, LastChange> changes) throws IOException {
+    int start = 0;
+    while (!unresolved.isEmpty()) {
+      LogCommandBuilder logCommand = repositoryService.getLogCommand()
+        .setStartChangeset(revision)
+        .setPagingStart(start)
+        .setPagingLimit(LOG_PAGE_SIZE);
+      if (!path.isEmpty()) {
+        logCommand.setPath(path);
+      }
+      ChangesetPagingResult page = logCommand.getChangesets();
+      if (page == null || page.getChangesets() == null) {
+        return;
+      }
+
+      List<Changeset> changesets = page.getChangesets();
+      for (Changeset changeset : changesets) {
+        for (String name : touchedChildren(repositoryService, changeset.getId(), path)) {
+          if (unresolved.remove(name)) {
+            changes.put(name, LastChange.of(changeset));
+          }
+        }
+        if (unresolved.isEmpty()) {
+          return;
+        }
+      }
+      if (changesets.size() < LOG_PAGE_SIZE) {
+        return;
+      }
+      start += changesets.size();
+    }
+  }
+
+  /**
+   * Returns the names of the direct children of the given path, which contain a path modified by the changeset.
+   */
+  private Set<String> touchedChildren(RepositoryService repositoryService, String changesetId, String path) throws IOException {
+    Modifications modifications = repositoryService.getModificationsCommand().revision(changesetId).getModifications();
+    Set<String> children = new HashSet<>();
+    if (modifications == null) {
+      return children;
+    }
+
+    String prefix = path.isEmpty() ? "" : path + "/";
+    List<String> modifiedPaths = new ArrayList<>();
+    modifications.getAdded().forEach(added -> modifiedPaths.add(added.getPath()));
+    modifications.getModified().forEach(modified -> modifiedPaths.add(modified.getPath()));
+    modifications.getRemoved().forEach(removed -> modifiedPaths.add(removed.getPath()));
+    modifications.getRenamed().forEach(renamed -> {
+      modifiedPaths.add(renamed.getOldPath());
+      modifiedPaths.add(renamed.getNewPath());
+    });
+    modifications.getCopied().forEach(copied -> modifiedPaths.add(copied.getTargetPath()));
+
+    for (String modifiedPath : modifiedPaths) {
+      String normalized = FolderTreeService.normalizePath(modifiedPath);
+      if (normalized.startsWith(prefix) && normalized.length() > prefix.length()) {
+        String relative = normalized.substring(prefix.length());
+        int slash = relative.indexOf('/');
+        // directories without a trailing file are reported by some repository types, e.g. subversion
+        children.add(slash > 0 ? relative.substring(0, slash) : relative);
+      }
+    }
+    return children;
+  }
+
+  private Listing listDirectories(RepositoryService repositoryService, @CheckForNull String revision, String path) throws IOException {
+    List<String> names = new ArrayList<>();
+    String resolvedRevision = revision;
+    int offset = 0;
+    while (true) {
+      BrowseCommandBuilder browseCommand = repositoryService.getBrowseCommand()
+        .setDisableLastCommit(true)
+        .setDisablePreProcessors(true)
+        .setDisableSubRepositoryDetection(true)
+        .setPath(path)
+        .setOffset(offset)
+        .setLimit(BROWSE_PAGE_SIZE);
+      if (!Strings.isNullOrEmpty(resolvedRevision)) {
+        browseCommand.setRevision(resolvedRevision);
+      }
+
+      BrowserResult browserResult = browseCommand.getBrowserResult();
+      FileObject directory = browserResult.getFile();
+      assertIsDirectory(repositoryService.getRepository(), revision, path, directory);
+      // further pages are read from the resolved revision, so that a push in between does not mix revisions
+      resolvedRevision = browserResult.getRevision();
+      for (FileObject child : directory.getChildren()) {
+        if (child.isDirectory()) {
+          names.add(child.getName());
+        }
+      }
+      offset += directory.getChildren().size();
+      if (!directory.isTruncated() || directory.getChildren().isEmpty()) {
+        return new Listing(resolvedRevision, names);
+      }
+    }
+  }
+
+  private void assertIsDirectory(Repository repository, @CheckForNull String revision, String path, @CheckForNull FileObject directory) {
+    if (directory == null) {
+      throw notFound(entity("Path", path).in(repository));
+    }
+    if (directory.isDirectory()) {
+      return;
+    }
+    ContextEntry.ContextBuilder context = new ContextEntry.ContextBuilder().in(repository);
+    if (!Strings.isNullOrEmpty(revision)) {
+      context.in("revision", revision);
+    }
+    context.in("path", path);
+    throw new PathIsNotADirectoryException(context.build(), "The provided path does not belong to a directory, but a file");
+  }
+
+  @Value
+  private static class Listing {
+    String revision;
+    List<String> names;
+  }
+
+  @Value
+  private static class ResultKey {
+    String repositoryId;
+    String revision;
+    String path;
+  }
+
+  @Value
+  private static class LastChange {
+    String id;
+    Instant date;
+    String author;
+    String description;
+
+    static LastChange of(Changeset changeset) {
+      return new LastChange(
+        changeset.getId(),
+        changeset.getDate() != null ? Instant.ofEpochMilli(changeset.getDate()) : null,
+        changeset.getAuthor() != null ? changeset.getAuthor().getName() : null,
+        changeset.getDescription()
+      );
+    }
+  }
+}
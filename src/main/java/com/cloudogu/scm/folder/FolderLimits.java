@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import sonia.scm.ContextEntry;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.RepositoryService;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Checks folder operations against the limits of the {@link FolderConfig}. All checks run before a modify command is
+ * built. Subtrees are counted with a {@link FolderWalker}, which stops as soon as a limit is exceeded, so that the
+ * check itself never has to hold more than one page of a listing.
+ */
+@Singleton
+public class FolderLimits {
+
+  static final String MAX_ENTRIES = "maxEntries";
+  static final String MAX_DEPTH = "maxDepth";
+  static final String MAX_BYTES_PER_COMMIT = "maxBytesPerCommit";
+  static final String MAX_PATHS_PER_BATCH = "maxPathsPerBatch";
+
+  private final FolderConfigStore configStore;
+
+  @Inject
+  public FolderLimits(FolderConfigStore configStore) {
+    this.configStore = configStore;
+  }
+
+  void checkCreate(Repository repository, @CheckForNull String branch, String path) {
+    checkDepth(configStore.get(), repository, branch, path);
+  }
+
+  void checkDelete(RepositoryService repositoryService, @CheckForNull String branch, String path) throws IOException {
+    FolderConfig config = configStore.get();
+    Repository repository = repositoryService.getRepository();
+    checkDepth(config, repository, branch, path);
+    if (config.getMaxEntries() <= 0 && config.getMaxDepth() <= 0) {
+      return;
+    }
+
+    EntryCounter counter = new EntryCounter(config, 0, false);
+    new FolderWalker(repositoryService, branch).walk(path, counter);
+    if (counter.exceededLimit != null) {
+      throw exceeded(repository, branch, counter.exceededPath, counter.exceededLimit, counter.exceededMaximum);
+    }
+  }
+
+  /**
+   * Checks a folder of the source repository, which should be copied to the target path. Depths are checked for the
+   * paths in the target repository, and the size of all files is checked against the bytes per commit.
+   */
+  void checkTransplant(RepositoryService sourceService, String revision, String sourcePath, Repository target, @CheckForNull String branch, String targetPath) throws IOException {
+    FolderConfig config = configStore.get();
+    checkDepth(config, target, branch, targetPath);
+    if (config.getMaxEntries() <= 0 && config.getMaxDepth() <= 0 && config.getMaxBytesPerCommit() <= 0) {
+      return;
+    }
+
+    EntryCounter counter = new EntryCounter(config, depth(targetPath) - depth(sourcePath), true);
+    new FolderWalker(sourceService, revision).walk(sourcePath, counter);
+    if (counter.exceededLimit != null) {
+      String exceededPath = FolderPathIndex.relocate(counter.exceededPath, sourcePath, targetPath);
+      throw exceeded(target, branch, exceededPath, counter.exceededLimit, counter.exceededMaximum);
+    }
+  }
+
+  /**
+   * Checks the manifest of an upload before any of its files is sent. Every file and every empty folder of the upload
+   * counts as path of the batch.
+   */
+  void checkManifest(Repository repository, @CheckForNull String basePath, Collection<String> folders, long fileCount, long totalBytes) {
+    FolderConfig config = configStore.get();
+    if (isExceeded(config.getMaxPathsPerBatch(), fileCount + folders.size())) {
+      throw exceeded(repository, null, basePath, MAX_PATHS_PER_BATCH, config.getMaxPathsPerBatch());
+    }
+    if (isExceeded(config.getMaxBytesPerCommit(), totalBytes)) {
+      throw exceeded(repository, null, basePath, MAX_BYTES_PER_COMMIT, config.getMaxBytesPerCommit());
+    }
+    String normalizedBasePath = FolderTreeService.normalizePath(basePath);
+    for (String folder : folders) {
+      String normalizedFolder = FolderTreeService.normalizePath(folder);
+      checkDepth(config, repository, null, normalizedBasePath.isEmpty() ? normalizedFolder : normalizedBasePath + "/" + normalizedFolder);
+    }
+  }
+
+  private void checkDepth(FolderConfig config, Repository repository, @CheckForNull String branch, String path) {
+    if (isExceeded(config.getMaxDepth(), depth(path))) {
+      throw exceeded(repository, branch, path, MAX_DEPTH, config.getMaxDepth());
+    }
+  }
+
+  static int depth(@CheckForNull String path) {
+    String normalizedPath = FolderTreeService.normalizePath(path);
+    if (normalizedPath.isEmpty()) {
+      return 0;
+    }
+    int depth = 1;
+    for (int i = 0; i < normalizedPath.length(); i++) {
+      if (normalizedPath.charAt(i) == '/') {
+        depth++;
+      }
+    }
+    return depth;
+  }
+
+  private static boolean isExceeded(long limit, long value) {
+    return limit > 0 && value > limit;
+  }
+
+  private static FolderLimitExceededException exceeded(Repository repository, @CheckForNull String branch, @CheckForNull String path, String limit, long maximum) {
+    ContextEntry.ContextBuilder context = FolderLookup.createErrorContext(branch, FolderTreeService.normalizePath(path), repository);
+    return new FolderLimitExceededException(context.build(), limit, maximum);
+  }
+
+  private static class EntryCounter implements FolderWalker.Visitor {
+
+    private final FolderConfig config;
+    private final int depthOffset;
+    private final boolean countBytes;
+    private long entries;
+    private long bytes;
+    private String exceededLimit;
+    private long exceededMaximum;
+    private String exceededPath;
+
+    private EntryCounter(FolderConfig config, int depthOffset, boolean countBytes) {
+      this.config = config;
+      this.depthOffset = depthOffset;
+      this.countBytes = countBytes;
+    }
+
+    @Override
+    public boolean visitDirectory(FileObject directory) {
+      if (isExceeded(config.getMaxDepth(), depth(directory.getPath()) + (long) depthOffset)) {
+        return stop(MAX_DEPTH, config.getMaxDepth(), directory);
+      }
+      return count(directory);
+    }
+
+    @Override
+    public boolean visitFile(FileObject file) {
+      if (countBytes) {
+        bytes += file.getLength().orElse(0);
+        if (isExceeded(config.getMaxBytesPerCommit(), bytes)) {
+          return stop(MAX_BYTES_PER_COMMIT, config.getMaxBytesPerCommit(), file);
+        }
+      }
+      return count(file);
+    }
+
+    private boolean count(FileObject fileObject) {
+      entries++;
+      if (isExceeded(config.getMaxEntries(), entries)) {
+        return stop(MAX_ENTRIES, config.getMaxEntries(), fileObject);
+      }
+      return true;
+    }
+
+    private boolean stop(String limit, long maximum, FileObject fileObject) {
+      this.exceededLimit = limit;
+      this.exceededMaximum = maximum;
+      this.exceededPath = fileObject.getPath();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.google.common.base.Strings;
+import sonia.scm.ContextEntry;
+import sonia.scm.NotFoundException;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.Command;
+import sonia.scm.repository.api.RepositoryService;
+
+import javax.annotation.CheckForNull;
+import java.io.IOException;
+
+final class FolderLookup {
+
+  private FolderLookup() {
+  }
+
+  static FileObject findFile(RepositoryService repositoryService, @CheckForNull String branch, String path) throws IOException {
+    BrowseCommandBuilder browseCommandBuilder = repositoryService.getBrowseCommand()
+      .setDisableCache(true)
+      .setDisableLastCommit(true)
+      .setDisablePreProcessors(true)
+      .setDisableSubRepositoryDetection(true)
+      .setPath(path);
+
+    if (!Strings.isNullOrEmpty(branch)) {
+      browseCommandBuilder.setRevision(branch);
+    }
+
+    BrowserResult browserResult = browseCommandBuilder.getBrowserResult();
+
+    return browserResult.getFile();
+  }
+
+  /**
+   * Returns the name of the branch a commit was made on: the requested branch, if there is one, otherwise the branch
+   * of the changeset or the default branch of the repository. Repositories without branches result in an empty name.
+   */
+  static String resolveBranch(RepositoryService repositoryService, @CheckForNull String branch, @CheckForNull Changeset changeset) throws IOException {
+    if (!Strings.isNullOrEmpty(branch)) {
+      return branch;
+    }
+    if (changeset != null && changeset.getBranches() != null && !changeset.getBranches().isEmpty()) {
+      return changeset.getBranches().get(0);
+    }
+    return resolveBranch(repositoryService, null);
+  }
+
+  /**
+   * Returns the given branch, or the name of the default branch of the repository if no branch is given.
+   * Repositories without branches result in an empty name.
+   */
+  static String resolveBranch(RepositoryService repositoryService, @CheckForNull String branch) throws IOException {
+    if (!Strings.isNullOrEmpty(branch)) {
+      return branch;
+    }
+    if (!repositoryService.isSupported(Command.BRANCHES)) {
+      return "";
+    }
+    return repositoryService.getBranchesCommand().getBranches().getBranches().stream()
+      .filter(Branch::isDefaultBranch)
+      .map(Branch::getName)
+      .findFirst()
+      .orElse("");
+  }
+
+  @CheckForNull
+  static FileObject findChildByName(FileObject fileObject, String childName) {
+    for (FileObject fo : fileObject.getChildren()) {
+      if (fo.getName().equals(childName)) {
+        return fo;
+      }
+    }
+    return null;
+  }
+
+  static void assertIsValidDirectory(Repository repository, @CheckForNull String branch, String path, @CheckForNull FileObject fileToDelete) {
+    if (fileToDelete == null) {
+      throw NotFoundException.notFound(createErrorContext(branch, path, repository));
+    }
+
+    if (!fileToDelete.isDirectory()) {
+      ContextEntry.ContextBuilder contextBuilder = createErrorContext(branch, path, repository);
+      throw new PathIsNotADirectoryException(contextBuilder.build(), "The provided path does not belong to a directory, but a file");
+    }
+  }
+
+  static ContextEntry.ContextBuilder createErrorContext(@CheckForNull String branch, String path, Repository repository) {
+    ContextEntry.ContextBuilder contextBuilder = new ContextEntry.ContextBuilder();
+    contextBuilder.in(repository);
+    if (!Strings.isNullOrEmpty(branch)) {
+      contextBuilder.in(Branch.class, branch);
+    }
+    contextBuilder.in("path", path);
+    return contextBuilder;
+  }
+
+  static String getParentPath(String[] pathParts) {
+    StringBuilder parentPath = new StringBuilder();
+    for (int i = 0; i <= pathParts.length - 2; i++) {
+      if (i != 0) {
+        parentPath.append("/");
+      }
+      parentPath.append(pathParts[i]);
+    }
+    return parentPath.toString();
+  }
+
+  static boolean isNotRoot(FileObject fileObject) {
+    return !fileObject.getPath().equals("") && !fileObject.getPath().equals("/");
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Compact, immutable index over all directory paths of a single revision. Every directory is stored as the id of its
+ * (interned) name and the position of its parent, so that segments like {@code src} or {@code main} are held only once,
+ * no matter how often they occur. Directories are ordered by their full path, which allows prefix queries by binary
+ * search.
+ */
+final class FolderPathIndex {
+
+  private static final int NO_PARENT = -1;
+
+  private final String[] names;
+  private final int[] nameIds;
+  private final int[] parents;
+
+  private FolderPathIndex(String[] names, int[] nameIds, int[] parents) {
+    this.names = names;
+    this.nameIds = nameIds;
+    this.parents = parents;
+  }
+
+  static FolderPathIndex of(Collection<String> directories) {
+    TreeSet<String> sortedPaths = new TreeSet<>();
+    for (String directory : directories) {
+      String path = FolderTreeService.normalizePath(directory);
+      while (!path.isEmpty() && sortedPaths.add(path)) {
+        path = parentOf(path);
+      }
+    }
+
+    Map<String, Integer> internedNames = new HashMap<>();
+    Map<String, Integer> positions = new HashMap<>();
+    List<String> names = new ArrayList<>();
+    int[] nameIds = new int[sortedPaths.size()];
+    int[] parents = new int[sortedPaths.size()];
+
+    int position = 0;
+    for (String path : sortedPaths) {
+      String name = nameOf(path);
+      nameIds[position] = internedNames.computeIfAbsent(name, n -> {
+        names.add(n);
+        return names.size() - 1;
+      });
+      String parent = parentOf(path);
+      parents[position] = parent.isEmpty() ? NO_PARENT : positions.get(parent);
+      positions.put(path, position);
+      ++position;
+    }
+    return new FolderPathIndex(names.toArray(new String[0]), nameIds, parents);
+  }
+
+  /**
+   * Creates a new index with the given directories added and removed. Removing a directory removes all of its
+   * descendants, too.
+   */
+  FolderPathIndex with(Collection<String> addedDirectories, Collection<String> removedDirectories) {
+    List<String> removedPrefixes = new ArrayList<>(removedDirectories.size());
+    for (String removed : removedDirectories) {
+      removedPrefixes.add(FolderTreeService.normalizePath(removed) + "/");
+    }
+    List<String> paths = new ArrayList<>(size() + addedDirectories.size());
+    for (int i = 0; i < size(); ++i) {
+      String path = path(i);
+      if (!isRemoved(path + "/", removedPrefixes)) {
+        paths.add(path);
+      }
+    }
+    paths.addAll(addedDirectories);
+    return of(paths);
+  }
+
+  int size() {
+    return nameIds.length;
+  }
+
+  String path(int position) {
+    if (parents[position] == NO_PARENT) {
+      return names[nameIds[position]];
+    }
+    return path(parents[position]) + "/" + names[nameIds[position]];
+  }
+
+  boolean contains(String directory) {
+    String path = FolderTreeService.normalizePath(directory);
+    int position = lowerBound(path);
+    return position < size() && path(position).equals(path);
+  }
+
+  /**
+   * Finds directories whose path starts with the given prefix, in path order.
+   */
+  List<String> findByPathPrefix(String prefix, int limit) {
+    String normalizedPrefix = prefix;
+    while (normalizedPrefix.startsWith("/")) {
+      normalizedPrefix = normalizedPrefix.substring(1);
+    }
+    List<String> result = new ArrayList<>();
+    for (int i = lowerBound(normalizedPrefix); i < size() && result.size() < limit; ++i) {
+      String path = path(i);
+      if (!path.startsWith(normalizedPrefix)) {
+        break;
+      }
+      result.add(path);
+    }
+    return result;
+  }
+
+  /**
+   * Finds directories whose name contains the given query, ignoring case. Directories whose name starts with the
+   * query are returned first.
+   */
+  List<String> findByName(String query, int limit) {
+    String lowerCaseQuery = query.toLowerCase(Locale.ENGLISH);
+    byte[] nameMatches = new byte[names.length];
+    for (int i = 0; i < names.length; ++i) {
+      String name = names[i].toLowerCase(Locale.ENGLISH);
+      if (name.startsWith(lowerCaseQuery)) {
+        nameMatches[i] = 2;
+      } else if (name.contains(lowerCaseQuery)) {
+        nameMatches[i] = 1;
+      }
+    }
+
+    List<String> result = new ArrayList<>();
+    collectByNameMatch(nameMatches, (byte) 2, result, limit);
+    collectByNameMatch(nameMatches, (byte) 1, result, limit);
+    return result;
+  }
+
+  private void collectByNameMatch(byte[] nameMatches, byte match, List<String> result, int limit) {
+    for (int i = 0; i < size() && result.size() < limit; ++i) {
+      if (nameMatches[nameIds[i]] == match) {
+        result.add(path(i));
+      }
+    }
+  }
+
+  private int lowerBound(String path) {
+    int low = 0;
+    int high = size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (path(middle).compareTo(path) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static boolean isRemoved(String pathWithSlash, List<String> removedPrefixes) {
+    for (String removedPrefix : removedPrefixes) {
+      if (pathWithSlash.startsWith(removedPrefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Moves a path below {@code from} to the same relative location below {@code to}.
+   */
+  static String relocate(String path, String from, String to) {
+    String normalized = FolderTreeService.normalizePath(path);
+    String relative = from.isEmpty() ? normalized : normalized.substring(Math.min(from.length() + 1, normalized.length()));
+    if (relative.isEmpty()) {
+      return to;
+    }
+    return to.isEmpty() ? relative : to + "/" + relative;
+  }
+
+  static String parentOf(String path) {
+    int lastSlash = path.lastIndexOf('/');
+    return lastSlash < 0 ? "" : path.substring(0, lastSlash);
+  }
+
+  private static String nameOf(String path) {
+    return path.substring(path.lastIndexOf('/') + 1);
+  }
+
+  List<String> paths() {
+    List<String> paths = new ArrayList<>(size());
+    for (int i = 0; i < size(); ++i) {
+      paths.add(path(i));
+    }
+    return paths;
+  }
+}
@@ -24,38 +24,71 @@
 
 package com.cloudogu.scm.folder;
 
+import de.otto.edison.hal.Embedded;
+import sonia.scm.api.v2.resources.BrowserResultToFileObjectDtoMapper;
 import sonia.scm.api.v2.resources.ChangesetDto;
 import sonia.scm.api.v2.resources.ChangesetToChangesetDtoMapper;
+import sonia.scm.repository.BrowserResult;
 import sonia.scm.repository.Changeset;
 import sonia.scm.repository.NamespaceAndName;
 import sonia.scm.repository.RepositoryManager;
+import sonia.scm.security.SessionId;
 
 import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 import static jakarta.ws.rs.core.Response.Status.CREATED;
 
 @Path("v2/folder")
 public class FolderResource {
 
+  static final String NDJSON = "application/x-ndjson";
+
   private final FolderService folderService;
   private final ChangesetToChangesetDtoMapper changesetMapper;
   private final RepositoryManager repositoryManager;
+  private final FolderTreeService folderTreeService;
+  private final FolderSearchService folderSearchService;
+  private final BrowserResultToFileObjectDtoMapper fileObjectMapper;
+  private final FolderArchiveService folderArchiveService;
+  private final IdempotencyStore idempotencyStore;
+  private final FolderLastModifiedService folderLastModifiedService;
+  private final FolderDiffService folderDiffService;
+  private final FolderEventBroadcaster folderEventBroadcaster;
 
   @Inject
-  FolderResource(FolderService folderService, ChangesetToChangesetDtoMapper changesetMapper, RepositoryManager repositoryManager) {
+  FolderResource(FolderService folderService, ChangesetToChangesetDtoMapper changesetMapper, RepositoryManager repositoryManager, FolderTreeService folderTreeService, FolderSearchService folderSearchService, BrowserResultToFileObjectDtoMapper fileObjectMapper, FolderArchiveService folderArchiveService, IdempotencyStore idempotencyStore, FolderLastModifiedService folderLastModifiedService, FolderDiffService folderDiffService, FolderEventBroadcaster folderEventBroadcaster) {
     this.folderService = folderService;
     this.changesetMapper = changesetMapper;
     this.repositoryManager = repositoryManager;
+    this.folderTreeService = folderTreeService;
+    this.folderSearchService = folderSearchService;
+    this.fileObjectMapper = fileObjectMapper;
+    this.folderArchiveService = folderArchiveService;
+    this.idempotencyStore = idempotencyStore;
+    this.folderLastModifiedService = folderLastModifiedService;
+    this.folderDiffService = folderDiffService;
+    this.folderEventBroadcaster = folderEventBroadcaster;
   }
 
   @POST
@@ -65,10 +98,15 @@ public class FolderResource {
   public Response createFolder(@PathParam("namespace") String namespace,
                                @PathParam("name") String name,
                                @Nullable @PathParam("path") String path,
+                               @QueryParam("listing") boolean embedListing,
+                               @HeaderParam(IdempotencyStore.HEADER) String idempotencyKey,
                                @Valid CommitDto dto) throws IOException {
-    Changeset newCommit = folderService.create(namespace, name, dto.getBranch(), path, dto.getCommitMessage());
-    ChangesetDto newCommitDto = changesetMapper.map(newCommit, repositoryManager.get(new NamespaceAndName(namespace, name)));
-    return Response.status(CREATED).entity(newCommitDto).build();
+    NamespaceAndName namespaceAndName = new NamespaceAndName(namespace, name);
+    Changeset newCommit = idempotencyStore.execute(
+      idempotencyKey, "create", namespaceAndName, dto.getBranch(), path,
+      () -> folderService.create(namespace, name, dto.getBranch(), path, dto.getCommitMessage())
+    );
+    return createResponse(namespaceAndName, newCommit, path, embedListing);
   }
 
   @POST
@@ -78,10 +116,194 @@ public class FolderResource {
   public Response deleteFolder(@PathParam("namespace") String namespace,
                                @PathParam("name") String name,
                                @Nullable @PathParam("path") String path,
+                               @QueryParam("listing") boolean embedListing,
+                               @HeaderParam(IdempotencyStore.HEADER) String idempotencyKey,
                                @Valid CommitDto dto) throws IOException {
-    final Changeset newCommit = folderService.delete(namespace, name, dto.getBranch(), path, dto.getCommitMessage());
-    ChangesetDto newCommitDto = changesetMapper.map(newCommit, repositoryManager.get(new NamespaceAndName(namespace, name)));
-    return Response.status(CREATED).entity(newCommitDto).build();
+    NamespaceAndName namespaceAndName = new NamespaceAndName(namespace, name);
+    final Changeset newCommit = idempotencyStore.execute(
+      idempotencyKey, "delete", namespaceAndName, dto.getBranch(), path,
+      () -> folderService.delete(namespace, name, dto.getBranch(), path, dto.getCommitMessage())
+    );
+    return createResponse(namespaceAndName, newCommit, path, embedListing);
+  }
+
+  @POST
+  @Path("{namespace}/{name}/transplant/{path: .*}")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response transplantFolder(@PathParam("namespace") String namespace,
+                                   @PathParam("name") String name,
+                                   @Nullable @PathParam("path") String path,
+                                   @QueryParam("listing") boolean embedListing,
+                                   @HeaderParam(IdempotencyStore.HEADER) String idempotencyKey,
+                                   @Valid FolderTransplantDto dto) throws IOException {
+    NamespaceAndName namespaceAndName = new NamespaceAndName(namespace, name);
+    Changeset newCommit = idempotencyStore.execute(
+      idempotencyKey, "transplant", namespaceAndName, dto.getBranch(), path,
+      () -> folderService.transplant(
+        dto.getSourceNamespace(), dto.getSourceName(), dto.getSourceRevision(), dto.getSourcePath(),
+        namespace, name, dto.getBranch(), path, dto.getCommitMessage()
+      )
+    );
+    return createResponse(namespaceAndName, newCommit, path, embedListing);
+  }
+
+  @POST
+  @Path("{namespace}/{name}/restore/{path: .*}")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response restoreFolder(@PathParam("namespace") String namespace,
+                                @PathParam("name") String name,
+                                @Nullable @PathParam("path") String path,
+                                @QueryParam("listing") boolean embedListing,
+                                @HeaderParam(IdempotencyStore.HEADER) String idempotencyKey,
+                                @Valid FolderRestoreDto dto) throws IOException {
+    NamespaceAndName namespaceAndName = new NamespaceAndName(namespace, name);
+    Changeset newCommit = idempotencyStore.execute(
+      idempotencyKey, "restore", namespaceAndName, dto.getBranch(), path,
+      () -> folderService.restore(namespace, name, dto.getBranch(), path, dto.getRevision(), dto.getCommitMessage())
+    );
+    return createResponse(namespaceAndName, newCommit, path, embedListing);
+  }
+
+  @GET
+  @Path("{namespace}/{name}/tree/{path: .*}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public FolderTreeDto getTree(@PathParam("namespace") String namespace,
+                               @PathParam("name") String name,
+                               @Nullable @PathParam("path") String path,
+                               @QueryParam("revision") String revision,
+                               @QueryParam("depth") @DefaultValue("1") int depth,
+                               @QueryParam("limit") @DefaultValue("100") int limit,
+                               @QueryParam("cursor") String cursor) throws IOException {
+    return folderTreeService.getTree(namespace, name, revision, path, depth, limit, cursor);
+  }
+
+  @GET
+  @Path("{namespace}/{name}/last-modified/{path: .*}")
+  @Produces(MediaType.APPLICATION_JSON)
+  public FolderLastModifiedDto getLastModified(@PathParam("namespace") String namespace,
+                                               @PathParam("name") String name,
+                                               @Nullable @PathParam("path") String path,
+                                               @QueryParam("revision") String revision) throws IOException {
+    return folderLastModifiedService.getLastModified(namespace, name, revision, path);
+  }
+
+  @GET
+  @Path("{namespace}/{name}/diff/{path: .*}")
+  @Produces(FolderResource.NDJSON)
+  public Response getDiff(@PathParam("namespace") String namespace,
+                          @PathParam("name") String name,
+                          @Nullable @PathParam("path") String path,
+                          @QueryParam("from") String from,
+                          @QueryParam("to") String to) throws IOException {
+    FolderDiffService.FolderDiff diff = folderDiffService.prepare(namespace, name, from, to, path);
+    StreamingOutput output = outputStream -> folderDiffService.write(diff, outputStream);
+    return Response.ok(output, NDJSON).build();
   }
 
+  @GET
+  @Path("{namespace}/{name}/events")
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  public void subscribe(@PathParam("namespace") String namespace,
+                        @PathParam("name") String name,
+                        @QueryParam("branch") String branch,
+                        @QueryParam(SessionId.PARAMETER) SessionId sessionId,
+                        @Context SseEventSink sink,
+                        @Context Sse sse) {
+    folderEventBroadcaster.subscribe(namespace, name, branch, sessionId, sink, sse);
+  }
+
+  @GET
+  @Path("{namespace}/{name}/search")
+  @Produces(MediaType.APPLICATION_JSON)
+  public FolderSearchResultDto search(@PathParam("namespace") String namespace,
+                                      @PathParam("name") String name,
+                                      @QueryParam("q") String query,
+                                      @QueryParam("revision") String revision,
+                                      @QueryParam("limit") @DefaultValue("50") int limit) throws IOException {
+    return folderSearchService.search(namespace, name, revision, query, limit);
+  }
+
+  @POST
+  @Path("{namespace}/{name}/manifest/{path: .*}")
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  public FolderManifestResultDto checkManifest(@PathParam("namespace") String namespace,
+                                               @PathParam("name") String name,
+                                               @Nullable @PathParam("path") String path,
+                                               @Valid FolderManifestDto dto) throws IOException {
+    return folderSearchService.findFoldersNeedingMarkers(namespace, name, dto.getRevision(), path, dto.getFolders(), dto.getFileCount(), dto.getTotalBytes());
+  }
+
+  @GET
+  @Path("{namespace}/{name}/archive/{path: .*}")
+  @Produces("application/zip")
+  public Response getArchive(@PathParam("namespace") String namespace,
+                             @PathParam("name") String name,
+                             @Nullable @PathParam("path") String path,
+                             @QueryParam("revision") String revision,
+                             @Context Request request) throws IOException {
+    FolderArchiveService.FolderArchive archive = folderArchiveService.prepare(namespace, name, revision, path);
+    EntityTag entityTag = new EntityTag(archive.getEntityTag());
+
+    Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+    if (notModified != null) {
+      return notModified.build();
+    }
+
+    StreamingOutput output = outputStream -> folderArchiveService.write(archive, outputStream);
+    return Response.ok(output, "application/zip")
+      .tag(entityTag)
+      .header("Content-Disposition", contentDisposition(archive.getFileName()))
+      .header("Accept-Ranges", "none")
+      .build();
+  }
+
+  /**
+   * Builds an attachment header, which is valid for every folder name: a quoted ASCII fallback for old clients and
+   * the exact name encoded as UTF-8 according to RFC 5987.
+   */
+  static String contentDisposition(String fileName) {
+    StringBuilder fallback = new StringBuilder();
+    StringBuilder encoded = new StringBuilder();
+    for (int i = 0; i < fileName.length(); i++) {
+      char c = fileName.charAt(i);
+      if (c == '"' || c == '\\') {
+        fallback.append('\\').append(c);
+      } else if (c >= 0x20 && c < 0x7f) {
+        fallback.append(c);
+      } else {
+        fallback.append('_');
+      }
+    }
+    for (byte b : fileName.getBytes(StandardCharsets.UTF_8)) {
+      char c = (char) (b & 0xff);
+      if (isAttrChar(c)) {
+        encoded.append(c);
+      } else {
+        encoded.append('%').append(String.format("%02X", b & 0xff));
+      }
+    }
+    return "attachment; filename=\"" + fallback + "\"; filename*=UTF-8''" + encoded;
+  }
+
+  private static boolean isAttrChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || "!#$&+-.^_`|~".indexOf(c) >= 0;
+  }
+
+  private Response createResponse(NamespaceAndName namespaceAndName, Changeset newCommit, String path, boolean embedListing) throws IOException {
+    ChangesetDto newCommitDto = changesetMapper.map(newCommit, repositoryManager.get(namespaceAndName));
+    if (!embedListing) {
+      return Response.status(CREATED).entity(newCommitDto).build();
+    }
+
+    String parentPath = FolderPathIndex.parentOf(FolderTreeService.normalizePath(path));
+    BrowserResult parentListing = folderService.getListing(namespaceAndName.getNamespace(), namespaceAndName.getName(), newCommit.getId(), parentPath);
+    Embedded embedded = Embedded.embeddedBuilder()
+      .with("changeset", newCommitDto)
+      .with("parent", fileObjectMapper.map(parentListing, namespaceAndName, 0))
+      .build();
+    return Response.status(CREATED).entity(new FolderChangeDto(newCommit.getId(), embedded)).build();
+  }
 }
@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import sonia.scm.NotFoundException;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Modifications;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.util.ValidationUtil;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import static sonia.scm.ScmConstraintViolationException.Builder.doThrow;
+
+/**
+ * Answers folder name queries from a {@link FolderPathIndex} per repository and revision. Indices are built lazily on
+ * the first query for a revision. If the index of the parent revision is still known, the new index is derived from
+ * it by applying the modifications of the changeset instead of walking the whole tree again. New indices are built
+ * with the {@link FolderWalker}, so only one page of a directory is held in memory at a time and the browse cache of
+ * the core is not filled with the whole tree. The total number of indexed directories over all cached indices is
+ * bounded.
+ */
+@Singleton
+public class FolderSearchService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FolderSearchService.class);
+
+  static final int MAX_LIMIT = 500;
+  static final long MAX_INDEXED_DIRECTORIES = 2_000_000;
+  static final int MAX_INCREMENTAL_PATHS = 1_000;
+
+  private final RepositoryServiceFactory repositoryServiceFactory;
+  private final FolderLimits folderLimits;
+  private final Cache<IndexKey, FolderPathIndex> indices;
+
+  @Inject
+  public FolderSearchService(RepositoryServiceFactory repositoryServiceFactory, FolderLimits folderLimits) {
+    this(repositoryServiceFactory, folderLimits, MAX_INDEXED_DIRECTORIES);
+  }
+
+  @VisibleForTesting
+  FolderSearchService(RepositoryServiceFactory repositoryServiceFactory, FolderLimits folderLimits, long maxIndexedDirectories) {
+    this.repositoryServiceFactory = repositoryServiceFactory;
+    this.folderLimits = folderLimits;
+    this.indices = CacheBuilder.newBuilder()
+      .maximumWeight(maxIndexedDirectories)
+      .<IndexKey, FolderPathIndex>weigher((key, index) -> index.size() + 1)
+      .build();
+  }
+
+  FolderSearchResultDto search(String namespace, String repositoryName, @CheckForNull String revision, String query, int limit) throws IOException {
+    doThrow()
+      .violation("query must not be empty", "q")
+      .when(Strings.isNullOrEmpty(query) || query.trim().isEmpty());
+    doThrow()
+      .violation("limit must be between 1 and " + MAX_LIMIT, "limit")
+      .when(limit < 1 || limit > MAX_LIMIT);
+
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(namespace, repositoryName))) {
+      Repository repository = repositoryService.getRepository();
+      RepositoryPermissions.pull(repository).check();
+
+      String resolvedRevision = resolveRevision(repositoryService, revision);
+      FolderPathIndex index = getIndex(repositoryService, resolvedRevision);
+
+      String trimmedQuery = query.trim();
+      List<String> paths = trimmedQuery.contains("/")
+        ? index.findByPathPrefix(trimmedQuery, limit)
+        : index.findByName(trimmedQuery, limit);
+      return new FolderSearchResultDto(resolvedRevision, trimmedQuery, paths);
+    }
+  }
+
+  /**
+   * Decides which of the given empty folders of an upload need a marker file, because they do not exist as directory
+   * in the repository already. The paths are relative to the given base path. Only the given folders are looked up,
+   * so the check does not depend on the size of the repository.
+   */
+  FolderManifestResultDto findFoldersNeedingMarkers(String namespace, String repositoryName, @CheckForNull String revision, @CheckForNull String basePath, Collection<String> folders, long fileCount, long totalBytes) throws IOException {
+    String normalizedBasePath = FolderTreeService.normalizePath(basePath);
+    for (String folder : folders) {
+      doThrow()
+        .violation("invalid path: ", folder)
+        .when(Strings.isNullOrEmpty(folder) || !ValidationUtil.isPathValid(FolderTreeService.normalizePath(folder)));
+    }
+
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(namespace, repositoryName))) {
+      RepositoryPermissions.pull(repositoryService.getRepository()).check();
+      folderLimits.checkManifest(repositoryService.getRepository(), basePath, folders, fileCount, totalBytes);
+
+      String resolvedRevision = resolveRevision(repositoryService, revision);
+
+      Set<String> markers = new LinkedHashSet<>();
+      for (String folder : folders) {
+        String normalizedFolder = FolderTreeService.normalizePath(folder);
+        String path = normalizedBasePath.isEmpty() ? normalizedFolder : normalizedBasePath + "/" + normalizedFolder;
+        if (!markers.contains(normalizedFolder) && !exists(repositoryService, resolvedRevision, path)) {
+          markers.add(normalizedFolder);
+        }
+      }
+      return new FolderManifestResultDto(resolvedRevision, new ArrayList<>(markers));
+    }
+  }
+
+  private FolderPathIndex getIndex(RepositoryService repositoryService, String revision) throws IOException {
+    IndexKey key = new IndexKey(repositoryService.getRepository().getId(), revision);
+    try {
+      return indices.get(key, () -> createIndex(repositoryService, revision));
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException("failed to create folder index", e.getCause());
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private FolderPathIndex createIndex(RepositoryService repositoryService, String revision) throws IOException {
+    String repositoryId = repositoryService.getRepository().getId();
+    Changeset changeset = repositoryService.getLogCommand().getChangeset(revision);
+    if (changeset != null && changeset.getParents() != null && changeset.getParents().size() == 1) {
+      FolderPathIndex parentIndex = indices.getIfPresent(new IndexKey(repositoryId, changeset.getParents().get(0)));
+      if (parentIndex != null) {
+        FolderPathIndex derivedIndex = deriveIndex(repositoryService, revision, parentIndex);
+        if (derivedIndex != null) {
+          LOG.trace("derived folder index for revision {} of repository {} from its parent", revision, repositoryId);
+          return derivedIndex;
+        }
+      }
+    }
+    LOG.debug("create folder index for revision {} of repository {}", revision, repositoryId);
+    return FolderPathIndex.of(collectDirectories(repositoryService, revision));
+  }
+
+  @CheckForNull
+  private FolderPathIndex deriveIndex(RepositoryService repositoryService, String revision, FolderPathIndex parentIndex) throws IOException {
+    Modifications modifications = repositoryService.getModificationsCommand().revision(revision).getModifications();
+    if (modifications == null) {
+      return null;
+    }
+
+    Set<String> addedFiles = new HashSet<>();
+    Set<String> removedFiles = new HashSet<>();
+    modifications.getAdded().forEach(added -> addedFiles.add(added.getPath()));
+    modifications.getRemoved().forEach(removed -> removedFiles.add(removed.getPath()));
+    modifications.getRenamed().forEach(renamed -> {
+      removedFiles.add(renamed.getOldPath());
+      addedFiles.add(renamed.getNewPath());
+    });
+    modifications.getCopied().forEach(copied -> addedFiles.add(copied.getTargetPath()));
+
+    if (addedFiles.size() + removedFiles.size() > MAX_INCREMENTAL_PATHS) {
+      return null;
+    }
+
+    boolean directoriesReported = SvnFolderStrategy.TYPE.equals(repositoryService.getRepository().getType());
+    Set<String> addedDirectories = new HashSet<>();
+    for (String added : addedFiles) {
+      String path = FolderTreeService.normalizePath(added);
+      String parent = FolderPathIndex.parentOf(path);
+      if (!parent.isEmpty() && !parentIndex.contains(parent)) {
+        addedDirectories.add(parent);
+      }
+      if (directoriesReported && !parentIndex.contains(path) && exists(repositoryService, revision, path)) {
+        // subversion reports the addition of a directory, which is the only modification for an empty directory
+        addedDirectories.add(path);
+      }
+    }
+
+    Set<String> removedDirectories = new HashSet<>();
+    for (String removed : removedFiles) {
+      String path = FolderTreeService.normalizePath(removed);
+      if (parentIndex.contains(path) && !exists(repositoryService, revision, path)) {
+        // some repository types report the removal of a directory instead of the files in it
+        removedDirectories.add(path);
+      }
+      for (String parent = FolderPathIndex.parentOf(path); !parent.isEmpty(); parent = FolderPathIndex.parentOf(parent)) {
+        if (addedDirectories.contains(parent) || removedDirectories.contains(parent) || exists(repositoryService, revision, parent)) {
+          break;
+        }
+        removedDirectories.add(parent);
+      }
+    }
+    return parentIndex.with(addedDirectories, removedDirectories);
+  }
+
+  private boolean exists(RepositoryService repositoryService, String revision, String path) throws IOException {
+    try {
+      FileObject file = repositoryService.getBrowseCommand()
+        .setDisableCache(true)
+        .setDisableLastCommit(true)
+        .setDisablePreProcessors(true)
+        .setDisableSubRepositoryDetection(true)
+        .setRevision(revision)
+        .setPath(path)
+        .setLimit(1)
+        .getBrowserResult()
+        .getFile();
+      return file != null && file.isDirectory();
+    } catch (NotFoundException e) {
+      return false;
+    }
+  }
+
+  private Collection<String> collectDirectories(RepositoryService repositoryService, String revision) throws IOException {
+    List<String> directories = new ArrayList<>();
+    new FolderWalker(repositoryService, revision).walk("", new FolderWalker.Visitor() {
+      @Override
+      public boolean visitDirectory(FileObject directory) {
+        directories.add(FolderTreeService.normalizePath(directory.getPath()));
+        return true;
+      }
+
+      @Override
+      public boolean visitFile(FileObject file) {
+        return true;
+      }
+    });
+    return directories;
+  }
+
+  private String resolveRevision(RepositoryService repositoryService, @CheckForNull String revision) throws IOException {
+    BrowseCommandBuilder browseCommand = repositoryService.getBrowseCommand()
+      .setDisableLastCommit(true)
+      .setDisablePreProcessors(true)
+      .setDisableSubRepositoryDetection(true)
+      .setLimit(1);
+    if (!Strings.isNullOrEmpty(revision)) {
+      browseCommand.setRevision(revision);
+    }
+    return browseCommand.getBrowserResult().getRevision();
+  }
+
+  @Value
+  private static class IndexKey {
+    String repositoryId;
+    String revision;
+  }
+}
@@ -25,14 +25,15 @@ package com.cloudogu.scm.folder;
 
 import com.google.common.base.Strings;
 import org.apache.commons.lang.StringUtils;
-import sonia.scm.ContextEntry;
+import sonia.scm.AlreadyExistsException;
 import sonia.scm.NotFoundException;
-import sonia.scm.repository.Branch;
+import sonia.scm.event.ScmEventBus;
 import sonia.scm.repository.BrowserResult;
 import sonia.scm.repository.Changeset;
 import sonia.scm.repository.FileObject;
 import sonia.scm.repository.NamespaceAndName;
 import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
 import sonia.scm.repository.RepositoryPermissions;
 import sonia.scm.repository.api.BrowseCommandBuilder;
 import sonia.scm.repository.api.LogCommandBuilder;
@@ -43,20 +44,34 @@ import sonia.scm.util.ValidationUtil;
 
 import javax.annotation.CheckForNull;
 import jakarta.inject.Inject;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
+import static sonia.scm.ContextEntry.ContextBuilder.entity;
+import static sonia.scm.NotFoundException.notFound;
 import static sonia.scm.ScmConstraintViolationException.Builder.doThrow;
 
 public class FolderService {
-  static final byte[] KEEP_FILE_CONTENT = "This automatically generated file ensures that the version control system\nkeeps the encapsulating folder, but has no further purpose.".getBytes(UTF_8);
-  static final String KEEP_FILE_NAME = ".scmkeep";
   private final RepositoryServiceFactory repositoryServiceFactory;
+  private final RepositoryManager repositoryManager;
+  private final Set<FolderStrategy> strategies;
+  private final FolderLimits folderLimits;
+  private final FolderAdmission folderAdmission;
+  private final BrowseCacheWarmer browseCacheWarmer;
+  private final ScmEventBus eventBus;
+  private final FolderStrategy defaultStrategy = new KeepFileFolderStrategy();
 
   @Inject
-  public FolderService(RepositoryServiceFactory repositoryServiceFactory) {
+  public FolderService(RepositoryServiceFactory repositoryServiceFactory, RepositoryManager repositoryManager, Set<FolderStrategy> strategies, FolderLimits folderLimits, FolderAdmission folderAdmission, BrowseCacheWarmer browseCacheWarmer, ScmEventBus eventBus) {
     this.repositoryServiceFactory = repositoryServiceFactory;
+    this.repositoryManager = repositoryManager;
+    this.strategies = strategies;
+    this.folderLimits = folderLimits;
+    this.folderAdmission = folderAdmission;
+    this.browseCacheWarmer = browseCacheWarmer;
+    this.eventBus = eventBus;
   }
 
   Changeset create(String namespace, String repositoryName, String branch, String path, String commitMessage) throws IOException {
@@ -64,18 +79,18 @@ public class FolderService {
       .violation("invalid path: ", path)
       .when(!ValidationUtil.isPathValid(path) || StringUtils.isEmpty(path));
 
-    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(namespace, repositoryName))) {
-      RepositoryPermissions.push(repositoryService.getRepository()).check();
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(admit(namespace, repositoryName))) {
+      Repository repository = repositoryService.getRepository();
+      folderLimits.checkCreate(repository, branch, path);
 
-      ModifyCommandBuilder modifyCommand = repositoryService.getModifyCommand();
-      if (!Strings.isNullOrEmpty(branch)) {
-        modifyCommand.setBranch(branch);
-      }
-      modifyCommand.setCommitMessage(commitMessage);
-      createKeepFile(modifyCommand, path);
+      ModifyCommandBuilder modifyCommand = createModifyCommand(repositoryService, branch, commitMessage);
+      getStrategy(repository).create(modifyCommand, path);
       String newChangesetId = modifyCommand.execute();
-
-      return getChangeset(repositoryService, branch , newChangesetId);
+      Changeset changeset = getChangeset(repositoryService, branch, newChangesetId);
+      String resolvedBranch = FolderLookup.resolveBranch(repositoryService, branch, changeset);
+      eventBus.post(FolderChangedEvent.created(repository, resolvedBranch, newChangesetId, FolderTreeService.normalizePath(path)));
+      browseCacheWarmer.warmUp(repository, changeset, FolderTreeService.normalizePath(path));
+      return changeset;
     }
   }
 
@@ -84,124 +99,209 @@ public class FolderService {
       .violation("invalid path: ", path)
       .when(!ValidationUtil.isPathValid(path) || StringUtils.isEmpty(path));
 
-    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(namespace, repositoryName))) {
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(admit(namespace, repositoryName))) {
       Repository repository = repositoryService.getRepository();
-      RepositoryPermissions.push(repository).check();
+      folderLimits.checkDelete(repositoryService, branch, path);
 
-      String[] pathParts = path.split("/");
-      String folderName = pathParts[pathParts.length - 1];
-      String parentPath = getParentPath(pathParts);
-
-      FileObject parentFile = findFile(repositoryService, branch, parentPath);
-      FileObject fileToDelete = findChildByName(parentFile, folderName);
-
-      assertIsValidDirectory(repository, branch, path, fileToDelete);
-
-      String newChangesetId = createDeleteCommand(repositoryService, branch, parentPath, parentFile, fileToDelete, commitMessage).execute();
-      return getChangeset(repositoryService, branch, newChangesetId);
+      ModifyCommandBuilder modifyCommand = createModifyCommand(repositoryService, branch, commitMessage);
+      getStrategy(repository).delete(repositoryService, branch, modifyCommand, path);
+      String newChangesetId = modifyCommand.execute();
+      Changeset changeset = getChangeset(repositoryService, branch, newChangesetId);
+      String resolvedBranch = FolderLookup.resolveBranch(repositoryService, branch, changeset);
+      eventBus.post(FolderChangedEvent.deleted(repository, resolvedBranch, newChangesetId, FolderTreeService.normalizePath(path)));
+      browseCacheWarmer.warmUp(repository, changeset, FolderPathIndex.parentOf(FolderTreeService.normalizePath(path)));
+      return changeset;
     }
   }
 
-  private FileObject findFile(RepositoryService repositoryService, String branch, String path) throws IOException {
-    BrowseCommandBuilder browseCommandBuilder = repositoryService.getBrowseCommand()
-      .setDisableCache(true)
-      .setDisableLastCommit(true)
-      .setDisablePreProcessors(true)
-      .setDisableSubRepositoryDetection(true)
-      .setPath(path);
+  /**
+   * Copies a folder of the source repository at the given revision into the target path of a repository with a single
+   * commit. The file contents are passed from the cat command of the source repository to the modify command of the
+   * target one by one, so the memory needed does not depend on the size of the folder. Empty folders are created with
+   * the folder strategy of the target repository. Existing files in the target path are not overwritten.
+   */
+  Changeset transplant(String sourceNamespace, String sourceName, @CheckForNull String sourceRevision, @CheckForNull String sourcePath,
+                       String namespace, String repositoryName, @CheckForNull String branch, String path, String commitMessage) throws IOException {
+    String normalizedSourcePath = FolderTreeService.normalizePath(sourcePath);
+    doThrow()
+      .violation("invalid source path: ", sourcePath)
+      .when(!normalizedSourcePath.isEmpty() && !ValidationUtil.isPathValid(normalizedSourcePath));
+    doThrow()
+      .violation("invalid path: ", path)
+      .when(!ValidationUtil.isPathValid(path) || StringUtils.isEmpty(path));
+    String normalizedPath = FolderTreeService.normalizePath(path);
 
-    if (!Strings.isNullOrEmpty(branch)) {
-      browseCommandBuilder.setRevision(branch);
-    }
+    Repository admittedTarget = admit(namespace, repositoryName);
+    try (RepositoryService sourceService = repositoryServiceFactory.create(new NamespaceAndName(sourceNamespace, sourceName));
+         RepositoryService targetService = repositoryServiceFactory.create(admittedTarget)) {
+      Repository source = sourceService.getRepository();
+      Repository target = targetService.getRepository();
+      RepositoryPermissions.pull(source).check();
 
-    BrowserResult browserResult = browseCommandBuilder.getBrowserResult();
+      String revision = resolveDirectory(sourceService, sourceRevision, normalizedSourcePath);
+      folderLimits.checkTransplant(sourceService, revision, normalizedSourcePath, target, branch, normalizedPath);
 
-    return browserResult.getFile();
+      ModifyCommandBuilder modifyCommand = createModifyCommand(targetService, branch, commitMessage);
+      copy(sourceService, revision, normalizedSourcePath, getStrategy(target), modifyCommand, normalizedPath);
+      String newChangesetId = modifyCommand.execute();
+      Changeset changeset = getChangeset(targetService, branch, newChangesetId);
+      String resolvedBranch = FolderLookup.resolveBranch(targetService, branch, changeset);
+      eventBus.post(FolderChangedEvent.created(target, resolvedBranch, newChangesetId, normalizedPath));
+      browseCacheWarmer.warmUp(target, changeset, normalizedPath);
+      return changeset;
+    }
   }
 
-  private void assertIsValidDirectory(Repository repository, String branch, String path, FileObject fileToDelete) {
-    if (fileToDelete == null) {
-      throw NotFoundException.notFound(createErrorContext(branch, path, repository));
-    }
+  /**
+   * Restores a folder, which existed at the given revision, on the head of the branch with a single commit. The
+   * content is copied within the repository like a {@link #transplant transplant}. If the deletion left a marker
+   * file as only content of the parent folder, this marker is removed with the same commit.
+   */
+  Changeset restore(String namespace, String repositoryName, @CheckForNull String branch, String path, String revision, String commitMessage) throws IOException {
+    doThrow()
+      .violation("invalid path: ", path)
+      .when(!ValidationUtil.isPathValid(path) || StringUtils.isEmpty(path));
+    doThrow()
+      .violation("revision is required", "revision")
+      .when(Strings.isNullOrEmpty(revision));
+    String normalizedPath = FolderTreeService.normalizePath(path);
 
-    if (!fileToDelete.isDirectory()) {
-      ContextEntry.ContextBuilder contextBuilder = createErrorContext(branch, path, repository);
-      throw new PathIsNotADirectoryException(contextBuilder.build(), "The provided path does not belong to a directory, but a file");
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(admit(namespace, repositoryName))) {
+      Repository repository = repositoryService.getRepository();
+      RepositoryPermissions.pull(repository).check();
+
+      String resolvedRevision = resolveDirectory(repositoryService, revision, normalizedPath);
+      if (findFileIfExists(repositoryService, branch, normalizedPath) != null) {
+        throw AlreadyExistsException.alreadyExists(FolderLookup.createErrorContext(branch, normalizedPath, repository));
+      }
+      String parentPath = FolderPathIndex.parentOf(normalizedPath);
+      FileObject parent = parentPath.isEmpty() ? null : findFileIfExists(repositoryService, branch, parentPath);
+      folderLimits.checkTransplant(repositoryService, resolvedRevision, normalizedPath, repository, branch, normalizedPath);
+
+      ModifyCommandBuilder modifyCommand = createModifyCommand(repositoryService, branch, commitMessage);
+      copy(repositoryService, resolvedRevision, normalizedPath, getStrategy(repository), modifyCommand, normalizedPath);
+      if (parent != null && containsOnlyKeepFile(parent)) {
+        modifyCommand.deleteFile(parentPath + "/" + KeepFileFolderStrategy.KEEP_FILE_NAME);
+      }
+      String newChangesetId = modifyCommand.execute();
+      Changeset changeset = getChangeset(repositoryService, branch, newChangesetId);
+      String resolvedBranch = FolderLookup.resolveBranch(repositoryService, branch, changeset);
+      eventBus.post(FolderChangedEvent.created(repository, resolvedBranch, newChangesetId, normalizedPath));
+      browseCacheWarmer.warmUp(repository, changeset, normalizedPath);
+      return changeset;
     }
   }
 
-  private ModifyCommandBuilder createDeleteCommand(RepositoryService repositoryService, String branch, String parentPath, FileObject parentFile, FileObject fileToDelete, String commitMessage) throws IOException {
-    ModifyCommandBuilder modifyCommand = repositoryService.getModifyCommand();
-    if (!Strings.isNullOrEmpty(branch)) {
-      modifyCommand.setBranch(branch);
+  /**
+   * Checks the push permission and waits for the admission of an operation, before a repository service is opened,
+   * so that waiting operations do not hold one.
+   */
+  private Repository admit(String namespace, String repositoryName) {
+    NamespaceAndName namespaceAndName = new NamespaceAndName(namespace, repositoryName);
+    Repository repository = repositoryManager.get(namespaceAndName);
+    if (repository == null) {
+      throw notFound(entity(namespaceAndName));
     }
-    modifyCommand.setCommitMessage(commitMessage);
-
-    modifyCommand.deleteFile(fileToDelete.getPath(), true);
-    createKeepFileIfParentIsEmptyAfterDeletion(parentPath, parentFile, modifyCommand);
-
-    return modifyCommand;
+    RepositoryPermissions.push(repository).check();
+    folderAdmission.acquire(repository.getNamespaceAndName());
+    return repository;
   }
 
-  private void createKeepFileIfParentIsEmptyAfterDeletion(String parentPath, FileObject parentFile, ModifyCommandBuilder modifyCommand) throws IOException {
-    if (parentFile.getChildren().size() == 1 && isNotRoot(parentFile)) {
-      createKeepFile(modifyCommand, parentPath);
+  @CheckForNull
+  private FileObject findFileIfExists(RepositoryService repositoryService, @CheckForNull String branch, String path) throws IOException {
+    try {
+      return FolderLookup.findFile(repositoryService, branch, path);
+    } catch (NotFoundException e) {
+      return null;
     }
   }
 
-  private Changeset getChangeset(RepositoryService repositoryService, @CheckForNull String branch, String changesetId) throws IOException {
-    LogCommandBuilder logCommand = repositoryService.getLogCommand();
-    if (!Strings.isNullOrEmpty(branch)) {
-      logCommand.setBranch(branch);
-    }
-    return logCommand.getChangeset(changesetId);
+  private boolean containsOnlyKeepFile(FileObject directory) {
+    return directory.isDirectory()
+      && directory.getChildren().size() == 1
+      && KeepFileFolderStrategy.KEEP_FILE_NAME.equals(directory.getChildren().iterator().next().getName());
   }
 
-  private FileObject findChildByName(FileObject fileObject, String childName) {
-    for (FileObject fo : fileObject.getChildren()) {
-      if (fo.getName().equals(childName)) {
-        return fo;
-      }
+  private String resolveDirectory(RepositoryService repositoryService, @CheckForNull String revision, String path) throws IOException {
+    BrowseCommandBuilder browseCommand = repositoryService.getBrowseCommand()
+      .setDisableCache(true)
+      .setDisableLastCommit(true)
+      .setDisablePreProcessors(true)
+      .setDisableSubRepositoryDetection(true)
+      .setPath(path)
+      .setLimit(1);
+    if (!Strings.isNullOrEmpty(revision)) {
+      browseCommand.setRevision(revision);
     }
-    return null;
+    BrowserResult browserResult = browseCommand.getBrowserResult();
+    FolderLookup.assertIsValidDirectory(repositoryService.getRepository(), revision, path, browserResult != null ? browserResult.getFile() : null);
+    return browserResult.getRevision();
   }
 
-  private String getParentPath(String[] pathParts) {
-    StringBuilder parentPath = new StringBuilder();
-    for (int i = 0; i <= pathParts.length - 2; i++) {
-      if (i != 0) {
-        parentPath.append("/");
+  private void copy(RepositoryService sourceService, String revision, String sourcePath, FolderStrategy strategy, ModifyCommandBuilder modifyCommand, String targetPath) throws IOException {
+    Set<String> directories = new HashSet<>();
+    Set<String> nonEmptyDirectories = new HashSet<>();
+    directories.add(sourcePath);
+    new FolderWalker(sourceService, revision).walk(sourcePath, new FolderWalker.Visitor() {
+      @Override
+      public boolean visitDirectory(FileObject directory) {
+        String directoryPath = FolderTreeService.normalizePath(directory.getPath());
+        directories.add(directoryPath);
+        nonEmptyDirectories.add(FolderPathIndex.parentOf(directoryPath));
+        return true;
+      }
+
+      @Override
+      public boolean visitFile(FileObject file) throws IOException {
+        String filePath = FolderTreeService.normalizePath(file.getPath());
+        nonEmptyDirectories.add(FolderPathIndex.parentOf(filePath));
+        try (InputStream content = sourceService.getCatCommand().setRevision(revision).getStream(filePath)) {
+          modifyCommand
+            .createFile(FolderPathIndex.relocate(filePath, sourcePath, targetPath))
+            .setOverwrite(false)
+            .withData(content);
+        }
+        return true;
       }
-      parentPath.append(pathParts[i]);
+    });
+
+    directories.removeAll(nonEmptyDirectories);
+    for (String emptyDirectory : directories) {
+      strategy.create(modifyCommand, FolderPathIndex.relocate(emptyDirectory, sourcePath, targetPath));
     }
-    return parentPath.toString();
   }
 
-  private ContextEntry.ContextBuilder createErrorContext(String branch, String path, Repository repository) {
-    ContextEntry.ContextBuilder contextBuilder = new ContextEntry.ContextBuilder();
-    contextBuilder.in(repository);
-    if (!Strings.isNullOrEmpty(branch)) {
-      contextBuilder.in(Branch.class, branch);
+  BrowserResult getListing(String namespace, String repositoryName, String revision, String path) throws IOException {
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(namespace, repositoryName))) {
+      RepositoryPermissions.pull(repositoryService.getRepository()).check();
+      return repositoryService.getBrowseCommand()
+        .setRevision(revision)
+        .setPath(path)
+        .getBrowserResult();
     }
-    contextBuilder.in("path", path);
-    return contextBuilder;
   }
 
-  private String ensureTrailingSlash(String path) {
-    if (!path.endsWith("/")) {
-      return path + "/";
-    }
-    return path;
+  private FolderStrategy getStrategy(Repository repository) {
+    return strategies.stream()
+      .filter(strategy -> strategy.isResponsibleFor(repository))
+      .findFirst()
+      .orElse(defaultStrategy);
   }
 
-  private void createKeepFile(ModifyCommandBuilder modifyCommand, String path) throws IOException {
-    modifyCommand
-      .createFile(ensureTrailingSlash(path) + KEEP_FILE_NAME)
-      .setOverwrite(true)
-      .withData(new ByteArrayInputStream(KEEP_FILE_CONTENT));
+  private ModifyCommandBuilder createModifyCommand(RepositoryService repositoryService, @CheckForNull String branch, String commitMessage) {
+    ModifyCommandBuilder modifyCommand = repositoryService.getModifyCommand();
+    if (!Strings.isNullOrEmpty(branch)) {
+      modifyCommand.setBranch(branch);
+    }
+    modifyCommand.setCommitMessage(commitMessage);
+    return modifyCommand;
   }
 
-  private boolean isNotRoot(FileObject fileObject) {
-    return !fileObject.getPath().equals("") && !fileObject.getPath().equals("/");
+  private Changeset getChangeset(RepositoryService repositoryService, @CheckForNull String branch, String changesetId) throws IOException {
+    LogCommandBuilder logCommand = repositoryService.getLogCommand();
+    if (!Strings.isNullOrEmpty(branch)) {
+      logCommand.setBranch(branch);
+    }
+    return logCommand.getChangeset(changesetId);
   }
 }
@@ -0,0 +1,56 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import sonia.scm.plugin.ExtensionPoint;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.ModifyCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+
+import javax.annotation.CheckForNull;
+import java.io.IOException;
+
+/**
+ * Describes how folders are created and deleted for a type of repository. If no strategy is responsible for a
+ * repository, the {@link KeepFileFolderStrategy} is used, which works for every repository type.
+ */
+@ExtensionPoint
+public interface FolderStrategy {
+
+  /**
+   * Returns {@code true} if this strategy should be used for the given repository.
+   */
+  boolean isResponsibleFor(Repository repository);
+
+  /**
+   * Adds all changes needed to create an empty folder with the given path to the modify command.
+   */
+  void create(ModifyCommandBuilder modifyCommand, String path) throws IOException;
+
+  /**
+   * Adds all changes needed to delete the folder with the given path to the modify command. Implementations have to
+   * make sure, that the path is an existing directory.
+   */
+  void delete(RepositoryService repositoryService, @CheckForNull String branch, ModifyCommandBuilder modifyCommand, String path) throws IOException;
+}
@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.github.legman.Subscribe;
+import com.google.common.base.Strings;
+import lombok.Value;
+import sonia.scm.EagerSingleton;
+import sonia.scm.cache.Cache;
+import sonia.scm.cache.CacheManager;
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.PostReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryPermissions;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.util.ValidationUtil;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static sonia.scm.ScmConstraintViolationException.Builder.doThrow;
+
+/**
+ * Lists only the directories below a path. Large directories are read page by page with an opaque cursor, so that
+ * a folder picker never has to load all files of a directory at once. Pages are cached per repository, revision and
+ * path until the next push to the repository. Nested levels are read with a small page size, and only a bounded
+ * number of directories is expanded per request; directories beyond that are returned without nested directories
+ * and have to be requested separately.
+ */
+@Extension
+@EagerSingleton
+public class FolderTreeService {
+
+  static final String CACHE_NAME = "sonia.cache.folder.tree";
+  static final int MAX_DEPTH = 5;
+  static final int MAX_LIMIT = 1000;
+  static final int BROWSE_PAGE_SIZE = 1000;
+  static final int NESTED_LIMIT = 20;
+  static final int MAX_EXPANDED_DIRECTORIES = 100;
+
+  private final RepositoryServiceFactory repositoryServiceFactory;
+  private final Cache<TreeCacheKey, TreePage> cache;
+
+  @Inject
+  public FolderTreeService(RepositoryServiceFactory repositoryServiceFactory, CacheManager cacheManager) {
+    this.repositoryServiceFactory = repositoryServiceFactory;
+    this.cache = cacheManager.getCache(CACHE_NAME);
+  }
+
+  FolderTreeDto getTree(String namespace, String repositoryName, @CheckForNull String revision, @CheckForNull String path, int depth, int limit, @CheckForNull String cursor) throws IOException {
+    String normalizedPath = normalizePath(path);
+    doThrow()
+      .violation("invalid path: ", path)
+      .when(!normalizedPath.isEmpty() && !ValidationUtil.isPathValid(normalizedPath));
+    doThrow()
+      .violation("depth must be between 1 and " + MAX_DEPTH, "depth")
+      .when(depth < 1 || depth > MAX_DEPTH);
+    doThrow()
+      .violation("limit must be between 1 and " + MAX_LIMIT, "limit")
+      .when(limit < 1 || limit > MAX_LIMIT);
+
+    try (RepositoryService repositoryService = repositoryServiceFactory.create(new NamespaceAndName(namespace, repositoryName))) {
+      RepositoryPermissions.pull(repositoryService.getRepository()).check();
+
+      TreePage page = getPage(repositoryService, revision, normalizedPath, decodeCursor(cursor), limit);
+      return new FolderTreeDto(
+        page.getRevision(),
+        normalizedPath,
+        toEntries(repositoryService, page.getRevision(), page, depth - 1, Math.min(limit, NESTED_LIMIT), new int[]{MAX_EXPANDED_DIRECTORIES}),
+        page.getCursor()
+      );
+    }
+  }
+
+  @Subscribe
+  public void onEvent(PostReceiveRepositoryHookEvent event) {
+    String repositoryId = event.getRepository().getId();
+    cache.removeAll(key -> key.getRepositoryId().equals(repositoryId));
+  }
+
+  private List<FolderTreeEntryDto> toEntries(RepositoryService repositoryService, String revision, TreePage page, int remainingDepth, int nestedLimit, int[] remainingExpansions) throws IOException {
+    List<FolderTreeEntryDto> entries = new ArrayList<>(page.getPaths().size());
+    for (String childPath : page.getPaths()) {
+      FolderTreeEntryDto entry = new FolderTreeEntryDto(getName(childPath), childPath, null, null);
+      if (remainingDepth > 0 && remainingExpansions[0] > 0) {
+        --remainingExpansions[0];
+        // nested levels are always browsed by the concrete revision of the first level
+        TreePage childPage = getPage(repositoryService, revision, childPath, 0, nestedLimit);
+        entry.setDirectories(toEntries(repositoryService, revision, childPage, remainingDepth - 1, nestedLimit, remainingExpansions));
+        entry.setCursor(childPage.getCursor());
+      }
+      entries.add(entry);
+    }
+    return entries;
+  }
+
+  private TreePage getPage(RepositoryService repositoryService, @CheckForNull String revision, String path, int offset, int limit) throws IOException {
+    Repository repository = repositoryService.getRepository();
+    TreeCacheKey key = new TreeCacheKey(repository.getId(), Strings.nullToEmpty(revision), path, offset, limit);
+    TreePage page = cache.get(key);
+    if (page == null) {
+      page = readPage(repositoryService, revision, path, offset, limit);
+      cache.put(key, page);
+    }
+    return page;
+  }
+
+  private TreePage readPage(RepositoryService repositoryService, @CheckForNull String revision, String path, int offset, int limit) throws IOException {
+    List<String> directories = new ArrayList<>();
+    int position = offset;
+    while (true) {
+      // pages are cached by this service, so they are not stored in the browse cache of the core as well
+      BrowseCommandBuilder browseCommand = repositoryService.getBrowseCommand()
+        .setDisableCache(true)
+        .setDisableLastCommit(true)
+        .setDisablePreProcessors(true)
+        .setDisableSubRepositoryDetection(true)
+        .setPath(path)
+        .setOffset(position)
+        .setLimit(BROWSE_PAGE_SIZE);
+      if (!Strings.isNullOrEmpty(revision)) {
+        browseCommand.setRevision(revision);
+      }
+
+      BrowserResult browserResult = browseCommand.getBrowserResult();
+      String browsedRevision = browserResult.getRevision();
+      FileObject directory = browserResult.getFile();
+      Collection<FileObject> children = directory.getChildren();
+
+      int consumed = 0;
+      for (FileObject child : children) {
+        ++consumed;
+        if (child.isDirectory()) {
+          directories.add(normalizePath(child.getPath()));
+          if (directories.size() == limit) {
+            boolean hasMore = consumed < children.size() || directory.isTruncated();
+            return new TreePage(browsedRevision, directories, hasMore ? encodeCursor(position + consumed) : null);
+          }
+        }
+      }
+      position += consumed;
+
+      if (!directory.isTruncated() || children.isEmpty()) {
+        return new TreePage(browsedRevision, directories, null);
+      }
+    }
+  }
+
+  private int decodeCursor(@CheckForNull String cursor) {
+    if (Strings.isNullOrEmpty(cursor)) {
+      return 0;
+    }
+    int offset;
+    try {
+      offset = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      offset = -1;
+    }
+    doThrow().violation("invalid cursor", "cursor").when(offset < 0);
+    return offset;
+  }
+
+  private String encodeCursor(int offset) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(Integer.toString(offset).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private String getName(String path) {
+    return path.substring(path.lastIndexOf('/') + 1);
+  }
+
+  static String normalizePath(@CheckForNull String path) {
+    String normalized = Strings.nullToEmpty(path);
+    while (normalized.startsWith("/")) {
+      normalized = normalized.substring(1);
+    }
+    while (normalized.endsWith("/")) {
+      normalized = normalized.substring(0, normalized.length() - 1);
+    }
+    return normalized;
+  }
+
+  @Value
+  static class TreeCacheKey {
+    String repositoryId;
+    String revision;
+    String path;
+    int offset;
+    int limit;
+  }
+
+  @Value
+  static class TreePage {
+    String revision;
+    List<String> paths;
+    String cursor;
+
+    TreePage(String revision, List<String> paths, String cursor) {
+      this.revision = revision;
+      this.paths = Collections.unmodifiableList(paths);
+      this.cursor = cursor;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.api.RepositoryService;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * Walks a directory tree of a single revision depth first. Every directory is browsed page by page, so that neither
+ * a huge directory nor the whole tree has to be held in memory at once. The pages are not stored in the browse cache,
+ * because a walk reads every directory only once.
+ */
+class FolderWalker {
+
+  static final int BROWSE_PAGE_SIZE = 1000;
+
+  private final RepositoryService repositoryService;
+  private final String revision;
+
+  FolderWalker(RepositoryService repositoryService, String revision) {
+    this.repositoryService = repositoryService;
+    this.revision = revision;
+  }
+
+  void walk(String path, Visitor visitor) throws IOException {
+    Deque<String> pendingDirectories = new ArrayDeque<>();
+    pendingDirectories.push(FolderTreeService.normalizePath(path));
+    while (!pendingDirectories.isEmpty()) {
+      String directory = pendingDirectories.pop();
+      Deque<String> subDirectories = new ArrayDeque<>();
+      boolean completed = list(directory, new Visitor() {
+        @Override
+        public boolean visitDirectory(FileObject child) throws IOException {
+          if (!visitor.visitDirectory(child)) {
+            return false;
+          }
+          subDirectories.push(FolderTreeService.normalizePath(child.getPath()));
+          return true;
+        }
+
+        @Override
+        public boolean visitFile(FileObject file) throws IOException {
+          return visitor.visitFile(file);
+        }
+      });
+      if (!completed) {
+        return;
+      }
+      while (!subDirectories.isEmpty()) {
+        pendingDirectories.push(subDirectories.pop());
+      }
+    }
+  }
+
+  /**
+   * Visits the direct children of a single directory, without descending into its sub directories.
+   *
+   * @return {@code false}, if the visitor stopped the listing
+   */
+  boolean list(String path, Visitor visitor) throws IOException {
+    String directory = FolderTreeService.normalizePath(path);
+    int offset = 0;
+    while (true) {
+      FileObject listing = browse(directory, offset);
+      Collection<FileObject> children = listing.getChildren();
+      for (FileObject child : children) {
+        if (child.getSubRepository() != null) {
+          continue;
+        }
+        if (child.isDirectory() ? !visitor.visitDirectory(child) : !visitor.visitFile(child)) {
+          return false;
+        }
+      }
+      offset += children.size();
+      if (!listing.isTruncated() || children.isEmpty()) {
+        return true;
+      }
+    }
+  }
+
+  private FileObject browse(String directory, int offset) throws IOException {
+    BrowserResult browserResult = repositoryService.getBrowseCommand()
+      .setDisableCache(true)
+      .setDisableLastCommit(true)
+      .setDisablePreProcessors(true)
+      .setDisableSubRepositoryDetection(false)
+      .setRevision(revision)
+      .setPath(directory)
+      .setOffset(offset)
+      .setLimit(BROWSE_PAGE_SIZE)
+      .getBrowserResult();
+    return browserResult.getFile();
+  }
+
+  interface Visitor {
+
+    /**
+     * Called for each directory below the walked path, before its content is visited.
+     *
+     * @return {@code false} to stop the walk
+     */
+    boolean visitDirectory(FileObject directory) throws IOException;
+
+    /**
+     * Called for each file below the walked path.
+     *
+     * @return {@code false} to stop the walk
+     */
+    boolean visitFile(FileObject file) throws IOException;
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.Value;
+import org.apache.shiro.SecurityUtils;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.NamespaceAndName;
+
+import javax.annotation.CheckForNull;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+
+import static sonia.scm.ScmConstraintViolationException.Builder.doThrow;
+
+/**
+ * Remembers the changesets of folder operations by their idempotency key for a limited time, so that a retried
+ * request returns the original result instead of creating another commit. Keys are scoped by user, repository,
+ * operation, branch and path. Concurrent requests with the same key wait for the first one to finish.
+ */
+@Singleton
+public class IdempotencyStore {
+
+  static final String HEADER = "Idempotency-Key";
+  static final int MAX_KEY_LENGTH = 255;
+  static final long MAX_ENTRIES = 10_000;
+  static final Duration EXPIRATION = Duration.ofHours(24);
+
+  private final Cache<Key, Changeset> results;
+
+  @Inject
+  public IdempotencyStore() {
+    this(MAX_ENTRIES, EXPIRATION);
+  }
+
+  @VisibleForTesting
+  IdempotencyStore(long maxEntries, Duration expiration) {
+    this.results = CacheBuilder.newBuilder()
+      .maximumSize(maxEntries)
+      .expireAfterWrite(expiration)
+      .build();
+  }
+
+  Changeset execute(@CheckForNull String idempotencyKey, String operation, NamespaceAndName namespaceAndName, @CheckForNull String branch, @CheckForNull String path, Operation folderOperation) throws IOException {
+    if (Strings.isNullOrEmpty(idempotencyKey)) {
+      return folderOperation.execute();
+    }
+    doThrow()
+      .violation("idempotency key must not be longer than " + MAX_KEY_LENGTH + " characters", HEADER)
+      .when(idempotencyKey.length() > MAX_KEY_LENGTH);
+
+    Key key = new Key(
+      String.valueOf(SecurityUtils.getSubject().getPrincipal()),
+      namespaceAndName,
+      operation,
+      Strings.nullToEmpty(branch),
+      FolderTreeService.normalizePath(path),
+      idempotencyKey
+    );
+    try {
+      return results.get(key, folderOperation::execute);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IllegalStateException("folder operation failed", e.getCause());
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  @FunctionalInterface
+  interface Operation {
+    Changeset execute() throws IOException;
+  }
+
+  @Value
+  private static class Key {
+    String principal;
+    NamespaceAndName namespaceAndName;
+    String operation;
+    String branch;
+    String path;
+    String idempotencyKey;
+  }
+}
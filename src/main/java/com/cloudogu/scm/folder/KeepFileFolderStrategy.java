@@ -0,0 +1,91 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.ModifyCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+
+import javax.annotation.CheckForNull;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Default strategy for repository types which do not track empty directories, like git or mercurial. Empty folders
+ * are kept by a marker file ({@value #KEEP_FILE_NAME}), and a marker is added to the parent, if a deletion leaves it
+ * empty.
+ */
+public class KeepFileFolderStrategy implements FolderStrategy {
+
+  static final byte[] KEEP_FILE_CONTENT = "This automatically generated file ensures that the version control system\nkeeps the encapsulating folder, but has no further purpose.".getBytes(UTF_8);
+  static final String KEEP_FILE_NAME = ".scmkeep";
+
+  @Override
+  public boolean isResponsibleFor(Repository repository) {
+    return true;
+  }
+
+  @Override
+  public void create(ModifyCommandBuilder modifyCommand, String path) throws IOException {
+    createKeepFile(modifyCommand, path);
+  }
+
+  @Override
+  public void delete(RepositoryService repositoryService, @CheckForNull String branch, ModifyCommandBuilder modifyCommand, String path) throws IOException {
+    String[] pathParts = path.split("/");
+    String folderName = pathParts[pathParts.length - 1];
+    String parentPath = FolderLookup.getParentPath(pathParts);
+
+    FileObject parentFile = FolderLookup.findFile(repositoryService, branch, parentPath);
+    FileObject fileToDelete = FolderLookup.findChildByName(parentFile, folderName);
+
+    FolderLookup.assertIsValidDirectory(repositoryService.getRepository(), branch, path, fileToDelete);
+
+    modifyCommand.deleteFile(fileToDelete.getPath(), true);
+    createKeepFileIfParentIsEmptyAfterDeletion(parentPath, parentFile, modifyCommand);
+  }
+
+  private void createKeepFileIfParentIsEmptyAfterDeletion(String parentPath, FileObject parentFile, ModifyCommandBuilder modifyCommand) throws IOException {
+    if (parentFile.getChildren().size() == 1 && FolderLookup.isNotRoot(parentFile)) {
+      createKeepFile(modifyCommand, parentPath);
+    }
+  }
+
+  private String ensureTrailingSlash(String path) {
+    if (!path.endsWith("/")) {
+      return path + "/";
+    }
+    return path;
+  }
+
+  private void createKeepFile(ModifyCommandBuilder modifyCommand, String path) throws IOException {
+    modifyCommand
+      .createFile(ensureTrailingSlash(path) + KEEP_FILE_NAME)
+      .setOverwrite(true)
+      .withData(new ByteArrayInputStream(KEEP_FILE_CONTENT));
+  }
+}
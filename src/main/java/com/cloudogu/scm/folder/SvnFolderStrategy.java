@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import sonia.scm.plugin.Extension;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.api.ModifyCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+
+import javax.annotation.CheckForNull;
+import java.io.IOException;
+
+/**
+ * Deletes folders in Subversion repositories. Subversion keeps empty directories, so deleting a folder does not need a
+ * look at the parent directory or a marker file for it. Folders are not created as native Subversion directories:
+ * the modify command of SCM-Manager can only add files, so new folders get a marker file like in every other type.
+ */
+@Extension
+public class SvnFolderStrategy extends KeepFileFolderStrategy {
+
+  static final String TYPE = "svn";
+
+  @Override
+  public boolean isResponsibleFor(Repository repository) {
+    return TYPE.equals(repository.getType());
+  }
+
+  @Override
+  public void delete(RepositoryService repositoryService, @CheckForNull String branch, ModifyCommandBuilder modifyCommand, String path) throws IOException {
+    FileObject fileToDelete = FolderLookup.findFile(repositoryService, branch, path);
+
+    FolderLookup.assertIsValidDirectory(repositoryService.getRepository(), branch, path, fileToDelete);
+
+    modifyCommand.deleteFile(fileToDelete.getPath(), true);
+  }
+}
@@ -23,15 +23,58 @@
  */
 
 import React, { SetStateAction } from "react";
-import { Radio } from "@scm-manager/ui-components";
-import { droppedItemHierarchyProber } from "./upload";
+import { File, Link } from "@scm-manager/ui-types";
+import { apiClient, Radio } from "@scm-manager/ui-components";
+import type { MarkerResolver } from "./upload";
+import { captureDroppedItems } from "./droppedItems";
+
+type UploadModule = typeof import("./upload");
 
 const DIR_UPLOAD = "directory";
 
-const createUploadExtension = () => ({
+type Props = {
+  sources?: File;
+  revision?: string;
+};
+
+let uploadModulePromise: Promise<UploadModule> | undefined;
+
+const loadUploadModule = () => {
+  if (!uploadModulePromise) {
+    uploadModulePromise = import("./upload");
+  }
+  return uploadModulePromise;
+};
+
+const createMarkerResolver = (props?: Props): MarkerResolver | undefined => {
+  const link = props?.sources?._links?.folderManifest as Link | undefined;
+  if (!link) {
+    return undefined;
+  }
+  return (folders: string[], totalBytes: number, fileCount: number) =>
+    apiClient
+      .post(link.href, {
+        revision: props?.revision ? decodeURIComponent(props.revision) : undefined,
+        folders,
+        fileCount,
+        totalBytes
+      })
+      .then(response => response.json())
+      .then(result => result.markers);
+};
+
+const createUploadExtension = (props?: Props) => ({
   renderOption: (uploadMode: string, setUploadMode: SetStateAction<any>, t: any) => (
     <>
-      <Radio className="ml-2" checked={uploadMode === DIR_UPLOAD} onChange={() => setUploadMode(DIR_UPLOAD)} />
+      <Radio
+        className="ml-2"
+        checked={uploadMode === DIR_UPLOAD}
+        onChange={() => {
+          // the prober is loaded as soon as the directory mode is chosen, so that it is ready for the first drop
+          loadUploadModule();
+          setUploadMode(DIR_UPLOAD);
+        }}
+      />
       {t("scm-manage-folder-plugin.upload.directory")}
       {uploadMode === DIR_UPLOAD ? (
         <>
@@ -42,10 +85,20 @@ const createUploadExtension = () => ({
       ) : null}
     </>
   ),
-  dropZoneOptions: (fileHandler: any) => ({
-    getFilesFromEvent: (event: any) => droppedItemHierarchyProber(event, fileHandler),
-    noClick: true
-  }),
+  dropZoneOptions: (fileHandler: any, removeHandler?: any) => {
+    loadUploadModule();
+    return {
+      getFilesFromEvent: (event: any) => {
+        // the items of a drop event are only accessible until the handler yields, so they are captured before the
+        // prober chunk may still have to be loaded
+        const dropped = captureDroppedItems(event);
+        return loadUploadModule().then(module =>
+          module.droppedItemHierarchyProber(dropped, fileHandler, createMarkerResolver(props), removeHandler)
+        );
+      },
+      noClick: true
+    };
+  },
   uploadMode: DIR_UPLOAD
 });
 export default createUploadExtension;
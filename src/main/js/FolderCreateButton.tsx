@@ -21,13 +21,14 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-import React, { FC, useState } from "react";
+import React, { FC, Suspense, useState } from "react";
 import { File, Repository } from "@scm-manager/ui-types";
 import { useTranslation } from "react-i18next";
 import styled from "styled-components";
-import FolderCreateModal from "./FolderCreateModal";
 import { Button } from "@scm-manager/ui-components";
-import { useCreateFolder } from "./folders";
+import { CREATE_FOLDER_MUTATION, useIsFolderMutating } from "./folderMutations";
+
+const FolderCreateModal = React.lazy(() => import("./FolderCreateModal"));
 
 const StyledButton = styled(Button)`
   width: 50px;
@@ -46,14 +47,26 @@ type Props = {
 const FolderCreateButton: FC<Props> = ({ sources, path, revision, repository }) => {
   const [t] = useTranslation("plugins");
   const [creationModalVisible, setCreationModalVisible] = useState(false);
-  const hook = useCreateFolder();
+  const pending = useIsFolderMutating(CREATE_FOLDER_MUTATION);
+
+  const renderButton = (loading: boolean) => (
+    <StyledButton
+      title={t("scm-manage-folder-plugin.create.tooltip")}
+      action={() => setCreationModalVisible(true)}
+      loading={loading}
+      disabled={loading}
+    >
+      <i className="fas fa-folder-plus" />
+    </StyledButton>
+  );
 
   if (!sources || !("createFolder" in sources._links)) {
     return null;
   }
 
+  // the button stays disabled while the modal is loaded and while its operation runs, even if the modal was closed
   return (
-    <>
+    <Suspense fallback={renderButton(true)}>
       {creationModalVisible ? (
         <FolderCreateModal
           repository={repository}
@@ -61,18 +74,10 @@ const FolderCreateButton: FC<Props> = ({ sources, path, revision, repository })
           path={path}
           revision={revision}
           onClose={() => setCreationModalVisible(false)}
-          hook={hook}
         />
       ) : null}
-      <StyledButton
-        title={t("scm-manage-folder-plugin.create.tooltip")}
-        action={() => setCreationModalVisible(true)}
-        loading={hook.isLoading}
-        disabled={hook.isLoading}
-      >
-        <i className="fas fa-folder-plus" />
-      </StyledButton>
-    </>
+      {renderButton(pending)}
+    </Suspense>
   );
 };
 
@@ -41,11 +41,11 @@ type Props = {
   path?: string;
   sources: File;
   onClose: () => void;
-  hook: ReturnType<typeof useCreateFolder>;
 };
 
-const FolderCreateModal: FC<Props> = ({ sources, revision, path, onClose, repository, hook }) => {
+const FolderCreateModal: FC<Props> = ({ sources, revision, path, onClose, repository }) => {
   const [t] = useTranslation("plugins");
+  const hook = useCreateFolder();
   const [folderName, setFolderName] = useState("");
   const [commitMessage, setCommitMessage] = useState("");
   const [folderNameError, setFolderNameError] = useState("");
@@ -72,7 +72,8 @@ const FolderCreateModal: FC<Props> = ({ sources, revision, path, onClose, reposi
         commitMessage,
         branch: decodeURIComponent(revision ?? "")
       },
-      path
+      path,
+      revision
     );
 
   const body = (
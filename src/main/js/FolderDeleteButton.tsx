@@ -21,13 +21,14 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-import React, { FC, useState } from "react";
+import React, { FC, Suspense, useState } from "react";
 import { File, Repository } from "@scm-manager/ui-types";
 import { useTranslation } from "react-i18next";
 import styled from "styled-components";
-import FolderDeleteModal from "./FolderDeleteModal";
 import { Button } from "@scm-manager/ui-components";
-import { useDeleteFolder } from "./folders";
+import { DELETE_FOLDER_MUTATION, useIsFolderMutating } from "./folderMutations";
+
+const FolderDeleteModal = React.lazy(() => import("./FolderDeleteModal"));
 
 const StyledButton = styled(Button)`
   width: 50px;
@@ -47,32 +48,36 @@ type Props = {
 const FolderDeleteButton: FC<Props> = ({ sources, revision, repository }) => {
   const [t] = useTranslation("plugins");
   const [modalVisible, setModalVisible] = useState(false);
-  const hook = useDeleteFolder();
+  const pending = useIsFolderMutating(DELETE_FOLDER_MUTATION);
+
+  const renderButton = (loading: boolean) => (
+    <StyledButton
+      title={t("scm-manage-folder-plugin.delete.tooltip")}
+      action={() => setModalVisible(true)}
+      loading={loading}
+      disabled={loading}
+    >
+      <i className="fas fa-trash" />
+    </StyledButton>
+  );
 
   if (!sources || !("deleteFolder" in sources._links)) {
     return null;
   }
 
+  // the button stays disabled while the modal is loaded and while its operation runs, even if the modal was closed
   return (
-    <>
+    <Suspense fallback={renderButton(true)}>
       {modalVisible ? (
         <FolderDeleteModal
           onClose={() => setModalVisible(false)}
           repository={repository}
           sources={sources}
           revision={revision}
-          hook={hook}
         />
       ) : null}
-      <StyledButton
-        title={t("scm-manage-folder-plugin.delete.tooltip")}
-        action={() => setModalVisible(true)}
-        loading={hook.isLoading}
-        disabled={hook.isLoading}
-      >
-        <i className="fas fa-trash" />
-      </StyledButton>
-    </>
+      {renderButton(pending)}
+    </Suspense>
   );
 };
 
@@ -33,11 +33,11 @@ type Props = {
   path?: string;
   sources: File;
   onClose: () => void;
-  hook: ReturnType<typeof useDeleteFolder>;
 };
 
-const FolderDeleteModal: FC<Props> = ({ onClose, revision, repository, sources, hook }) => {
+const FolderDeleteModal: FC<Props> = ({ onClose, revision, repository, sources }) => {
   const [t] = useTranslation("plugins");
+  const hook = useDeleteFolder();
   const [commitMessage, setCommitMessage] = useState("");
   const initialFocusRef = useRef<HTMLTextAreaElement>(null);
 
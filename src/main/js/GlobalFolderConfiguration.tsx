@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import React, { FC, useEffect, useState } from "react";
+import { useTranslation } from "react-i18next";
+import { Checkbox, Configuration, InputField, Title } from "@scm-manager/ui-components";
+import { FolderConfig } from "./types";
+
+type FormProps = {
+  initialConfiguration: FolderConfig;
+  readOnly: boolean;
+  onConfigurationChange: (config: FolderConfig, valid: boolean) => void;
+};
+
+type Flag = "warmUpBrowseCache" | "folderLinkTemplates";
+
+const flags: Flag[] = ["warmUpBrowseCache", "folderLinkTemplates"];
+
+const limits: Array<keyof Omit<FolderConfig, "_links" | "_embedded" | Flag>> = [
+  "maxEntries",
+  "maxDepth",
+  "maxBytesPerCommit",
+  "maxPathsPerBatch",
+  "repositoryRate",
+  "repositoryBurst",
+  "userRate",
+  "userBurst",
+  "maxWaitMillis"
+];
+
+const isValidLimit = (value: number) => Number.isInteger(value) && value >= 0;
+
+const FolderConfigurationForm: FC<FormProps> = ({ initialConfiguration, readOnly, onConfigurationChange }) => {
+  const [t] = useTranslation("plugins");
+  const [config, setConfig] = useState<FolderConfig>(initialConfiguration);
+
+  useEffect(() => {
+    onConfigurationChange(
+      config,
+      limits.every(limit => isValidLimit(config[limit]))
+    );
+  }, [config]);
+
+  return (
+    <>
+      {limits.map(limit => (
+        <InputField
+          key={limit}
+          type="number"
+          label={t(`scm-manage-folder-plugin.config.${limit}.label`)}
+          helpText={t(`scm-manage-folder-plugin.config.${limit}.helpText`)}
+          value={String(config[limit])}
+          onChange={event => setConfig({ ...config, [limit]: Number(event.target.value) })}
+          validationError={!isValidLimit(config[limit])}
+          errorMessage={t("scm-manage-folder-plugin.config.invalid")}
+          disabled={readOnly}
+        />
+      ))}
+      {flags.map(flag => (
+        <Checkbox
+          key={flag}
+          label={t(`scm-manage-folder-plugin.config.${flag}.label`)}
+          helpText={t(`scm-manage-folder-plugin.config.${flag}.helpText`)}
+          checked={config[flag]}
+          onChange={(checked: boolean) => setConfig({ ...config, [flag]: checked })}
+          disabled={readOnly}
+        />
+      ))}
+    </>
+  );
+};
+
+const GlobalFolderConfiguration: FC<{ link: string }> = ({ link }) => {
+  const [t] = useTranslation("plugins");
+  return (
+    <>
+      <Title title={t("scm-manage-folder-plugin.config.title")} />
+      <Configuration link={link} render={(props: FormProps) => <FolderConfigurationForm {...props} />} />
+    </>
+  );
+};
+
+export default GlobalFolderConfiguration;
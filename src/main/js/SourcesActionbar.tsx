@@ -26,6 +26,7 @@ import { File, Repository } from "@scm-manager/ui-types";
 import { ButtonGroup } from "@scm-manager/ui-components";
 import FolderCreateButton from "./FolderCreateButton";
 import FolderDeleteButton from "./FolderDeleteButton";
+import { useFolderEvents } from "./folderEvents";
 
 type Props = {
   repository: Repository;
@@ -34,11 +35,14 @@ type Props = {
   sources: File;
 };
 
-const SourcesActionbar: FC<Props> = props => (
-  <ButtonGroup>
-    <FolderDeleteButton {...props} />
-    <FolderCreateButton {...props} />
-  </ButtonGroup>
-);
+const SourcesActionbar: FC<Props> = props => {
+  useFolderEvents(props.repository, props.sources, props.revision);
+  return (
+    <ButtonGroup>
+      <FolderDeleteButton {...props} />
+      <FolderCreateButton {...props} />
+    </ButtonGroup>
+  );
+};
 
 export default SourcesActionbar;
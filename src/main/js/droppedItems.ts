@@ -0,0 +1,51 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import { fromEvent } from "file-selector";
+
+export type DroppedFile = File & { path?: string };
+
+/**
+ * The content of a drop event, captured before the event handler yields for the first time: either the file system
+ * handles of all dropped items or, if these are not supported by the browser, the files read by file-selector.
+ */
+export type DroppedItems = {
+  handles?: Promise<any>[];
+  files?: Promise<DroppedFile[]>;
+};
+
+const supportsFileSystemHandles = (item: any) =>
+  item.getAsFileSystemHandle && item.getAsFileSystemHandle instanceof Function;
+
+/**
+ * Captures the dropped items synchronously, because the browser clears the items of a drop event as soon as the
+ * handler awaits anything, e.g. the chunk of the upload prober.
+ */
+export const captureDroppedItems = (e: any): DroppedItems => {
+  const items: any[] = Array.from(e.dataTransfer?.items ?? []).filter((item: any) => item.kind === "file");
+  if (items.length === 0 || !items.every(supportsFileSystemHandles)) {
+    return { files: fromEvent(e) as Promise<DroppedFile[]> };
+  }
+  return { handles: items.map(item => item.getAsFileSystemHandle()) };
+};
@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import { QueryClient } from "react-query";
+import { Changeset, File, Repository } from "@scm-manager/ui-types";
+import {
+  invalidateChangedFolders,
+  invalidateFolderListing,
+  isOwnFolderChange,
+  updateFolderCaches
+} from "./folderCache";
+
+describe("Folder cache tests", () => {
+  const repository: Repository = {
+    namespace: "scm",
+    name: "core",
+    type: "git",
+    _links: {}
+  };
+
+  const changeset: Changeset = {
+    id: "42",
+    description: "Awesome change",
+    date: new Date(),
+    author: {
+      name: "Arthur Dent"
+    },
+    _embedded: {
+      branches: [{ name: "main", revision: "42", _links: {} }]
+    },
+    _links: {}
+  };
+
+  const parent: File = {
+    name: "src",
+    path: "src",
+    directory: true,
+    revision: "42",
+    _links: {},
+    _embedded: { children: [] }
+  };
+
+  it("should replace cached parent listing and keep it fresh", async () => {
+    const queryClient = new QueryClient();
+    const parentKey = ["repository", "scm", "core", "sources", "main", "src"];
+    queryClient.setQueryData(parentKey, { pages: [{ name: "old" }], pageParams: [undefined] });
+
+    await updateFolderCaches(queryClient, repository, changeset, parent, "main");
+
+    expect(queryClient.getQueryData(parentKey)).toEqual({ pages: [parent], pageParams: [undefined] });
+    expect(queryClient.getQueryState(parentKey)?.isInvalidated).toBe(false);
+  });
+
+  it("should replace cached listing of default branch without revision", async () => {
+    const queryClient = new QueryClient();
+    const repositoryWithBranches = { ...repository, _links: { branches: { href: "/branches" } } };
+    const defaultKey = ["repository", "scm", "core", "sources", "", "src"];
+    queryClient.setQueryData(["repository", "scm", "core", "branches"], {
+      _embedded: { branches: [{ name: "main", revision: "42", defaultBranch: true, _links: {} }] },
+      _links: {}
+    });
+    queryClient.setQueryData(defaultKey, { name: "old" });
+
+    await updateFolderCaches(queryClient, repositoryWithBranches, changeset, parent, "main");
+
+    expect(queryClient.getQueryData(defaultKey)).toEqual(parent);
+    expect(queryClient.getQueryState(defaultKey)?.isInvalidated).toBe(false);
+  });
+
+  it("should only invalidate listing without revision for other branches", async () => {
+    const queryClient = new QueryClient();
+    const repositoryWithBranches = { ...repository, _links: { branches: { href: "/branches" } } };
+    const defaultKey = ["repository", "scm", "core", "sources", "", "src"];
+    queryClient.setQueryData(["repository", "scm", "core", "branches"], {
+      _embedded: { branches: [{ name: "develop", revision: "21", defaultBranch: true, _links: {} }] },
+      _links: {}
+    });
+    queryClient.setQueryData(defaultKey, { name: "old" });
+
+    await updateFolderCaches(queryClient, repositoryWithBranches, changeset, parent, "main");
+
+    expect(queryClient.getQueryData(defaultKey)).toEqual({ name: "old" });
+    expect(queryClient.getQueryState(defaultKey)?.isInvalidated).toBe(true);
+  });
+
+  it("should invalidate other sources and revision dependent queries only", async () => {
+    const queryClient = new QueryClient();
+    const otherSourcesKey = ["repository", "scm", "core", "sources", "main", "docs"];
+    const changesetsKey = ["repository", "scm", "core", "changesets", "main"];
+    const permissionsKey = ["repository", "scm", "core", "permissions"];
+    queryClient.setQueryData(otherSourcesKey, {});
+    queryClient.setQueryData(changesetsKey, {});
+    queryClient.setQueryData(permissionsKey, {});
+
+    await updateFolderCaches(queryClient, repository, changeset, parent, "main");
+
+    expect(queryClient.getQueryState(otherSourcesKey)?.isInvalidated).toBe(true);
+    expect(queryClient.getQueryState(changesetsKey)?.isInvalidated).toBe(true);
+    expect(queryClient.getQueryState(permissionsKey)?.isInvalidated).toBe(false);
+  });
+
+  it("should remember changesets of own folder operations", async () => {
+    const queryClient = new QueryClient();
+    const ownChangeset = { ...changeset, id: "own" };
+
+    await updateFolderCaches(queryClient, repository, ownChangeset, parent, "main");
+
+    expect(isOwnFolderChange("own")).toBe(true);
+    expect(isOwnFolderChange("other")).toBe(false);
+  });
+
+  it("should invalidate only listings affected by a folder event", async () => {
+    const queryClient = new QueryClient();
+    const parentKey = ["repository", "scm", "core", "sources", "main", "src"];
+    const deletedKey = ["repository", "scm", "core", "sources", "main", "src/old/nested"];
+    const unrelatedKey = ["repository", "scm", "core", "sources", "main", "docs"];
+    const otherBranchKey = ["repository", "scm", "core", "sources", "develop", "src"];
+    [parentKey, deletedKey, unrelatedKey, otherBranchKey].forEach(key => queryClient.setQueryData(key, {}));
+
+    await invalidateChangedFolders(
+      queryClient,
+      repository,
+      { changesetId: "42", branch: "main", createdFolders: ["src/lib"], deletedFolders: ["src/old"] },
+      "main"
+    );
+
+    expect(queryClient.getQueryState(parentKey)?.isInvalidated).toBe(true);
+    expect(queryClient.getQueryState(deletedKey)?.isInvalidated).toBe(true);
+    expect(queryClient.getQueryState(unrelatedKey)?.isInvalidated).toBe(false);
+    expect(queryClient.getQueryState(otherBranchKey)?.isInvalidated).toBe(false);
+  });
+
+  it("should invalidate root listing for folders on top level", async () => {
+    const queryClient = new QueryClient();
+    const rootKey = ["repository", "scm", "core", "sources", "feature/x", ""];
+    queryClient.setQueryData(rootKey, {});
+
+    await invalidateChangedFolders(
+      queryClient,
+      repository,
+      { changesetId: "42", branch: "feature/x", createdFolders: ["lib"], deletedFolders: [] },
+      "feature%2Fx"
+    );
+
+    expect(queryClient.getQueryState(rootKey)?.isInvalidated).toBe(true);
+  });
+
+  it("should invalidate single folder listing", async () => {
+    const queryClient = new QueryClient();
+    const listingKey = ["repository", "scm", "core", "sources", "main", "src"];
+    const childKey = ["repository", "scm", "core", "sources", "main", "src/main"];
+    queryClient.setQueryData(listingKey, {});
+    queryClient.setQueryData(childKey, {});
+
+    await invalidateFolderListing(queryClient, repository, "src/", "main");
+
+    expect(queryClient.getQueryState(listingKey)?.isInvalidated).toBe(true);
+    expect(queryClient.getQueryState(childKey)?.isInvalidated).toBe(false);
+  });
+});
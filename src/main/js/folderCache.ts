@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import { QueryClient, QueryKey } from "react-query";
+import { BranchCollection, Changeset, File, Repository } from "@scm-manager/ui-types";
+import { getBranch } from "./createRedirectUrl";
+import { FolderEvent } from "./types";
+
+const REVISION_DEPENDENT_QUERIES = ["changesets", "changeset", "branches", "branch"];
+const MAX_OWN_CHANGESETS = 100;
+
+// changesets of the folder operations of this tab, whose events must not invalidate the already updated caches
+const ownChangesets = new Set<string>();
+
+const trimSlashes = (path?: string) => (path ?? "").replace(/^\/+|\/+$/g, "");
+
+const parentOf = (path: string) => {
+  const trimmed = trimSlashes(path);
+  const index = trimmed.lastIndexOf("/");
+  return index < 0 ? "" : trimmed.substring(0, index);
+};
+
+const isRepositoryQuery = (queryKey: QueryKey, repository: Repository, types: string[]) =>
+  Array.isArray(queryKey) &&
+  queryKey[0] === "repository" &&
+  queryKey[1] === repository.namespace &&
+  queryKey[2] === repository.name &&
+  types.includes(queryKey[3]);
+
+const DEFAULT_REVISION = "";
+
+/**
+ * The sources view of the default branch is cached with an empty revision. Whether the branch of a changeset is the
+ * default branch is taken from the cached branches of the repository, repositories without branches only know the
+ * default revision.
+ */
+const isDefaultBranch = (queryClient: QueryClient, repository: Repository, branch: string) => {
+  if (!repository._links.branches) {
+    return true;
+  }
+  const branches = queryClient.getQueryData<BranchCollection>([
+    "repository",
+    repository.namespace,
+    repository.name,
+    "branches"
+  ]);
+  return !!branches?._embedded?.branches.some(candidate => candidate.defaultBranch && candidate.name === branch);
+};
+
+/**
+ * Replaces the cached listing of the affected parent directory with the listing returned by the folder operation and
+ * marks only the repository queries as stale, which depend on the new head revision. The changeset is remembered, so
+ * that the folder event of the operation can be ignored.
+ */
+export const updateFolderCaches = (
+  queryClient: QueryClient,
+  repository: Repository,
+  changeset: Changeset,
+  parent?: File,
+  revision?: string
+) => {
+  ownChangesets.add(changeset.id);
+  const oldest = ownChangesets.values().next().value;
+  if (ownChangesets.size > MAX_OWN_CHANGESETS && oldest !== undefined) {
+    ownChangesets.delete(oldest);
+  }
+
+  const branch = getBranch(changeset);
+  const revisions = [branch, revision ? decodeURIComponent(revision) : undefined].filter(Boolean);
+  if (isDefaultBranch(queryClient, repository, branch)) {
+    revisions.push(DEFAULT_REVISION);
+  }
+  const parentPath = trimSlashes(parent?.path);
+  const isParentListing = (queryKey: QueryKey) =>
+    !!parent &&
+    isRepositoryQuery(queryKey, repository, ["sources"]) &&
+    revisions.includes((queryKey as unknown[])[4] as string) &&
+    trimSlashes((queryKey as unknown[])[5] as string) === parentPath;
+
+  queryClient
+    .getQueryCache()
+    .findAll({ predicate: query => isParentListing(query.queryKey) })
+    .forEach(query =>
+      queryClient.setQueryData(query.queryKey, (data: any) =>
+        data && "pages" in data ? { pages: [parent], pageParams: [undefined] } : parent
+      )
+    );
+
+  return queryClient.invalidateQueries({
+    predicate: query =>
+      (isRepositoryQuery(query.queryKey, repository, ["sources"]) && !isParentListing(query.queryKey)) ||
+      isRepositoryQuery(query.queryKey, repository, REVISION_DEPENDENT_QUERIES)
+  });
+};
+
+/**
+ * Returns whether the changeset of a folder event was created by a folder operation of this tab.
+ */
+export const isOwnFolderChange = (changesetId: string) => ownChangesets.has(changesetId);
+
+const invalidateSources = (
+  queryClient: QueryClient,
+  repository: Repository,
+  revision: string | undefined,
+  isAffected: (path: string) => boolean
+) => {
+  const decodedRevision = revision ? decodeURIComponent(revision) : undefined;
+  return queryClient.invalidateQueries({
+    predicate: query =>
+      isRepositoryQuery(query.queryKey, repository, ["sources"]) &&
+      (!decodedRevision || (query.queryKey as unknown[])[4] === decodedRevision) &&
+      isAffected(trimSlashes((query.queryKey as unknown[])[5] as string))
+  });
+};
+
+/**
+ * Marks only the listings as stale, which are changed by a folder event of another user: the parents of the created
+ * and deleted folders and the listings in and below the deleted folders.
+ */
+export const invalidateChangedFolders = (
+  queryClient: QueryClient,
+  repository: Repository,
+  event: FolderEvent,
+  revision?: string
+) => {
+  const parents = [...event.createdFolders, ...event.deletedFolders].map(parentOf);
+  const deleted = event.deletedFolders.map(trimSlashes);
+  return invalidateSources(
+    queryClient,
+    repository,
+    revision,
+    path => parents.includes(path) || deleted.some(folder => path === folder || path.startsWith(folder + "/"))
+  );
+};
+
+/**
+ * Marks the listing of a single directory as stale, e.g. after events may have been missed.
+ */
+export const invalidateFolderListing = (
+  queryClient: QueryClient,
+  repository: Repository,
+  path?: string,
+  revision?: string
+) => invalidateSources(queryClient, repository, revision, listingPath => listingPath === trimSlashes(path));
@@ -0,0 +1,83 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import { useEffect } from "react";
+import { useQueryClient } from "react-query";
+import { File, Link, Repository } from "@scm-manager/ui-types";
+import { invalidateChangedFolders, invalidateFolderListing, isOwnFolderChange } from "./folderCache";
+import { FolderEvent } from "./types";
+
+const FOLDER_CHANGED = "folderChanged";
+
+/**
+ * Subscribes to the folder events of the browsed branch while the page is visible. The connection is closed as soon
+ * as the tab is hidden, so idle tabs do not hold a connection to the server. Changes missed in the meantime are
+ * picked up by reloading the browsed listing when the tab becomes visible again. Events of the folder operations of
+ * this tab are skipped, because their caches have already been updated with the result of the operation.
+ */
+export const useFolderEvents = (repository: Repository, sources?: File, revision?: string) => {
+  const queryClient = useQueryClient();
+  const link = (sources?._links.folderEvents as Link | undefined)?.href;
+  const path = sources?.path;
+
+  useEffect(() => {
+    if (!link || typeof EventSource === "undefined") {
+      return;
+    }
+    const url = revision ? `${link}?branch=${encodeURIComponent(decodeURIComponent(revision))}` : link;
+    const onFolderChanged = (event: Event) => {
+      const folderEvent = JSON.parse((event as MessageEvent).data) as FolderEvent;
+      if (!isOwnFolderChange(folderEvent.changesetId)) {
+        invalidateChangedFolders(queryClient, repository, folderEvent, revision);
+      }
+    };
+
+    let eventSource: EventSource | undefined;
+    const open = () => {
+      eventSource = new EventSource(url, { withCredentials: true });
+      eventSource.addEventListener(FOLDER_CHANGED, onFolderChanged);
+    };
+    const close = () => {
+      eventSource?.close();
+      eventSource = undefined;
+    };
+    const onVisibilityChange = () => {
+      if (document.hidden) {
+        close();
+      } else if (!eventSource) {
+        open();
+        invalidateFolderListing(queryClient, repository, path, revision);
+      }
+    };
+
+    if (!document.hidden) {
+      open();
+    }
+    document.addEventListener("visibilitychange", onVisibilityChange);
+    return () => {
+      document.removeEventListener("visibilitychange", onVisibilityChange);
+      close();
+    };
+  }, [link, path, revision, repository, queryClient]);
+};
@@ -0,0 +1,62 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import { File } from "@scm-manager/ui-types";
+import { getCreateFolderLink, getDeleteFolderLink } from "./folderLinks";
+
+describe("Folder link tests", () => {
+  const directory = (path: string, links: File["_links"] = {}): File => ({
+    name: path.substring(path.lastIndexOf("/") + 1),
+    path,
+    directory: true,
+    revision: "42",
+    _links: links
+  });
+
+  const browsed = directory("src", {
+    createFolder: { href: "/api/v2/folder/scm/core/create/src/{path}" },
+    deleteFolder: { href: "/api/v2/folder/scm/core/delete/src" },
+    createFolderTemplate: { href: "/api/v2/folder/scm/core/create/{path}" },
+    deleteFolderTemplate: { href: "/api/v2/folder/scm/core/delete/{path}" }
+  });
+
+  it("should use own links of the directory", () => {
+    expect(getCreateFolderLink(browsed, "main")).toBe("/api/v2/folder/scm/core/create/src/main");
+    expect(getDeleteFolderLink(browsed)).toBe("/api/v2/folder/scm/core/delete/src");
+  });
+
+  it("should encode path segments", () => {
+    expect(getCreateFolderLink(browsed, "100%")).toBe("/api/v2/folder/scm/core/create/src/100%25");
+  });
+
+  it("should keep slashes of nested folder names", () => {
+    expect(getCreateFolderLink(browsed, "a/b c")).toBe("/api/v2/folder/scm/core/create/src/a/b%20c");
+  });
+
+  it("should return undefined without links", () => {
+    const child = directory("src/main");
+
+    expect(getCreateFolderLink(child, "java")).toBeUndefined();
+    expect(getDeleteFolderLink(child)).toBeUndefined();
+  });
+});
@@ -0,0 +1,39 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import { File, Link } from "@scm-manager/ui-types";
+
+// The browsed directory always carries its own folder links, also if the server is configured to send link templates
+// for its child directories instead. The templates are meant for other clients of the REST API.
+
+const encodePath = (path: string) =>
+  path
+    .split("/")
+    .filter(segment => segment.length > 0)
+    .map(encodeURIComponent)
+    .join("/");
+
+export const getCreateFolderLink = (directory: File, folderName: string) =>
+  (directory._links.createFolder as Link | undefined)?.href.replace("{path}", encodePath(folderName));
+
+export const getDeleteFolderLink = (directory: File) => (directory._links.deleteFolder as Link | undefined)?.href;
@@ -22,12 +22,15 @@
  * SOFTWARE.
  */
 
-import { Changeset, File, Link, Repository } from "@scm-manager/ui-types";
+import { File, Repository } from "@scm-manager/ui-types";
 import { useHistory, useLocation } from "react-router-dom";
-import { Commit } from "./types";
+import { Commit, FolderChange } from "./types";
 import { createRedirectUrl } from "./createRedirectUrl";
 import { useMutation, useQueryClient } from "react-query";
 import { apiClient } from "@scm-manager/ui-components";
+import { updateFolderCaches } from "./folderCache";
+import { getCreateFolderLink, getDeleteFolderLink } from "./folderLinks";
+import { CREATE_FOLDER_MUTATION, DELETE_FOLDER_MUTATION } from "./folderMutations";
 
 type DeleteFolderRequest = {
   commit: Commit;
@@ -36,18 +39,27 @@ type DeleteFolderRequest = {
   revision?: string;
 };
 
+const withListing = (link: string) => `${link}${link.includes("?") ? "&" : "?"}listing=true`;
+
 export const useDeleteFolder = () => {
+  const queryClient = useQueryClient();
   const history = useHistory();
   const location = useLocation();
   const decodedLocationPathname = decodeURIComponent(location.pathname);
 
-  const { mutate, data, isLoading, error } = useMutation<Changeset, Error, DeleteFolderRequest>(
+  const { mutate, data, isLoading, error } = useMutation<FolderChange, Error, DeleteFolderRequest>(
+    DELETE_FOLDER_MUTATION,
     ({ commit, sources }) => {
-      const link = (sources._links.deleteFolder as Link).href;
-      return apiClient.post(link, commit).then(response => response.json());
+      const link = getDeleteFolderLink(sources);
+      if (!link) {
+        return Promise.reject(new Error("no link to delete folder " + sources.path));
+      }
+      return apiClient.post(withListing(link), commit).then(response => response.json());
     },
     {
-      onSuccess: async (changeset, { repository, revision, sources }) => {
+      onSuccess: async (change, { repository, revision, sources }) => {
+        const changeset = change._embedded.changeset;
+        await updateFolderCaches(queryClient, repository, changeset, change._embedded.parent, revision);
         const filePath = decodedLocationPathname
           .substring(0, decodedLocationPathname.length - sources.name.length - 1)
           .split("/sources/" + revision)[1];
@@ -61,7 +73,7 @@ export const useDeleteFolder = () => {
     },
     isLoading,
     error,
-    changeset: data
+    changeset: data?._embedded.changeset
   };
 };
 
@@ -69,6 +81,7 @@ type CreateFolderRequest = {
   repository: Repository;
   sources: File;
   path?: string;
+  revision?: string;
   commit: Commit;
   folderName: string;
 };
@@ -76,14 +89,19 @@ type CreateFolderRequest = {
 export const useCreateFolder = () => {
   const queryClient = useQueryClient();
   const history = useHistory();
-  const { mutate, data, isLoading, error } = useMutation<Changeset, Error, CreateFolderRequest>(
+  const { mutate, data, isLoading, error } = useMutation<FolderChange, Error, CreateFolderRequest>(
+    CREATE_FOLDER_MUTATION,
     ({ commit, folderName, sources }) => {
-      const createLink = (sources._links.createFolder as Link).href.replace("{path}", folderName);
-      return apiClient.post(createLink, commit).then(response => response.json());
+      const createLink = getCreateFolderLink(sources, folderName);
+      if (!createLink) {
+        return Promise.reject(new Error("no link to create folder in " + sources.path));
+      }
+      return apiClient.post(withListing(createLink), commit).then(response => response.json());
     },
     {
-      onSuccess: async (changeset, { repository, path, folderName }) => {
-        await queryClient.invalidateQueries(["repository", repository.namespace, repository.name]);
+      onSuccess: async (change, { repository, path, folderName, revision }) => {
+        const changeset = change._embedded.changeset;
+        await updateFolderCaches(queryClient, repository, changeset, change._embedded.parent, revision);
         history.push(
           createRedirectUrl(
             repository,
@@ -95,11 +113,18 @@ export const useCreateFolder = () => {
     }
   );
   return {
-    create: (repository: Repository, parent: File, folderName: string, commit: Commit, path?: string) => {
-      mutate({ repository, folderName, commit, sources: parent, path });
+    create: (
+      repository: Repository,
+      parent: File,
+      folderName: string,
+      commit: Commit,
+      path?: string,
+      revision?: string
+    ) => {
+      mutate({ repository, folderName, commit, sources: parent, path, revision });
     },
     isLoading,
     error,
-    changeset: data
+    changeset: data?._embedded.changeset
   };
 };
@@ -23,10 +23,19 @@
  */
 
 import { binder } from "@scm-manager/ui-extensions";
+import { ConfigurationBinder as cfgBinder } from "@scm-manager/ui-components";
 import SourcesActionbar from "./SourcesActionbar";
 import React from "react";
 import createUploadExtension from "./FileUploadOptions";
+import GlobalFolderConfiguration from "./GlobalFolderConfiguration";
 
 binder.bind("repos.sources.actionbar", SourcesActionbar, ({ sources }) => !sources || sources.directory);
 binder.bind("repos.sources.empty.actionbar", SourcesActionbar, ({ sources }) => !sources || sources.directory);
 binder.bind("editorPlugin.upload", createUploadExtension);
+
+cfgBinder.bindGlobal(
+  "/manage-folder",
+  "scm-manage-folder-plugin.config.link",
+  "manageFolderConfig",
+  GlobalFolderConfiguration
+);
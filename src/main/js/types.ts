@@ -22,7 +22,38 @@
  * SOFTWARE.
  */
 
+import { Changeset, File, HalRepresentation } from "@scm-manager/ui-types";
+
 export type Commit = {
   commitMessage: string;
   branch: string;
 };
+
+export type FolderChange = HalRepresentation & {
+  revision: string;
+  _embedded: {
+    changeset: Changeset;
+    parent?: File;
+  };
+};
+
+export type FolderConfig = HalRepresentation & {
+  maxEntries: number;
+  maxDepth: number;
+  maxBytesPerCommit: number;
+  maxPathsPerBatch: number;
+  repositoryRate: number;
+  repositoryBurst: number;
+  userRate: number;
+  userBurst: number;
+  maxWaitMillis: number;
+  warmUpBrowseCache: boolean;
+  folderLinkTemplates: boolean;
+};
+
+export type FolderEvent = {
+  changesetId: string;
+  branch?: string;
+  createdFolders: string[];
+  deletedFolders: string[];
+};
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+import { fromEvent } from "file-selector";
+import { droppedItemHierarchyProber } from "./upload";
+import { captureDroppedItems } from "./droppedItems";
+
+jest.mock("file-selector", () => ({ fromEvent: jest.fn() }));
+
+const fileHandle = (name: string) => ({
+  kind: "file",
+  name,
+  getFile: () => Promise.resolve(new File([name], name))
+});
+
+const directoryHandle = (name: string, ...children: any[]) => ({
+  kind: "directory",
+  name,
+  entries: async function*() {
+    for (const child of children) {
+      yield [child.name, child];
+    }
+  }
+});
+
+const dropEvent = (...handles: any[]) =>
+  captureDroppedItems({
+    dataTransfer: {
+      items: handles.map(handle => ({
+        kind: "file",
+        getAsFileSystemHandle: () => Promise.resolve(handle)
+      }))
+    }
+  });
+
+const collectPaths = (fileHandler: jest.Mock) =>
+  fileHandler.mock.calls
+    .flatMap(([files]) => (Array.isArray(files) ? files : [files]))
+    .map(file => file.path)
+    .sort();
+
+describe("Dropped item hierarchy prober", () => {
+  it("should hand all files of all dropped items to the file handler", async () => {
+    const fileHandler = jest.fn();
+    const event = dropEvent(
+      directoryHandle("a", fileHandle("a.txt"), directoryHandle("b", fileHandle("b.txt"))),
+      fileHandle("c.txt")
+    );
+
+    await droppedItemHierarchyProber(event, fileHandler);
+
+    expect(collectPaths(fileHandler)).toEqual(["/a/a.txt", "/a/b/b.txt", "/c.txt"]);
+  });
+
+  it("should capture the handles before the drop handler yields", () => {
+    const getAsFileSystemHandle = jest.fn().mockResolvedValue(fileHandle("a.txt"));
+
+    const dropped = captureDroppedItems({ dataTransfer: { items: [{ kind: "file", getAsFileSystemHandle }] } });
+
+    expect(getAsFileSystemHandle).toHaveBeenCalled();
+    expect(dropped.handles).toHaveLength(1);
+  });
+
+  it("should add markers for all empty folders without resolver", async () => {
+    const fileHandler = jest.fn();
+    const event = dropEvent(directoryHandle("a", directoryHandle("empty")), directoryHandle("other"));
+
+    const result = await droppedItemHierarchyProber(event, fileHandler);
+
+    expect(result.hierarchyDetails.emptyFolders.map(folder => folder.path).sort()).toEqual(["/a/empty", "/other"]);
+    expect(collectPaths(fileHandler)).toEqual(["/a/empty/.scmkeep", "/other/.scmkeep"]);
+  });
+
+  it("should add markers only for folders returned by the resolver", async () => {
+    const fileHandler = jest.fn();
+    const resolver = jest.fn().mockResolvedValue(["a/new"]);
+    const event = dropEvent(directoryHandle("a", directoryHandle("existing"), directoryHandle("new")));
+
+    await droppedItemHierarchyProber(event, fileHandler, resolver);
+
+    expect(resolver).toHaveBeenCalledTimes(1);
+    expect(resolver.mock.calls[0][0].sort()).toEqual(["a/existing", "a/new"]);
+    expect(resolver.mock.calls[0][1]).toBe(0);
+    expect(collectPaths(fileHandler)).toEqual(["/a/new/.scmkeep"]);
+  });
+
+  it("should pass the size of all files to the resolver", async () => {
+    const resolver = jest.fn().mockResolvedValue([]);
+    const event = dropEvent(directoryHandle("a", fileHandle("a.txt")), fileHandle("bb.txt"));
+
+    await droppedItemHierarchyProber(event, jest.fn(), resolver);
+
+    expect(resolver).toHaveBeenCalledWith([], 11, 2);
+  });
+
+  it("should check the limits before handing files without file system handles", async () => {
+    const fileHandler = jest.fn();
+    const resolver = jest.fn().mockRejectedValue(new Error("limit exceeded"));
+    (fromEvent as jest.Mock).mockResolvedValue([new File(["abc"], "a.txt")]);
+    const event = captureDroppedItems({ dataTransfer: { items: [{ kind: "file" }] } });
+
+    await expect(droppedItemHierarchyProber(event, fileHandler, resolver)).rejects.toThrow("limit exceeded");
+
+    expect(resolver).toHaveBeenCalledWith([], 3, 1);
+    expect(fileHandler).not.toHaveBeenCalled();
+  });
+
+  it("should hand files to the file handler before the resolver answers", async () => {
+    const fileHandler = jest.fn();
+    let resolveCheck: (markers: string[]) => void = () => undefined;
+    const resolver = jest.fn(() => new Promise<string[]>(resolve => (resolveCheck = resolve)));
+    const event = dropEvent(directoryHandle("a", fileHandle("a.txt")));
+
+    const result = droppedItemHierarchyProber(event, fileHandler, resolver, jest.fn());
+    await new Promise(resolve => setTimeout(resolve, 100));
+
+    expect(resolver).toHaveBeenCalled();
+    expect(collectPaths(fileHandler)).toEqual(["/a/a.txt"]);
+
+    resolveCheck([]);
+    await result;
+  });
+
+  it("should remove handed files if the resolver fails", async () => {
+    const fileHandler = jest.fn();
+    const removeHandler = jest.fn();
+    const resolver = jest.fn().mockRejectedValue(new Error("limit exceeded"));
+    const files = Array.from({ length: 300 }, (_, index) => fileHandle(`${index}.txt`));
+    const event = dropEvent(directoryHandle("a", ...files));
+
+    await expect(droppedItemHierarchyProber(event, fileHandler, resolver, removeHandler)).rejects.toThrow(
+      "limit exceeded"
+    );
+
+    expect(fileHandler).toHaveBeenCalledTimes(1);
+    expect(removeHandler).toHaveBeenCalledWith(fileHandler.mock.calls[0][0]);
+    await new Promise(resolve => setTimeout(resolve, 100));
+    expect(fileHandler).toHaveBeenCalledTimes(1);
+  });
+
+  it("should not hand any file to the file handler if the resolver fails without remove handler", async () => {
+    const fileHandler = jest.fn();
+    const resolver = jest.fn().mockRejectedValue(new Error("limit exceeded"));
+    const event = dropEvent(directoryHandle("a", fileHandle("a.txt"), directoryHandle("empty")));
+
+    await expect(droppedItemHierarchyProber(event, fileHandler, resolver)).rejects.toThrow("limit exceeded");
+
+    expect(fileHandler).not.toHaveBeenCalled();
+  });
+});
@@ -21,73 +21,198 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-import { fromEvent } from "file-selector";
+import { DroppedFile, DroppedItems } from "./droppedItems";
 
-export async function droppedItemHierarchyProber(e: any, fileHandler: any) {
-  const filesDataPromise = fromEvent(e);
-  const hierarchyDetails = await probeFolders(e);
+const KEEP_FILE_NAME = ".scmkeep";
+const MAX_CONCURRENT_DIRECTORIES = 8;
+const BATCH_SIZE = 250;
+const FLUSH_DELAY = 50;
 
-  const filesData = await filesDataPromise;
+type FileHandler = (files: DroppedFile | DroppedFile[]) => void;
 
-  fileHandler(filesData);
-  for (const folder of hierarchyDetails.emptyFolders) {
-    let file = new File([""], ".scmkeep", { type: "text/plain" });
-    file.path = folder.path + "/" + file.name;
-    fileHandler(file);
-  }
-  return { filesData, hierarchyDetails };
-}
+/**
+ * Removes files from the upload, which were already handed to the file handler.
+ */
+export type RemoveHandler = (files: DroppedFile[]) => void;
 
-async function probeFolders(event: any) {
-  const hierarchyDetails = {
-    emptyFolders: [],
-    allFolders: [],
-    files: []
-  };
+/**
+ * Decides, which of the empty folders of the upload need a marker file. Without it, every empty folder gets one. The
+ * resolver may reject uploads exceeding the limits of the server, based on the folders, the size of all files and
+ * their number. It is called after the whole hierarchy has been traversed.
+ */
+export type MarkerResolver = (emptyFolders: string[], totalBytes: number, fileCount: number) => Promise<string[]>;
 
-  if (!event.dataTransfer.items[0].getAsFileSystemHandle || !(event.dataTransfer.items[0].getAsFileSystemHandle instanceof Function)) {
-    // Feature not supported therefore abort
-    return hierarchyDetails;
-  }
+const sizeOf = (files: DroppedFile[]) => files.reduce((sum, file) => sum + file.size, 0);
 
-  const rootHandle = await event.dataTransfer.items[0].getAsFileSystemHandle();
-  const path = `/${rootHandle.name}`;
-  if (rootHandle.kind === "directory") {
-    await traverseDirectory(rootHandle, path, hierarchyDetails);
-  } else if (rootHandle.kind === "file") {
-    const file = { name: rootHandle.name, kind: rootHandle.kind, path };
-    hierarchyDetails.files.push(file);
-  }
+type HierarchyDetails = {
+  emptyFolders: { path: string }[];
+  files: { path: string }[];
+};
 
-  return hierarchyDetails;
-}
+type DirectoryTask = {
+  handle: any;
+  path: string;
+};
 
-async function traverseDirectory(dirHandle, currentPath, hierarchyDetails) {
-  const folderDetails = {
-    name: dirHandle.name,
-    kind: dirHandle.kind,
-    path: currentPath,
-    children: []
+/**
+ * Hands the files to the file handler in batches while they are found, so that the upload list is not re-rendered
+ * for every single file. Files held back are only handed over by the final flush.
+ */
+const createBatcher = (fileHandler: FileHandler, holdBack: boolean) => {
+  let batch: DroppedFile[] = [];
+  let timer: ReturnType<typeof setTimeout> | undefined;
+  const handed: DroppedFile[] = [];
+  const flush = () => {
+    if (timer !== undefined) {
+      clearTimeout(timer);
+      timer = undefined;
+    }
+    if (batch.length > 0) {
+      handed.push(...batch);
+      fileHandler(batch);
+      batch = [];
+    }
+  };
+  return {
+    add: (file: DroppedFile) => {
+      batch.push(file);
+      if (holdBack) {
+        return;
+      }
+      if (batch.length >= BATCH_SIZE) {
+        flush();
+      } else if (timer === undefined) {
+        timer = setTimeout(flush, FLUSH_DELAY);
+      }
+    },
+    flush,
+    cancel: () => {
+      if (timer !== undefined) {
+        clearTimeout(timer);
+        timer = undefined;
+      }
+      batch = [];
+    },
+    handed
   };
+};
 
-  for await (const [name, handle] of dirHandle.entries()) {
-    const path = `${currentPath}/${name}`;
+const traverse = (roots: DirectoryTask[], onFile: (file: DroppedFile) => void, onEmptyFolder: (path: string) => void) =>
+  new Promise<void>((resolve, reject) => {
+    const queue: DirectoryTask[] = [...roots];
+    let next = 0;
+    let active = 0;
+    let failed = false;
 
-    if (handle.kind === "file") {
-      const file = { path, name: handle.name, kind: handle.kind };
-      hierarchyDetails.files.push(file);
-      folderDetails.children.push(file);
-    } else if (handle.kind === "directory") {
-      const childDetails = await traverseDirectory(handle, path, hierarchyDetails); //
+    const visitDirectory = async ({ handle, path }: DirectoryTask) => {
+      let empty = true;
+      for await (const [name, child] of handle.entries()) {
+        empty = false;
+        const childPath = `${path}/${name}`;
+        if (child.kind === "file") {
+          const file: DroppedFile = await child.getFile();
+          file.path = childPath;
+          onFile(file);
+        } else if (child.kind === "directory") {
+          queue.push({ handle: child, path: childPath });
+          schedule();
+        }
+      }
+      if (empty) {
+        onEmptyFolder(path);
+      }
+    };
+
+    const schedule = () => {
+      if (failed) {
+        return;
+      }
+      while (active < MAX_CONCURRENT_DIRECTORIES && next < queue.length) {
+        const task = queue[next];
+        queue[next++] = undefined as any;
+        ++active;
+        visitDirectory(task).then(
+          () => {
+            --active;
+            schedule();
+          },
+          error => {
+            failed = true;
+            reject(error);
+          }
+        );
+      }
+      if (active === 0 && next >= queue.length) {
+        resolve();
+      }
+    };
+
+    schedule();
+  });
+
+export async function droppedItemHierarchyProber(
+  dropped: DroppedItems,
+  fileHandler: FileHandler,
+  resolveMarkers?: MarkerResolver,
+  removeHandler?: RemoveHandler
+) {
+  if (!dropped.handles) {
+    // Feature not supported, therefore empty folders cannot be detected
+    const filesData = (await dropped.files) ?? [];
+    if (resolveMarkers) {
+      // there are no empty folders to resolve, but the limits of the server are checked anyway
+      await resolveMarkers([], sizeOf(filesData), filesData.length);
+    }
+    fileHandler(filesData);
+    return { filesData, hierarchyDetails: { emptyFolders: [], files: filesData } };
+  }
+  const handlePromises = dropped.handles;
+
+  // without a way to take files back, nothing is queued before the resolver succeeded, so that a rejected or failed
+  // check does not leave a partial upload
+  const batcher = createBatcher(fileHandler, !!resolveMarkers && !removeHandler);
+  const filesData: DroppedFile[] = [];
+  const hierarchyDetails: HierarchyDetails = { emptyFolders: [], files: [] };
+  const onFile = (file: DroppedFile) => {
+    filesData.push(file);
+    hierarchyDetails.files.push({ path: file.path! });
+    batcher.add(file);
+  };
 
-      if (childDetails.children.length === 0) {
-        hierarchyDetails.emptyFolders.push(childDetails);
+  let markerFolders: string[];
+  try {
+    const roots: DirectoryTask[] = [];
+    for (const handle of await Promise.all(handlePromises)) {
+      const path = `/${handle.name}`;
+      if (handle.kind === "directory") {
+        roots.push({ handle, path });
+      } else if (handle.kind === "file") {
+        const file: DroppedFile = await handle.getFile();
+        file.path = path;
+        onFile(file);
       }
+    }
+
+    await traverse(roots, onFile, path => hierarchyDetails.emptyFolders.push({ path }));
 
-      folderDetails.children.push(childDetails);
+    const emptyFolders = hierarchyDetails.emptyFolders.map(folder => folder.path.substring(1));
+    markerFolders = resolveMarkers
+      ? await resolveMarkers(emptyFolders, sizeOf(filesData), filesData.length)
+      : emptyFolders;
+  } catch (error) {
+    batcher.cancel();
+    if (removeHandler && batcher.handed.length > 0) {
+      removeHandler(batcher.handed);
     }
+    throw error;
   }
 
-  hierarchyDetails.allFolders.push(folderDetails);
-  return folderDetails;
+  markerFolders.forEach(folder => {
+    const marker: DroppedFile = new File([""], KEEP_FILE_NAME, { type: "text/plain" });
+    marker.path = `/${folder}/${KEEP_FILE_NAME}`;
+    batcher.add(marker);
+  });
+  batcher.flush();
+
+  return { filesData, hierarchyDetails };
 }
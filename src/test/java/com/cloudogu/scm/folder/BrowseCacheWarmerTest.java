@@ -0,0 +1,216 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.PostReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.HookChangesetBuilder;
+import sonia.scm.repository.api.HookContext;
+import sonia.scm.repository.api.HookFeature;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@SubjectAware("trillian")
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class BrowseCacheWarmerTest {
+
+  @Mock
+  RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  RepositoryService repositoryService;
+  @Mock(answer = Answers.RETURNS_SELF)
+  BrowseCommandBuilder browseCommandBuilder;
+  @Mock
+  FolderConfigStore configStore;
+  @Mock
+  Executor executor;
+  @Mock
+  PostReceiveRepositoryHookEvent event;
+  @Mock
+  HookContext hookContext;
+  @Mock
+  HookChangesetBuilder changesetBuilder;
+
+  final FolderConfig config = new FolderConfig();
+  final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  BrowseCacheWarmer warmer;
+
+  @BeforeEach
+  void setUpObjectUnderTest() {
+    lenient().when(configStore.get()).thenReturn(config);
+    lenient().when(repositoryServiceFactory.create(any(NamespaceAndName.class))).thenReturn(repositoryService);
+    lenient().when(repositoryService.getBrowseCommand()).thenReturn(browseCommandBuilder);
+    lenient().when(event.getRepository()).thenReturn(repository);
+    lenient().when(event.getContext()).thenReturn(hookContext);
+    lenient().when(hookContext.isFeatureSupported(HookFeature.CHANGESET_PROVIDER)).thenReturn(true);
+    lenient().when(hookContext.getChangesetProvider()).thenReturn(changesetBuilder);
+    lenient().when(changesetBuilder.getChangesets()).thenReturn(List.of(changeset()));
+
+    warmer = new BrowseCacheWarmer(repositoryServiceFactory, configStore, executor);
+  }
+
+  @Test
+  void shouldNotWarmUpByDefault() {
+    warmer.onEvent(event);
+    warmer.warmUp(repository, changeset(), "src");
+
+    verifyNoInteractions(executor, repositoryServiceFactory);
+  }
+
+  @Test
+  void shouldIgnoreMissingChangeset() {
+    config.setWarmUpBrowseCache(true);
+
+    warmer.onEvent(event);
+    warmer.warmUp(repository, null, "src");
+
+    verifyNoInteractions(executor, repositoryServiceFactory);
+  }
+
+  @Test
+  void shouldNotWarmUpBeforePostReceiveEventWasDispatched() {
+    config.setWarmUpBrowseCache(true);
+
+    warmer.warmUp(repository, changeset(), "src");
+    warmer.onEvent(event);
+
+    verifyNoInteractions(executor, repositoryServiceFactory);
+  }
+
+  @Test
+  void shouldWarmUpOnlyOncePerEvent() {
+    config.setWarmUpBrowseCache(true);
+
+    warmer.onEvent(event);
+    warmer.warmUp(repository, changeset(), "src");
+    warmer.warmUp(repository, changeset(), "src");
+
+    verify(executor, times(1)).execute(any(Runnable.class));
+  }
+
+  @Test
+  void shouldBrowseBranchOfNewChangeset() throws IOException {
+    config.setWarmUpBrowseCache(true);
+    Changeset changeset = changeset();
+    changeset.setBranches(List.of("develop"));
+
+    warmer.onEvent(event);
+    warmer.warmUp(repository, changeset, "src");
+    runSubmittedTask();
+
+    verify(repositoryServiceFactory).create(repository.getNamespaceAndName());
+    verify(browseCommandBuilder).setRevision("develop");
+    verify(browseCommandBuilder).setPath("src");
+    verify(browseCommandBuilder).getBrowserResult();
+    verify(repositoryService).close();
+  }
+
+  @Test
+  void shouldUseParametersOfSourcesView() throws IOException {
+    config.setWarmUpBrowseCache(true);
+
+    warmer.onEvent(event);
+    warmer.warmUp(repository, changeset(), "src");
+    runSubmittedTask();
+
+    verify(browseCommandBuilder).setOffset(0);
+    verify(browseCommandBuilder).setCollapse(true);
+    verify(browseCommandBuilder, never()).setLimit(anyInt());
+    verify(browseCommandBuilder, never()).setDisableCache(true);
+    verify(browseCommandBuilder, never()).setDisableLastCommit(true);
+  }
+
+  @Test
+  void shouldBrowseChangesetWithoutBranch() throws IOException {
+    config.setWarmUpBrowseCache(true);
+
+    warmer.onEvent(event);
+    warmer.warmUp(repository, changeset(), "");
+    runSubmittedTask();
+
+    verify(browseCommandBuilder).setRevision("1337");
+    verify(browseCommandBuilder).setPath("");
+  }
+
+  @Test
+  void shouldIgnoreEventsOfOtherChangesets() {
+    config.setWarmUpBrowseCache(true);
+    when(changesetBuilder.getChangesets()).thenReturn(List.of(new Changeset("42", 0L, new Person("Arthur"))));
+
+    warmer.onEvent(event);
+    warmer.warmUp(repository, changeset(), "src");
+
+    verifyNoInteractions(executor);
+  }
+
+  @Test
+  void shouldIgnoreFailures() throws IOException {
+    config.setWarmUpBrowseCache(true);
+    when(browseCommandBuilder.getBrowserResult()).thenThrow(new IOException("gone"));
+
+    warmer.onEvent(event);
+    warmer.warmUp(repository, changeset(), "src");
+    runSubmittedTask();
+
+    verify(repositoryService).close();
+  }
+
+  private void runSubmittedTask() {
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor).execute(captor.capture());
+    captor.getValue().run();
+  }
+
+  private Changeset changeset() {
+    return new Changeset("1337", 0L, new Person("Trillian"));
+  }
+}
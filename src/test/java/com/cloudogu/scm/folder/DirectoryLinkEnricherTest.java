@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.google.inject.util.Providers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.HalAppender;
+import sonia.scm.api.v2.resources.HalEnricherContext;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.NamespaceAndName;
+
+import java.net.URI;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class DirectoryLinkEnricherTest {
+
+  @Mock
+  private HalEnricherContext context;
+  @Mock
+  private HalAppender appender;
+
+  private DirectoryLinkEnricher enricher;
+
+  @BeforeEach
+  void setUpObjectUnderTest() {
+    ScmPathInfoStore pathInfoStore = new ScmPathInfoStore();
+    pathInfoStore.set(() -> URI.create("/"));
+    enricher = new DirectoryLinkEnricher(Providers.of(pathInfoStore));
+  }
+
+  @Test
+  void shouldAppendLinksToBrowsedDirectory() {
+    setUpHalContext("src", directory("src"));
+
+    enricher.enrich(context, appender);
+
+    verify(appender).appendLink("folderTree", "/v2/folder/hitchhiker/HeartOfGold/tree/src");
+    verify(appender).appendLink("folderArchive", "/v2/folder/hitchhiker/HeartOfGold/archive/src");
+    verify(appender).appendLink("folderManifest", "/v2/folder/hitchhiker/HeartOfGold/manifest/src");
+    verify(appender).appendLink("folderLastModified", "/v2/folder/hitchhiker/HeartOfGold/last-modified/src");
+    verify(appender).appendLink("folderDiff", "/v2/folder/hitchhiker/HeartOfGold/diff/src");
+    verify(appender).appendLink("folderSearch", "/v2/folder/hitchhiker/HeartOfGold/search");
+    verify(appender).appendLink("folderEvents", "/v2/folder/hitchhiker/HeartOfGold/events");
+  }
+
+  @Test
+  void shouldNotAppendLinksToChildDirectories() {
+    setUpHalContext("src", directory("src/main"));
+
+    enricher.enrich(context, appender);
+
+    verify(appender, never()).appendLink(anyString(), anyString());
+  }
+
+  @Test
+  void shouldNotAppendLinksToFiles() {
+    FileObject file = new FileObject();
+    file.setPath("README.md");
+    setUpHalContext("README.md", file);
+
+    enricher.enrich(context, appender);
+
+    verifyNoMoreInteractions(appender);
+  }
+
+  private void setUpHalContext(String browsedPath, FileObject fileObject) {
+    doReturn(new NamespaceAndName("hitchhiker", "HeartOfGold")).when(context).oneRequireByType(NamespaceAndName.class);
+    doReturn(fileObject).when(context).oneRequireByType(FileObject.class);
+    doReturn(new BrowserResult("42", "master", directory(browsedPath))).when(context).oneRequireByType(BrowserResult.class);
+  }
+
+  private FileObject directory(String path) {
+    FileObject directory = new FileObject();
+    directory.setPath(path);
+    directory.setDirectory(true);
+    return directory;
+  }
+}
@@ -73,10 +73,13 @@ class FileLinkEnricherTest {
   private HalEnricherContext context;
   @Mock
   private HalAppender appender;
+  @Mock
+  private FolderConfigStore configStore;
 
   private final Repository repository = RepositoryTestData.createHeartOfGold();
   BrowserResult fileResult = createBrowserResult(false);
   BrowserResult directoryResult = createBrowserResult(true);
+  final FolderConfig config = new FolderConfig();
 
   private FileLinkEnricher enricher;
 
@@ -85,7 +88,8 @@ class FileLinkEnricherTest {
     ScmPathInfoStore pathInfoStore = new ScmPathInfoStore();
     pathInfoStore.set(() -> URI.create("/"));
     when(repositoryService.getRepository()).thenReturn(repository);
-    enricher = new FileLinkEnricher(editorPreconditions, changeGuardCheck, Providers.of(pathInfoStore));
+    lenient().when(configStore.get()).thenReturn(config);
+    enricher = new FileLinkEnricher(editorPreconditions, changeGuardCheck, Providers.of(pathInfoStore), configStore);
   }
 
   @Nested
@@ -171,6 +175,70 @@ class FileLinkEnricherTest {
       verify(appender, never()).appendLink(eq("deleteFolder"), any());
       verify(appender).appendLink("createFolder", "/v2/folder/hitchhiker/HeartOfGold/create/{path}");
     }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldAddTransplantLinkOnlyToBrowsedDirectory() {
+      makeRepositoryEditable();
+      directoryResult.getFile().setPath("src");
+      setUpHalContext(repository, true, "src/main");
+
+      enricher.enrich(context, appender);
+
+      verify(appender, never()).appendLink(eq("transplantFolder"), any());
+      verify(appender, never()).appendLink(eq("restoreFolder"), any());
+    }
+
+    @Nested
+    class WithLinkTemplates {
+
+      @BeforeEach
+      void enableTemplates() {
+        config.setFolderLinkTemplates(true);
+      }
+
+      @SubjectAware(permissions = "repository:push:*")
+      @Test
+      void shouldAddLinksAndTemplatesToBrowsedDirectory() {
+        makeRepositoryEditable();
+        directoryResult.getFile().setPath("src");
+        setUpHalContext(repository, true, "src");
+
+        enricher.enrich(context, appender);
+
+        verify(appender).appendLink("createFolder", "/v2/folder/hitchhiker/HeartOfGold/create/src/{path}");
+        verify(appender).appendLink("deleteFolder", "/v2/folder/hitchhiker/HeartOfGold/delete/src");
+        verify(appender).appendLink("createFolderTemplate", "/v2/folder/hitchhiker/HeartOfGold/create/{path}");
+        verify(appender).appendLink("deleteFolderTemplate", "/v2/folder/hitchhiker/HeartOfGold/delete/{path}");
+        verify(appender).appendLink("transplantFolder", "/v2/folder/hitchhiker/HeartOfGold/transplant/src/{path}");
+        verify(appender).appendLink("restoreFolder", "/v2/folder/hitchhiker/HeartOfGold/restore/src/{path}");
+      }
+
+      @SubjectAware(permissions = "repository:push:*")
+      @Test
+      void shouldAddTemplatesToBrowsedRoot() {
+        makeRepositoryEditable();
+        directoryResult.getFile().setPath("");
+        setUpHalContext(repository, true, "");
+
+        enricher.enrich(context, appender);
+
+        verify(appender, never()).appendLink(eq("deleteFolder"), any());
+        verify(appender).appendLink("deleteFolderTemplate", "/v2/folder/hitchhiker/HeartOfGold/delete/{path}");
+      }
+
+      @SubjectAware(permissions = "repository:push:*")
+      @Test
+      void shouldNotEnrichChildDirectories() {
+        directoryResult.getFile().setPath("src");
+        setUpHalContext(repository, true, "src/main");
+
+        enricher.enrich(context, appender);
+
+        verifyNoMoreInteractions(appender);
+        verify(editorPreconditions, never()).isEditable(any(), any());
+      }
+    }
   }
 
   @SubjectAware(permissions = "repository:push:*")
@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.google.common.base.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.NamespaceAndName;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+@SubjectAware("trillian")
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class FolderAdmissionTest {
+
+  private static final NamespaceAndName HEART_OF_GOLD = new NamespaceAndName("hitchhiker", "HeartOfGold");
+  private static final NamespaceAndName PURE_HEART = new NamespaceAndName("hitchhiker", "PureHeart");
+  private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Mock
+  FolderConfigStore configStore;
+
+  final FolderConfig config = new FolderConfig();
+  final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  final List<Long> sleeps = new ArrayList<>();
+  long now = 42;
+  final Ticker ticker = new Ticker() {
+    @Override
+    public long read() {
+      return now;
+    }
+  };
+
+  FolderAdmission admission;
+
+  @BeforeEach
+  void setUpObjectUnderTest() {
+    when(configStore.get()).thenReturn(config);
+    config.setRepositoryRate(60);
+    config.setRepositoryBurst(2);
+    config.setUserRate(0);
+    config.setMaxWaitMillis(5_000);
+
+    admission = new FolderAdmission(configStore, meterRegistry, ticker, sleeps::add);
+  }
+
+  @Test
+  void shouldAdmitBurstWithoutWaiting() {
+    admission.acquire(HEART_OF_GOLD);
+    admission.acquire(HEART_OF_GOLD);
+
+    assertThat(sleeps).isEmpty();
+    assertThat(counter("admitted")).isEqualTo(2);
+  }
+
+  @Test
+  void shouldQueueOperationsInArrivalOrder() {
+    admission.acquire(HEART_OF_GOLD);
+    admission.acquire(HEART_OF_GOLD);
+    admission.acquire(HEART_OF_GOLD);
+    admission.acquire(HEART_OF_GOLD);
+
+    assertThat(sleeps).containsExactly(ONE_SECOND, 2 * ONE_SECOND);
+    assertThat(counter("queued")).isEqualTo(2);
+    assertThat(meterRegistry.get("scm.folder.admission.wait").timer().count()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldRejectIfWaitExceedsMaximum() {
+    config.setMaxWaitMillis(500);
+    admission.acquire(HEART_OF_GOLD);
+    admission.acquire(HEART_OF_GOLD);
+
+    FolderOperationRejectedException exception = assertThrows(
+      FolderOperationRejectedException.class,
+      () -> admission.acquire(HEART_OF_GOLD)
+    );
+
+    assertThat(exception.getRetryAfterSeconds()).isEqualTo(1);
+    assertThat(counter("rejected")).isEqualTo(1);
+  }
+
+  @Test
+  void shouldNotReserveTokenForRejectedOperation() {
+    config.setMaxWaitMillis(0);
+    admission.acquire(HEART_OF_GOLD);
+    admission.acquire(HEART_OF_GOLD);
+    assertThrows(FolderOperationRejectedException.class, () -> admission.acquire(HEART_OF_GOLD));
+
+    now += ONE_SECOND;
+    admission.acquire(HEART_OF_GOLD);
+
+    assertThat(sleeps).isEmpty();
+  }
+
+  @Test
+  void shouldReturnReservedTokenIfInterrupted() {
+    List<Long> interruptedSleeps = new ArrayList<>();
+    FolderAdmission interruptedAdmission = new FolderAdmission(configStore, meterRegistry, ticker, nanos -> {
+      interruptedSleeps.add(nanos);
+      if (interruptedSleeps.size() == 1) {
+        throw new InterruptedException();
+      }
+    });
+    interruptedAdmission.acquire(HEART_OF_GOLD);
+    interruptedAdmission.acquire(HEART_OF_GOLD);
+
+    assertThrows(FolderOperationRejectedException.class, () -> interruptedAdmission.acquire(HEART_OF_GOLD));
+    assertThat(Thread.interrupted()).isTrue();
+    interruptedAdmission.acquire(HEART_OF_GOLD);
+
+    assertThat(interruptedSleeps).containsExactly(ONE_SECOND, ONE_SECOND);
+  }
+
+  @Test
+  void shouldUseOneBucketPerRepository() {
+    config.setMaxWaitMillis(0);
+    admission.acquire(HEART_OF_GOLD);
+    admission.acquire(HEART_OF_GOLD);
+
+    admission.acquire(PURE_HEART);
+
+    assertThrows(FolderOperationRejectedException.class, () -> admission.acquire(HEART_OF_GOLD));
+  }
+
+  @Test
+  void shouldLimitUserAcrossRepositories() {
+    config.setRepositoryRate(0);
+    config.setUserRate(60);
+    config.setUserBurst(1);
+    config.setMaxWaitMillis(0);
+    admission.acquire(HEART_OF_GOLD);
+
+    assertThrows(FolderOperationRejectedException.class, () -> admission.acquire(PURE_HEART));
+  }
+
+  @Test
+  void shouldWaitForSlowerBucket() {
+    config.setUserRate(30);
+    config.setUserBurst(1);
+    admission.acquire(HEART_OF_GOLD);
+
+    admission.acquire(HEART_OF_GOLD);
+
+    assertThat(sleeps).containsExactly(2 * ONE_SECOND);
+  }
+
+  @Test
+  void shouldAdmitEverythingWithoutRates() {
+    config.setRepositoryRate(0);
+    config.setUserRate(0);
+
+    for (int i = 0; i < 100; i++) {
+      admission.acquire(HEART_OF_GOLD);
+    }
+
+    assertThat(sleeps).isEmpty();
+  }
+
+  @Test
+  void shouldNotThrottleWithDefaultRates() {
+    FolderConfig defaults = new FolderConfig();
+    config.setRepositoryRate(defaults.getRepositoryRate());
+    config.setUserRate(defaults.getUserRate());
+
+    for (int i = 0; i < 100; i++) {
+      admission.acquire(HEART_OF_GOLD);
+    }
+
+    assertThat(sleeps).isEmpty();
+  }
+
+  private double counter(String result) {
+    return meterRegistry.get("scm.folder.admission").tag("result", result).counter().count();
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.apache.shiro.authz.AuthorizationException;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.ChangesetPagingResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.CatCommandBuilder;
+import sonia.scm.repository.api.LogCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.when;
+
+@SubjectAware("trillian")
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class FolderArchiveServiceTest {
+
+  @Mock
+  RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  RepositoryService repositoryService;
+  @Mock(answer = Answers.RETURNS_SELF)
+  BrowseCommandBuilder browseCommandBuilder;
+  @Mock(answer = Answers.RETURNS_SELF)
+  LogCommandBuilder logCommandBuilder;
+  @Mock(answer = Answers.RETURNS_SELF)
+  CatCommandBuilder catCommandBuilder;
+
+  final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  FolderArchiveService archiveService;
+
+  @BeforeEach
+  void setUpObjectUnderTest() {
+    lenient().when(repositoryServiceFactory.create(any(NamespaceAndName.class))).thenReturn(repositoryService);
+    lenient().when(repositoryService.getRepository()).thenReturn(repository);
+    lenient().when(repositoryService.getBrowseCommand()).thenReturn(browseCommandBuilder);
+    lenient().when(repositoryService.getLogCommand()).thenReturn(logCommandBuilder);
+    lenient().when(repositoryService.getCatCommand()).thenReturn(catCommandBuilder);
+
+    archiveService = new FolderArchiveService(repositoryServiceFactory);
+  }
+
+  @Test
+  void shouldCheckPermissions() {
+    assertThrows(
+      AuthorizationException.class,
+      () -> archiveService.prepare(repository.getNamespace(), repository.getName(), "master", "src")
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldNotArchiveFiles() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(new BrowserResult("42", "master", file("README.md")));
+
+    assertThrows(
+      PathIsNotADirectoryException.class,
+      () -> archiveService.prepare(repository.getNamespace(), repository.getName(), "master", "README.md")
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldUseLastModificationOfFolderForEntityTag() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(new BrowserResult("42", "master", directory("src")));
+    when(logCommandBuilder.getChangesets()).thenReturn(
+      new ChangesetPagingResult(1, singletonList(new Changeset("21", new Date().getTime(), new Person("Trillian")))),
+      new ChangesetPagingResult(1, singletonList(new Changeset("21", new Date().getTime(), new Person("Trillian")))),
+      new ChangesetPagingResult(1, singletonList(new Changeset("23", new Date().getTime(), new Person("Trillian"))))
+    );
+
+    FolderArchiveService.FolderArchive first = archiveService.prepare(repository.getNamespace(), repository.getName(), "master", "src");
+    FolderArchiveService.FolderArchive unchanged = archiveService.prepare(repository.getNamespace(), repository.getName(), "master", "src");
+    FolderArchiveService.FolderArchive changed = archiveService.prepare(repository.getNamespace(), repository.getName(), "master", "src");
+
+    assertThat(first.getRevision()).isEqualTo("42");
+    assertThat(first.getFileName()).isEqualTo("src.zip");
+    assertThat(first.getEntityTag()).isEqualTo(unchanged.getEntityTag());
+    assertThat(first.getEntityTag()).isNotEqualTo(changed.getEntityTag());
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldWriteZipWithAllFilesAndDirectories() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      new BrowserResult("42", "42", directory("src", file("src/a.txt"), directory("src/empty"), directory("src/main"))),
+      new BrowserResult("42", "42", directory("src/empty")),
+      new BrowserResult("42", "42", directory("src/main", file("src/main/b.txt")))
+    );
+    doAnswer(invocation -> {
+      OutputStream outputStream = invocation.getArgument(0);
+      String path = invocation.getArgument(1);
+      outputStream.write(("content of " + path).getBytes(UTF_8));
+      return null;
+    }).when(catCommandBuilder).retriveContent(any(OutputStream.class), anyString());
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    archiveService.write(new FolderArchiveService.FolderArchive("hitchhiker", "HeartOfGold", "42", "src", "tag"), output);
+
+    assertThat(readZip(output.toByteArray())).containsExactly(
+      Map.entry("a.txt", "content of src/a.txt"),
+      Map.entry("empty/", ""),
+      Map.entry("main/", ""),
+      Map.entry("main/b.txt", "content of src/main/b.txt")
+    );
+  }
+
+  private Map<String, String> readZip(byte[] bytes) throws IOException {
+    Map<String, String> entries = new LinkedHashMap<>();
+    try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(bytes))) {
+      ZipEntry entry;
+      while ((entry = zip.getNextEntry()) != null) {
+        entries.put(entry.getName(), new String(zip.readAllBytes(), UTF_8));
+      }
+    }
+    return entries;
+  }
+
+  private FileObject directory(String path, FileObject... children) {
+    FileObject directory = file(path);
+    directory.setDirectory(true);
+    directory.setChildren(new ArrayList<>(List.of(children)));
+    return directory;
+  }
+
+  private FileObject file(String path) {
+    FileObject fileObject = new FileObject();
+    fileObject.setPath(path);
+    fileObject.setName(path.substring(path.lastIndexOf('/') + 1));
+    return fileObject;
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import com.google.inject.util.Providers;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.web.JsonMockHttpRequest;
+import sonia.scm.web.RestDispatcher;
+
+import jakarta.ws.rs.core.MediaType;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SubjectAware("trillian")
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class FolderConfigResourceTest {
+
+  @Mock
+  FolderConfigStore configStore;
+
+  RestDispatcher dispatcher;
+  MockHttpResponse response;
+
+  @BeforeEach
+  void initDispatcher() {
+    ScmPathInfoStore pathInfoStore = new ScmPathInfoStore();
+    pathInfoStore.set(() -> URI.create("/"));
+    FolderConfig config = new FolderConfig();
+    config.setMaxEntries(10);
+    config.setMaxDepth(5);
+    config.setMaxBytesPerCommit(1024);
+    config.setMaxPathsPerBatch(20);
+    config.setUserRate(30);
+    lenient().when(configStore.get()).thenReturn(config);
+
+    dispatcher = new RestDispatcher();
+    dispatcher.addSingletonResource(new FolderConfigResource(configStore, Providers.of(pathInfoStore)));
+    response = new MockHttpResponse();
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:read:manageFolder")
+  void shouldReturnConfigWithoutUpdateLink() throws URISyntaxException, UnsupportedEncodingException {
+    dispatcher.invoke(MockHttpRequest.get("/v2/config/manage-folder"), response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsString())
+      .contains("\"maxEntries\":10")
+      .contains("\"maxDepth\":5")
+      .contains("\"maxBytesPerCommit\":1024")
+      .contains("\"maxPathsPerBatch\":20")
+      .contains("\"userRate\":30")
+      .contains("\"self\":{\"href\":\"/v2/config/manage-folder")
+      .doesNotContain("\"update\"");
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:read,write:manageFolder")
+  void shouldReturnUpdateLinkWithWritePermission() throws URISyntaxException, UnsupportedEncodingException {
+    dispatcher.invoke(MockHttpRequest.get("/v2/config/manage-folder"), response);
+
+    assertThat(response.getContentAsString()).contains("\"update\":{\"href\":\"/v2/config/manage-folder");
+  }
+
+  @Test
+  void shouldNotReturnConfigWithoutPermission() throws URISyntaxException {
+    dispatcher.invoke(MockHttpRequest.get("/v2/config/manage-folder"), response);
+
+    assertThat(response.getStatus()).isEqualTo(403);
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:write:manageFolder")
+  void shouldUpdateConfig() throws URISyntaxException {
+    JsonMockHttpRequest request = JsonMockHttpRequest
+      .put("/v2/config/manage-folder")
+      .json("{'maxEntries': 1, 'maxDepth': 2, 'maxBytesPerCommit': 3, 'maxPathsPerBatch': 4, 'repositoryRate': 5, 'repositoryBurst': 6, 'userRate': 7, 'userBurst': 8, 'maxWaitMillis': 9, 'warmUpBrowseCache': true, 'folderLinkTemplates': true}")
+      .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(204);
+    ArgumentCaptor<FolderConfig> captor = ArgumentCaptor.forClass(FolderConfig.class);
+    verify(configStore).set(captor.capture());
+    assertThat(captor.getValue().getMaxEntries()).isEqualTo(1);
+    assertThat(captor.getValue().getMaxDepth()).isEqualTo(2);
+    assertThat(captor.getValue().getMaxBytesPerCommit()).isEqualTo(3);
+    assertThat(captor.getValue().getMaxPathsPerBatch()).isEqualTo(4);
+    assertThat(captor.getValue().getRepositoryRate()).isEqualTo(5);
+    assertThat(captor.getValue().getRepositoryBurst()).isEqualTo(6);
+    assertThat(captor.getValue().getUserRate()).isEqualTo(7);
+    assertThat(captor.getValue().getUserBurst()).isEqualTo(8);
+    assertThat(captor.getValue().getMaxWaitMillis()).isEqualTo(9);
+    assertThat(captor.getValue().isWarmUpBrowseCache()).isTrue();
+    assertThat(captor.getValue().isFolderLinkTemplates()).isTrue();
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:write:manageFolder")
+  void shouldKeepStoredValuesOfMissingFields() throws URISyntaxException {
+    JsonMockHttpRequest request = JsonMockHttpRequest
+      .put("/v2/config/manage-folder")
+      .json("{'maxDepth': 7, 'warmUpBrowseCache': true}")
+      .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(204);
+    ArgumentCaptor<FolderConfig> captor = ArgumentCaptor.forClass(FolderConfig.class);
+    verify(configStore).set(captor.capture());
+    assertThat(captor.getValue().getMaxDepth()).isEqualTo(7);
+    assertThat(captor.getValue().isWarmUpBrowseCache()).isTrue();
+    assertThat(captor.getValue().getMaxEntries()).isEqualTo(10);
+    assertThat(captor.getValue().getMaxBytesPerCommit()).isEqualTo(1024);
+    assertThat(captor.getValue().getMaxPathsPerBatch()).isEqualTo(20);
+    assertThat(captor.getValue().getUserRate()).isEqualTo(30);
+    assertThat(captor.getValue().getRepositoryRate()).isEqualTo(FolderConfig.DEFAULT_REPOSITORY_RATE);
+  }
+
+  @Test
+  void shouldNotUpdateConfigWithoutPermission() throws URISyntaxException {
+    JsonMockHttpRequest request = JsonMockHttpRequest
+      .put("/v2/config/manage-folder")
+      .json("{'maxEntries': 1, 'maxDepth': 2, 'maxBytesPerCommit': 3, 'maxPathsPerBatch': 4}")
+      .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    verify(configStore, never()).set(any());
+  }
+
+  @Test
+  @SubjectAware(permissions = "configuration:write:manageFolder")
+  void shouldRejectNegativeLimits() throws URISyntaxException {
+    JsonMockHttpRequest request = JsonMockHttpRequest
+      .put("/v2/config/manage-folder")
+      .json("{'maxEntries': -1, 'maxDepth': 2, 'maxBytesPerCommit': 3, 'maxPathsPerBatch': 4}")
+      .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(400);
+    verify(configStore, never()).set(any());
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.store.ConfigurationStore;
+import sonia.scm.store.ConfigurationStoreFactory;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Answers.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FolderConfigStoreTest {
+
+  @Mock(answer = RETURNS_DEEP_STUBS)
+  private ConfigurationStoreFactory storeFactory;
+  @Mock
+  private ConfigurationStore<FolderConfig> store;
+
+  private FolderConfigStore configStore;
+
+  @BeforeEach
+  void setUp() {
+    when(storeFactory.withType(FolderConfig.class).withName(FolderConfigStore.STORE_NAME).build()).thenReturn(store);
+    configStore = new FolderConfigStore(storeFactory);
+  }
+
+  @Test
+  void shouldReadStoreOnlyOnce() {
+    FolderConfig stored = new FolderConfig();
+    when(store.getOptional()).thenReturn(Optional.of(stored));
+
+    assertThat(configStore.get()).isSameAs(stored);
+    assertThat(configStore.get()).isSameAs(stored);
+
+    verify(store).getOptional();
+  }
+
+  @Test
+  void shouldReturnDefaultsForEmptyStore() {
+    when(store.getOptional()).thenReturn(Optional.empty());
+
+    assertThat(configStore.get().isFolderLinkTemplates()).isFalse();
+  }
+
+  @Test
+  void shouldReturnNewConfigAfterSet() {
+    FolderConfig changed = new FolderConfig();
+
+    configStore.set(changed);
+
+    verify(store).set(changed);
+    assertThat(configStore.get()).isSameAs(changed);
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.apache.shiro.authz.AuthorizationException;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.ScmConstraintViolationException;
+import sonia.scm.repository.Added;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.Feature;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Modifications;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Removed;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.ModificationsCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SubjectAware("trillian")
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class FolderDiffServiceTest {
+
+  @Mock
+  RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  RepositoryService repositoryService;
+  @Mock(answer = Answers.RETURNS_SELF)
+  BrowseCommandBuilder browseCommandBuilder;
+  @Mock(answer = Answers.RETURNS_SELF)
+  ModificationsCommandBuilder modificationsCommandBuilder;
+
+  final Repository repository = RepositoryTestData.createHeartOfGold();
+  final Map<String, FileObject> directories = new HashMap<>();
+  final List<String> browsedPaths = new ArrayList<>();
+
+  String browsedRevision;
+  String browsedPath;
+
+  FolderDiffService diffService;
+
+  @BeforeEach
+  void setUpObjectUnderTest() throws IOException {
+    lenient().when(repositoryServiceFactory.create(any(NamespaceAndName.class))).thenReturn(repositoryService);
+    lenient().when(repositoryService.getRepository()).thenReturn(repository);
+    lenient().when(repositoryService.getBrowseCommand()).thenReturn(browseCommandBuilder);
+    lenient().when(repositoryService.getModificationsCommand()).thenReturn(modificationsCommandBuilder);
+    lenient().when(browseCommandBuilder.setRevision(anyString())).thenAnswer(invocation -> {
+      browsedRevision = invocation.getArgument(0);
+      return browseCommandBuilder;
+    });
+    lenient().when(browseCommandBuilder.setPath(anyString())).thenAnswer(invocation -> {
+      browsedPath = invocation.getArgument(0);
+      return browseCommandBuilder;
+    });
+    lenient().when(browseCommandBuilder.getBrowserResult()).thenAnswer(invocation -> {
+      browsedPaths.add(browsedRevision + ":" + browsedPath);
+      return new BrowserResult(browsedRevision, browsedRevision, directories.get(browsedRevision + ":" + browsedPath));
+    });
+
+    diffService = new FolderDiffService(repositoryServiceFactory);
+  }
+
+  @Test
+  void shouldCheckPermissions() {
+    assertThrows(
+      AuthorizationException.class,
+      () -> diffService.prepare(repository.getNamespace(), repository.getName(), "1", "2", "src")
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldRequireBothRevisions() {
+    assertThrows(
+      ScmConstraintViolationException.class,
+      () -> diffService.prepare(repository.getNamespace(), repository.getName(), null, "2", "src")
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldRejectFiles() {
+    register("1", directory("src", file("src/README.md")));
+
+    assertThrows(
+      PathIsNotADirectoryException.class,
+      () -> diffService.prepare(repository.getNamespace(), repository.getName(), "1", "1", "src/README.md")
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldStreamChangedDirectoriesAndSkipUnchangedSubtrees() throws IOException {
+    registerRevisions();
+    when(repositoryService.isSupported(Feature.MODIFICATIONS_BETWEEN_REVISIONS)).thenReturn(true);
+    Modifications modifications = mock(Modifications.class);
+    when(modifications.getAdded()).thenReturn(List.of(added("src/main/api/Api.java"), added("src/new/nested/k.txt"), added("src/docs/.scmkeep")));
+    when(modifications.getRemoved()).thenReturn(List.of(removed("src/docs/a.md"), removed("src/old/x/y.txt")));
+    when(modificationsCommandBuilder.getModifications()).thenReturn(modifications);
+
+    String output = diff();
+
+    assertThat(output).isEqualTo(
+      "{\"type\":\"added\",\"path\":\"src/new\"}\n" +
+        "{\"type\":\"added\",\"path\":\"src/new/nested\"}\n" +
+        "{\"type\":\"removed\",\"path\":\"src/old\"}\n" +
+        "{\"type\":\"removed\",\"path\":\"src/old/x\"}\n" +
+        "{\"type\":\"keepOnly\",\"path\":\"src/docs\"}\n" +
+        "{\"type\":\"added\",\"path\":\"src/main/api\"}\n"
+    );
+    verify(modificationsCommandBuilder).baseRevision("1");
+    verify(modificationsCommandBuilder).revision("2");
+    assertThat(browsedPaths)
+      .doesNotContain("1:src/same", "2:src/same", "1:src/main/util", "2:src/main/util");
+    verify(browseCommandBuilder, times(browsedPaths.size())).setDisableCache(true);
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldCompareCompletelyWithoutModificationsBetweenRevisions() throws IOException {
+    registerRevisions();
+    when(repositoryService.isSupported(Feature.MODIFICATIONS_BETWEEN_REVISIONS)).thenReturn(false);
+
+    String output = diff();
+
+    assertThat(output.split("\n")).containsExactly(
+      "{\"type\":\"added\",\"path\":\"src/new\"}",
+      "{\"type\":\"added\",\"path\":\"src/new/nested\"}",
+      "{\"type\":\"removed\",\"path\":\"src/old\"}",
+      "{\"type\":\"removed\",\"path\":\"src/old/x\"}",
+      "{\"type\":\"keepOnly\",\"path\":\"src/docs\"}",
+      "{\"type\":\"added\",\"path\":\"src/main/api\"}"
+    );
+    assertThat(browsedPaths).contains("1:src/same", "2:src/same");
+    verify(modificationsCommandBuilder, never()).getModifications();
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldStreamNothingForSameRevision() throws IOException {
+    registerRevisions();
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    diffService.write(new FolderDiffService.FolderDiff("hitchhiker", "HeartOfGold", "2", "2", "src"), output);
+
+    assertThat(output.toByteArray()).isEmpty();
+    assertThat(browsedPaths).isEmpty();
+  }
+
+  private String diff() throws IOException {
+    FolderDiffService.FolderDiff diff = diffService.prepare(repository.getNamespace(), repository.getName(), "1", "2", "src");
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    diffService.write(diff, output);
+    return output.toString(UTF_8);
+  }
+
+  private void registerRevisions() {
+    register("1", directory("src",
+      directory("src/docs", file("src/docs/a.md")),
+      directory("src/main", file("src/main/App.java"), directory("src/main/util", file("src/main/util/U.java"))),
+      directory("src/old", directory("src/old/x", file("src/old/x/y.txt"))),
+      directory("src/same", file("src/same/s.txt"), directory("src/same/deep", file("src/same/deep/d.txt")))
+    ));
+    register("2", directory("src",
+      directory("src/docs", file("src/docs/.scmkeep")),
+      directory("src/main",
+        file("src/main/App.java"),
+        directory("src/main/api", file("src/main/api/Api.java")),
+        directory("src/main/util", file("src/main/util/U.java"))
+      ),
+      directory("src/new", directory("src/new/nested", file("src/new/nested/k.txt"))),
+      directory("src/same", file("src/same/s.txt"), directory("src/same/deep", file("src/same/deep/d.txt")))
+    ));
+  }
+
+  private void register(String revision, FileObject fileObject) {
+    directories.put(revision + ":" + fileObject.getPath(), fileObject);
+    if (fileObject.isDirectory()) {
+      fileObject.getChildren().forEach(child -> register(revision, child));
+    }
+  }
+
+  private Added added(String path) {
+    Added added = mock(Added.class);
+    when(added.getPath()).thenReturn(path);
+    return added;
+  }
+
+  private Removed removed(String path) {
+    Removed removed = mock(Removed.class);
+    when(removed.getPath()).thenReturn(path);
+    return removed;
+  }
+
+  private FileObject directory(String path, FileObject... children) {
+    FileObject directory = file(path);
+    directory.setDirectory(true);
+    directory.setChildren(new ArrayList<>(List.of(children)));
+    return directory;
+  }
+
+  private FileObject file(String path) {
+    FileObject fileObject = new FileObject();
+    fileObject.setPath(path);
+    fileObject.setName(path.substring(path.lastIndexOf('/') + 1));
+    return fileObject;
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.apache.shiro.authz.AuthorizationException;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.NotFoundException;
+import sonia.scm.repository.Branch;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.Command;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+import sonia.scm.security.SessionId;
+import sonia.scm.sse.Channel;
+import sonia.scm.sse.ChannelRegistry;
+import sonia.scm.sse.Message;
+import sonia.scm.sse.Registration;
+
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SubjectAware("trillian")
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class FolderEventBroadcasterTest {
+
+  private final Repository repository = RepositoryTestData.createHeartOfGold("git");
+  private final SessionId sessionId = SessionId.valueOf("tab-1");
+
+  @Mock
+  RepositoryManager repositoryManager;
+  @Mock
+  RepositoryServiceFactory repositoryServiceFactory;
+  @Mock(answer = Answers.RETURNS_DEEP_STUBS)
+  RepositoryService repositoryService;
+  @Mock
+  ChannelRegistry channelRegistry;
+  @Mock
+  Channel channel;
+  @Mock
+  Sse sse;
+  @Mock
+  SseEventSink sink;
+
+  FolderEventBroadcaster broadcaster;
+
+  @BeforeEach
+  void setUpObjectUnderTest() {
+    repository.setId("42");
+    lenient().when(repositoryManager.get(repository.getNamespaceAndName())).thenReturn(repository);
+    lenient().when(channelRegistry.channel(any())).thenReturn(channel);
+
+    broadcaster = new FolderEventBroadcaster(repositoryManager, repositoryServiceFactory, channelRegistry);
+  }
+
+  @Test
+  void shouldRequirePullPermission() {
+    assertThrows(AuthorizationException.class, () -> subscribe("develop"));
+
+    verify(channelRegistry, never()).channel(any());
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:pull:*")
+  void shouldFailForUnknownRepository() {
+    assertThrows(NotFoundException.class, () -> broadcaster.subscribe("hitchhiker", "missing", null, sessionId, sink, sse));
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:pull:*")
+  void shouldRegisterAtChannelOfRepositoryAndBranch() {
+    subscribe("develop");
+
+    verify(channelRegistry).channel(new FolderEventBroadcaster.ChannelId("42", "develop"));
+    verify(channel).register(any(Registration.class));
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:pull:*")
+  void shouldRegisterSubscribersWithoutBranchAtDefaultBranch() throws IOException {
+    mockDefaultBranch("main");
+
+    subscribe(null);
+    subscribe("");
+
+    verify(channelRegistry, times(2)).channel(new FolderEventBroadcaster.ChannelId("42", "main"));
+    verify(repositoryService, times(2)).close();
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:pull:*")
+  void shouldNotResolveDefaultBranchForGivenBranch() {
+    subscribe("main");
+
+    verify(channelRegistry).channel(new FolderEventBroadcaster.ChannelId("42", "main"));
+    verify(repositoryServiceFactory, never()).create(any(Repository.class));
+  }
+
+  @Test
+  @SubjectAware(permissions = "repository:pull:*")
+  void shouldUseEmptyChannelForRepositoriesWithoutBranches() {
+    when(repositoryServiceFactory.create(repository)).thenReturn(repositoryService);
+
+    subscribe(null);
+
+    verify(channelRegistry).channel(new FolderEventBroadcaster.ChannelId("42", ""));
+  }
+
+  @Test
+  void shouldBroadcastEventToChannelOfBranch() {
+    broadcaster.onEvent(new FolderChangedEvent(repository, "develop", "1337", List.of("src/lib"), List.of("src/old")));
+
+    verify(channelRegistry).channel(new FolderEventBroadcaster.ChannelId("42", "develop"));
+    ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+    verify(channel).broadcast(message.capture());
+    assertThat(message.getValue().getName()).isEqualTo(FolderEventBroadcaster.EVENT_NAME);
+    assertThat(message.getValue().getType()).isEqualTo(String.class);
+    assertThat((String) message.getValue().getData())
+      .contains("\"changesetId\":\"1337\"")
+      .contains("\"createdFolders\":[\"src/lib\"]")
+      .contains("\"deletedFolders\":[\"src/old\"]");
+  }
+
+  private void mockDefaultBranch(String name) throws IOException {
+    when(repositoryServiceFactory.create(repository)).thenReturn(repositoryService);
+    when(repositoryService.isSupported(Command.BRANCHES)).thenReturn(true);
+    when(repositoryService.getBranchesCommand().getBranches().getBranches()).thenReturn(List.of(
+      Branch.normalBranch("develop", "21", 0L),
+      Branch.defaultBranch(name, "42", 0L)
+    ));
+  }
+
+  private void subscribe(String branch) {
+    broadcaster.subscribe(repository.getNamespace(), repository.getName(), branch, sessionId, sink, sse);
+  }
+}
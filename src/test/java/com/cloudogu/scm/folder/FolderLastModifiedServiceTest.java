@@ -0,0 +1,326 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.apache.shiro.authz.AuthorizationException;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.NotFoundException;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.ChangesetPagingResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Modifications;
+import sonia.scm.repository.Modified;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.LogCommandBuilder;
+import sonia.scm.repository.api.ModificationsCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SubjectAware("trillian")
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class FolderLastModifiedServiceTest {
+
+  @Mock
+  RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  RepositoryService repositoryService;
+  @Mock(answer = Answers.RETURNS_SELF)
+  BrowseCommandBuilder browseCommandBuilder;
+  @Mock(answer = Answers.RETURNS_SELF)
+  LogCommandBuilder logCommandBuilder;
+  @Mock(answer = Answers.RETURNS_SELF)
+  ModificationsCommandBuilder modificationsCommandBuilder;
+
+  final Repository repository = RepositoryTestData.createHeartOfGold();
+  final Map<String, Modifications> modificationsByRevision = new HashMap<>();
+  final List<String> requestedModifications = new ArrayList<>();
+  final List<Changeset> history = new ArrayList<>();
+  final List<Integer> requestedLogPages = new ArrayList<>();
+
+  FolderLastModifiedService lastModifiedService;
+
+  @BeforeEach
+  void setUpObjectUnderTest() {
+    lenient().when(repositoryServiceFactory.create(any(NamespaceAndName.class))).thenReturn(repositoryService);
+    lenient().when(repositoryService.getRepository()).thenReturn(repository);
+    lenient().when(repositoryService.getBrowseCommand()).thenReturn(browseCommandBuilder);
+    lenient().when(repositoryService.getLogCommand()).thenReturn(logCommandBuilder);
+    lenient().when(repositoryService.getModificationsCommand()).thenReturn(modificationsCommandBuilder);
+    lenient().when(modificationsCommandBuilder.revision(anyString())).thenAnswer(invocation -> {
+      requestedModifications.add(invocation.getArgument(0));
+      return modificationsCommandBuilder;
+    });
+    lenient().when(modificationsCommandBuilder.getModifications()).thenAnswer(
+      invocation -> modificationsByRevision.get(requestedModifications.get(requestedModifications.size() - 1))
+    );
+
+    lenient().when(logCommandBuilder.setPagingStart(anyInt())).thenAnswer(invocation -> {
+      requestedLogPages.add(invocation.getArgument(0));
+      return logCommandBuilder;
+    });
+    lenient().when(logCommandBuilder.getChangesets()).thenAnswer(invocation -> {
+      int start = requestedLogPages.get(requestedLogPages.size() - 1);
+      int end = Math.min(history.size(), start + FolderLastModifiedService.LOG_PAGE_SIZE);
+      return new ChangesetPagingResult(history.size(), new ArrayList<>(history.subList(Math.min(start, end), end)));
+    });
+
+    lastModifiedService = new FolderLastModifiedService(repositoryServiceFactory);
+  }
+
+  @Test
+  void shouldCheckPermissions() {
+    assertThrows(
+      AuthorizationException.class,
+      () -> lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), null, "src")
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldRejectFiles() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(new BrowserResult("3", "master", file("README.md")));
+
+    assertThrows(
+      PathIsNotADirectoryException.class,
+      () -> lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), null, "README.md")
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldRejectMissingPath() {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(new BrowserResult("3", "master", null));
+
+    assertThrows(
+      NotFoundException.class,
+      () -> lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), null, "missing")
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldResolveAllSubdirectoriesWithOneHistoryWalk() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      new BrowserResult("3", "master", directory("src", directory("src/main"), directory("src/test"), file("src/README.md")))
+    );
+    when(logCommandBuilder.getChangeset("3")).thenReturn(changeset("3", "2"));
+    history.addAll(List.of(changeset("3", "2"), changeset("2", "1"), changeset("1")));
+    modificationsByRevision.put("3", modifications("src/main/App.java"));
+    modificationsByRevision.put("2", modifications("src/README.md"));
+    modificationsByRevision.put("1", modifications("src/test/AppTest.java", "src/main/Old.java"));
+
+    FolderLastModifiedDto result = lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), "master", "src");
+
+    assertThat(result.getRevision()).isEqualTo("3");
+    assertThat(changesetsByPath(result))
+      .containsEntry("src/main", "3")
+      .containsEntry("src/test", "1")
+      .hasSize(2);
+    verify(logCommandBuilder).setPath("src");
+    verify(logCommandBuilder).setStartChangeset("3");
+    verify(logCommandBuilder, times(1)).getChangesets();
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldStopHistoryWalkOnceAllSubdirectoriesAreResolved() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      new BrowserResult("3", "master", directory("src", directory("src/main")))
+    );
+    when(logCommandBuilder.getChangeset("3")).thenReturn(changeset("3", "2"));
+    history.addAll(List.of(changeset("3", "2"), changeset("2", "1"), changeset("1")));
+    modificationsByRevision.put("3", modifications("src/main/App.java"));
+
+    lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), "master", "src");
+
+    assertThat(requestedModifications).containsExactly("3");
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldReadNextPageOfHistoryForUnresolvedSubdirectories() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      new BrowserResult("1000", "master", directory("src", directory("src/main"), directory("src/old")))
+    );
+    when(logCommandBuilder.getChangeset("1000")).thenReturn(changeset("1000", "999"));
+    for (int i = 1000; i > 1000 - FolderLastModifiedService.LOG_PAGE_SIZE - 1; i--) {
+      history.add(changeset(String.valueOf(i), String.valueOf(i - 1)));
+      modificationsByRevision.put(String.valueOf(i), modifications("src/main/" + i + ".txt"));
+    }
+    modificationsByRevision.put(String.valueOf(1000 - FolderLastModifiedService.LOG_PAGE_SIZE), modifications("src/old/a.txt"));
+
+    FolderLastModifiedDto result = lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), "master", "src");
+
+    assertThat(changesetsByPath(result))
+      .containsEntry("src/main", "1000")
+      .containsEntry("src/old", String.valueOf(1000 - FolderLastModifiedService.LOG_PAGE_SIZE));
+    assertThat(requestedLogPages).containsExactly(0, FolderLastModifiedService.LOG_PAGE_SIZE);
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldReturnEntryWithoutChangesetIfHistoryIsEmpty() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      new BrowserResult("1", "master", directory("", directory("empty")))
+    );
+    when(logCommandBuilder.getChangeset("1")).thenReturn(changeset("1"));
+
+    FolderLastModifiedDto result = lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), "master", "");
+
+    assertThat(result.getDirectories()).hasSize(1);
+    assertThat(result.getDirectories().get(0).getPath()).isEqualTo("empty");
+    assertThat(result.getDirectories().get(0).getChangeset()).isNull();
+    verify(logCommandBuilder, never()).setPath(anyString());
+    verify(logCommandBuilder, times(1)).getChangesets();
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldReturnCachedResultForSameRevision() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      new BrowserResult("1", "master", directory("src", directory("src/main")))
+    );
+    when(logCommandBuilder.getChangeset("1")).thenReturn(changeset("1"));
+    history.add(changeset("1"));
+    modificationsByRevision.put("1", modifications("src/main/App.java"));
+
+    lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), "master", "src");
+    FolderLastModifiedDto result = lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), "master", "src");
+
+    assertThat(changesetsByPath(result)).containsEntry("src/main", "1");
+    verify(logCommandBuilder, times(1)).getChangesets();
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldDeriveResultFromCachedParentRevision() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      new BrowserResult("1", "master", directory("src", directory("src/main"), directory("src/test"))),
+      new BrowserResult("2", "master", directory("src", directory("src/main"), directory("src/test"), directory("src/docs")))
+    );
+    when(logCommandBuilder.getChangeset("1")).thenReturn(changeset("1"));
+    when(logCommandBuilder.getChangeset("2")).thenReturn(changeset("2", "1"));
+    history.add(changeset("1"));
+    modificationsByRevision.put("1", modifications("src/main/App.java", "src/test/AppTest.java"));
+    modificationsByRevision.put("2", modifications("src/test/AppTest.java", "src/docs/index.md"));
+
+    lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), "master", "src");
+    FolderLastModifiedDto result = lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), "master", "src");
+
+    assertThat(result.getRevision()).isEqualTo("2");
+    assertThat(changesetsByPath(result))
+      .containsEntry("src/main", "1")
+      .containsEntry("src/test", "2")
+      .containsEntry("src/docs", "2");
+    verify(logCommandBuilder, times(1)).getChangesets();
+    assertThat(requestedModifications).containsExactly("1", "2");
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldNotWalkHistoryWithoutSubdirectories() throws IOException {
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      new BrowserResult("1", "master", directory("src", file("src/README.md")))
+    );
+    when(logCommandBuilder.getChangeset("1")).thenReturn(changeset("1"));
+
+    FolderLastModifiedDto result = lastModifiedService.getLastModified(repository.getNamespace(), repository.getName(), "master", "src");
+
+    assertThat(result.getDirectories()).isEmpty();
+    verify(logCommandBuilder, never()).getChangesets();
+  }
+
+  private Map<String, String> changesetsByPath(FolderLastModifiedDto result) {
+    return result.getDirectories().stream()
+      .collect(Collectors.toMap(FolderLastModifiedEntryDto::getPath, FolderLastModifiedEntryDto::getChangeset));
+  }
+
+  private Modifications modifications(String... paths) {
+    Modifications modifications = mock(Modifications.class);
+    List<Modified> modified = new ArrayList<>();
+    for (String path : paths) {
+      Modified modification = mock(Modified.class);
+      lenient().when(modification.getPath()).thenReturn(path);
+      modified.add(modification);
+    }
+    lenient().when(modifications.getAdded()).thenReturn(emptyList());
+    lenient().when(modifications.getModified()).thenReturn(modified);
+    lenient().when(modifications.getRemoved()).thenReturn(emptyList());
+    lenient().when(modifications.getRenamed()).thenReturn(emptyList());
+    lenient().when(modifications.getCopied()).thenReturn(emptyList());
+    return modifications;
+  }
+
+  private Changeset changeset(String id, String... parents) {
+    Changeset changeset = new Changeset(id, 1_000L * Integer.parseInt(id), new Person("Trillian"));
+    changeset.setParents(List.of(parents));
+    return changeset;
+  }
+
+  private FileObject directory(String path, FileObject... children) {
+    FileObject directory = file(path);
+    directory.setDirectory(true);
+    directory.setChildren(new ArrayList<>(List.of(children)));
+    return directory;
+  }
+
+  private FileObject file(String path) {
+    FileObject fileObject = new FileObject();
+    fileObject.setPath(path);
+    fileObject.setName(path.substring(path.lastIndexOf('/') + 1));
+    return fileObject;
+  }
+}
@@ -0,0 +1,302 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FolderLimitsTest {
+
+  @Mock
+  FolderConfigStore configStore;
+  @Mock
+  RepositoryService repositoryService;
+  @Mock(answer = Answers.RETURNS_SELF)
+  BrowseCommandBuilder browseCommandBuilder;
+
+  final Repository repository = RepositoryTestData.createHeartOfGold();
+  final FolderConfig config = new FolderConfig();
+
+  FolderLimits limits;
+
+  @BeforeEach
+  void setUpObjectUnderTest() {
+    lenient().when(configStore.get()).thenReturn(config);
+    lenient().when(repositoryService.getRepository()).thenReturn(repository);
+    lenient().when(repositoryService.getBrowseCommand()).thenReturn(browseCommandBuilder);
+
+    limits = new FolderLimits(configStore);
+  }
+
+  @Test
+  void shouldCountPathDepth() {
+    assertThat(FolderLimits.depth(null)).isZero();
+    assertThat(FolderLimits.depth("/")).isZero();
+    assertThat(FolderLimits.depth("src")).isEqualTo(1);
+    assertThat(FolderLimits.depth("/src/main/java/")).isEqualTo(3);
+  }
+
+  @Nested
+  class CreateTests {
+
+    @Test
+    void shouldRejectTooDeepFolder() {
+      config.setMaxDepth(2);
+
+      FolderLimitExceededException exception = assertThrows(
+        FolderLimitExceededException.class,
+        () -> limits.checkCreate(repository, "master", "a/b/c")
+      );
+
+      assertThat(exception.getLimit()).isEqualTo(FolderLimits.MAX_DEPTH);
+      assertThat(exception.getMaximum()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldIgnoreDisabledLimit() {
+      config.setMaxDepth(0);
+
+      assertDoesNotThrow(() -> limits.checkCreate(repository, "master", "a/b/c"));
+    }
+  }
+
+  @Nested
+  class DeleteTests {
+
+    @Test
+    void shouldAcceptFolderWithinLimits() throws IOException {
+      config.setMaxEntries(3);
+      config.setMaxDepth(3);
+      when(browseCommandBuilder.getBrowserResult()).thenReturn(
+        result(directory("src", file("src/a"), directory("src/main"))),
+        result(directory("src/main", file("src/main/b")))
+      );
+
+      limits.checkDelete(repositoryService, "master", "src");
+
+      verify(browseCommandBuilder, times(2)).getBrowserResult();
+    }
+
+    @Test
+    void shouldStopCountingAtMaxEntries() throws IOException {
+      config.setMaxEntries(2);
+      when(browseCommandBuilder.getBrowserResult()).thenReturn(
+        result(directory("src", directory("src/main"), file("src/a"), file("src/b")))
+      );
+
+      FolderLimitExceededException exception = assertThrows(
+        FolderLimitExceededException.class,
+        () -> limits.checkDelete(repositoryService, "master", "src")
+      );
+
+      assertThat(exception.getLimit()).isEqualTo(FolderLimits.MAX_ENTRIES);
+      verify(browseCommandBuilder, times(1)).getBrowserResult();
+    }
+
+    @Test
+    void shouldRejectTooDeepSubfolders() throws IOException {
+      config.setMaxDepth(2);
+      when(browseCommandBuilder.getBrowserResult()).thenReturn(
+        result(directory("src", directory("src/main"))),
+        result(directory("src/main", directory("src/main/java")))
+      );
+
+      FolderLimitExceededException exception = assertThrows(
+        FolderLimitExceededException.class,
+        () -> limits.checkDelete(repositoryService, "master", "src")
+      );
+
+      assertThat(exception.getLimit()).isEqualTo(FolderLimits.MAX_DEPTH);
+    }
+
+    @Test
+    void shouldNotWalkWithDefaultLimits() throws IOException {
+      limits.checkDelete(repositoryService, "master", "src");
+
+      verify(browseCommandBuilder, never()).getBrowserResult();
+    }
+  }
+
+  @Nested
+  class TransplantTests {
+
+    final Repository target = RepositoryTestData.create42Puzzle();
+
+    @Test
+    void shouldCheckDepthInTargetRepository() throws IOException {
+      config.setMaxDepth(3);
+      when(browseCommandBuilder.getBrowserResult()).thenReturn(
+        result(directory("lib", directory("lib/core"))),
+        result(directory("lib/core", directory("lib/core/impl")))
+      );
+
+      FolderLimitExceededException exception = assertThrows(
+        FolderLimitExceededException.class,
+        () -> limits.checkTransplant(repositoryService, "42", "lib", target, "main", "vendor/lib")
+      );
+
+      assertThat(exception.getLimit()).isEqualTo(FolderLimits.MAX_DEPTH);
+      assertThat(exception.getContext()).anyMatch(entry -> entry.getType().equals("path") && entry.getId().equals("vendor/lib/core/impl"));
+    }
+
+    @Test
+    void shouldRejectTooManyBytes() {
+      config.setMaxBytesPerCommit(100);
+      when(browseCommandBuilder.getBrowserResult()).thenReturn(
+        result(directory("lib", file("lib/a", 60), file("lib/b", 60)))
+      );
+
+      FolderLimitExceededException exception = assertThrows(
+        FolderLimitExceededException.class,
+        () -> limits.checkTransplant(repositoryService, "42", "lib", target, null, "lib")
+      );
+
+      assertThat(exception.getLimit()).isEqualTo(FolderLimits.MAX_BYTES_PER_COMMIT);
+    }
+
+    @Test
+    void shouldAcceptFolderWithinLimits() {
+      config.setMaxEntries(3);
+      config.setMaxBytesPerCommit(100);
+      when(browseCommandBuilder.getBrowserResult()).thenReturn(
+        result(directory("lib", file("lib/a", 60), directory("lib/core"))),
+        result(directory("lib/core"))
+      );
+
+      assertDoesNotThrow(() -> limits.checkTransplant(repositoryService, "42", "lib", target, null, "vendor/lib"));
+    }
+  }
+
+  @Nested
+  class ManifestTests {
+
+    @Test
+    void shouldRejectTooManyPaths() {
+      config.setMaxPathsPerBatch(2);
+      List<String> folders = List.of("a", "b", "c");
+
+      FolderLimitExceededException exception = assertThrows(
+        FolderLimitExceededException.class,
+        () -> limits.checkManifest(repository, "upload", folders, 0, 0)
+      );
+
+      assertThat(exception.getLimit()).isEqualTo(FolderLimits.MAX_PATHS_PER_BATCH);
+    }
+
+    @Test
+    void shouldCountFilesAsPaths() {
+      config.setMaxPathsPerBatch(2);
+      List<String> folders = List.of("a");
+
+      FolderLimitExceededException exception = assertThrows(
+        FolderLimitExceededException.class,
+        () -> limits.checkManifest(repository, "upload", folders, 2, 0)
+      );
+
+      assertThat(exception.getLimit()).isEqualTo(FolderLimits.MAX_PATHS_PER_BATCH);
+    }
+
+    @Test
+    void shouldRejectTooManyBytes() {
+      config.setMaxBytesPerCommit(1024);
+      List<String> folders = List.of("a");
+
+      FolderLimitExceededException exception = assertThrows(
+        FolderLimitExceededException.class,
+        () -> limits.checkManifest(repository, "upload", folders, 0, 1025)
+      );
+
+      assertThat(exception.getLimit()).isEqualTo(FolderLimits.MAX_BYTES_PER_COMMIT);
+    }
+
+    @Test
+    void shouldIncludeBasePathInDepth() {
+      config.setMaxDepth(2);
+      List<String> folders = List.of("a/b");
+
+      FolderLimitExceededException exception = assertThrows(
+        FolderLimitExceededException.class,
+        () -> limits.checkManifest(repository, "upload", folders, 0, 0)
+      );
+
+      assertThat(exception.getLimit()).isEqualTo(FolderLimits.MAX_DEPTH);
+    }
+
+    @Test
+    void shouldAcceptManifestWithinLimits() {
+      List<String> folders = List.of("a/b", "c");
+
+      assertDoesNotThrow(() -> limits.checkManifest(repository, "upload", folders, 10, 1024));
+    }
+  }
+
+  private BrowserResult result(FileObject file) {
+    return new BrowserResult("42", "master", file);
+  }
+
+  private FileObject directory(String path, FileObject... children) {
+    FileObject directory = file(path);
+    directory.setDirectory(true);
+    directory.setChildren(new ArrayList<>(List.of(children)));
+    return directory;
+  }
+
+  private FileObject file(String path, long length) {
+    FileObject fileObject = file(path);
+    fileObject.setLength(length);
+    return fileObject;
+  }
+
+  private FileObject file(String path) {
+    FileObject fileObject = new FileObject();
+    fileObject.setPath(path);
+    fileObject.setName(path.substring(path.lastIndexOf('/') + 1));
+    return fileObject;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.ContextEntry;
+import sonia.scm.api.v2.resources.ErrorDto;
+import sonia.scm.api.v2.resources.ExceptionWithContextToErrorDtoMapper;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.web.VndMediaType;
+
+import jakarta.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FolderOperationRejectedExceptionMapperTest {
+
+  @Mock
+  ExceptionWithContextToErrorDtoMapper errorDtoMapper;
+
+  @Test
+  void shouldMapToErrorDtoWithTooManyRequestsAndRetryAfter() {
+    FolderOperationRejectedException exception = new FolderOperationRejectedException(
+      ContextEntry.ContextBuilder.entity(new NamespaceAndName("hitchhiker", "HeartOfGold")).build(),
+      TimeUnit.MILLISECONDS.toNanos(2500)
+    );
+    ErrorDto errorDto = new ErrorDto();
+    when(errorDtoMapper.map(exception)).thenReturn(errorDto);
+
+    Response response = new FolderOperationRejectedExceptionMapper(errorDtoMapper).toResponse(exception);
+
+    assertThat(response.getStatus()).isEqualTo(429);
+    assertThat(response.getHeaderString("Retry-After")).isEqualTo("3");
+    assertThat(response.getMediaType()).hasToString(VndMediaType.ERROR_TYPE);
+    assertThat(response.getEntity()).isSameAs(errorDto);
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FolderPathIndexTest {
+
+  private final FolderPathIndex index = FolderPathIndex.of(List.of(
+    "src/main/java",
+    "src/main/resources",
+    "src/test/java",
+    "docs/java-guide",
+    "/Main/"
+  ));
+
+  @Test
+  void shouldIncludeParentDirectories() {
+    assertThat(index.paths()).containsExactly(
+      "Main",
+      "docs",
+      "docs/java-guide",
+      "src",
+      "src/main",
+      "src/main/java",
+      "src/main/resources",
+      "src/test",
+      "src/test/java"
+    );
+  }
+
+  @Test
+  void shouldFindByPathPrefix() {
+    assertThat(index.findByPathPrefix("src/main", 10)).containsExactly("src/main", "src/main/java", "src/main/resources");
+    assertThat(index.findByPathPrefix("/src/t", 10)).containsExactly("src/test", "src/test/java");
+    assertThat(index.findByPathPrefix("lib/", 10)).isEmpty();
+  }
+
+  @Test
+  void shouldFindByNameWithPrefixMatchesFirst() {
+    assertThat(index.findByName("JAVA", 10)).containsExactly("docs/java-guide", "src/main/java", "src/test/java");
+    assertThat(index.findByName("guide", 10)).containsExactly("docs/java-guide");
+    assertThat(index.findByName("ava", 10)).containsExactly("docs/java-guide", "src/main/java", "src/test/java");
+    assertThat(index.findByName("ourc", 10)).containsExactly("src/main/resources");
+    assertThat(index.findByName("main", 10)).containsExactly("Main", "src/main");
+  }
+
+  @Test
+  void shouldRespectLimit() {
+    assertThat(index.findByName("java", 1)).containsExactly("docs/java-guide");
+    assertThat(index.findByPathPrefix("src", 2)).containsExactly("src", "src/main");
+  }
+
+  @Test
+  void shouldCheckContainment() {
+    assertThat(index.contains("src/main")).isTrue();
+    assertThat(index.contains("src/mai")).isFalse();
+    assertThat(index.contains("lib")).isFalse();
+  }
+
+  @Test
+  void shouldAddAndRemoveDirectories() {
+    FolderPathIndex changed = index.with(singletonList("lib/core"), singletonList("src/main"));
+
+    assertThat(changed.paths()).containsExactly(
+      "Main",
+      "docs",
+      "docs/java-guide",
+      "lib",
+      "lib/core",
+      "src",
+      "src/test",
+      "src/test/java"
+    );
+    assertThat(index.with(emptyList(), emptyList()).paths()).isEqualTo(index.paths());
+  }
+
+  @Test
+  void shouldRelocatePaths() {
+    assertThat(FolderPathIndex.relocate("lib/core/a.txt", "lib", "vendor/lib")).isEqualTo("vendor/lib/core/a.txt");
+    assertThat(FolderPathIndex.relocate("/lib/", "lib", "vendor")).isEqualTo("vendor");
+    assertThat(FolderPathIndex.relocate("core/a.txt", "", "vendor")).isEqualTo("vendor/core/a.txt");
+    assertThat(FolderPathIndex.relocate("lib/a.txt", "lib", "")).isEqualTo("a.txt");
+  }
+}
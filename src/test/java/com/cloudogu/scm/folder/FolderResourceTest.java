@@ -23,16 +23,23 @@
  */
 package com.cloudogu.scm.folder;
 
+import org.jboss.resteasy.mock.MockHttpRequest;
 import org.jboss.resteasy.mock.MockHttpResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.api.v2.resources.BrowserResultToFileObjectDtoMapper;
 import sonia.scm.api.v2.resources.ChangesetDto;
 import sonia.scm.api.v2.resources.ChangesetToChangesetDtoMapper;
+import sonia.scm.api.v2.resources.FileObjectDto;
+import sonia.scm.repository.BrowserResult;
 import sonia.scm.repository.Changeset;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.NamespaceAndName;
 import sonia.scm.repository.Person;
 import sonia.scm.repository.RepositoryManager;
 import sonia.scm.web.JsonMockHttpRequest;
@@ -40,13 +47,19 @@ import sonia.scm.web.RestDispatcher;
 
 import jakarta.ws.rs.core.MediaType;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.util.Date;
+import java.util.List;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -62,6 +75,30 @@ class FolderResourceTest {
   @Mock
   FolderService folderService;
 
+  @Mock
+  FolderTreeService folderTreeService;
+
+  @Mock
+  FolderSearchService folderSearchService;
+
+  @Mock
+  BrowserResultToFileObjectDtoMapper fileObjectMapper;
+
+  @Mock
+  FolderArchiveService folderArchiveService;
+
+  @Mock
+  FolderLastModifiedService folderLastModifiedService;
+
+  @Mock
+  FolderDiffService folderDiffService;
+
+  @Mock
+  FolderEventBroadcaster folderEventBroadcaster;
+
+  @Spy
+  IdempotencyStore idempotencyStore = new IdempotencyStore();
+
   @InjectMocks
   FolderResource resource;
 
@@ -95,6 +132,100 @@ class FolderResourceTest {
     assertThat(response.getStatus()).isEqualTo(201);
   }
 
+  @Test
+  void shouldHandleTransplantRequest() throws URISyntaxException, IOException {
+    final Changeset changeset = new Changeset("1337", new Date().getTime(), new Person("Trillian"));
+    final ChangesetDto changesetDto = new ChangesetDto();
+    changesetDto.setId(changeset.getId());
+    when(folderService.transplant("hitchhiker", "monorepo", "42", "lib", "space", "jam", "develop", "vendor/lib", "move lib"))
+      .thenReturn(changeset);
+    when(mapper.map(eq(changeset), any())).thenReturn(changesetDto);
+    JsonMockHttpRequest request =
+      JsonMockHttpRequest
+        .post("/v2/folder/space/jam/transplant/vendor/lib")
+        .json("{'sourceNamespace': 'hitchhiker', 'sourceName': 'monorepo', 'sourceRevision': '42', 'sourcePath': 'lib', 'branch': 'develop', 'commitMessage': 'move lib'}")
+        .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(201);
+    assertThat(response.getContentAsString()).contains("\"id\":\"1337\"");
+  }
+
+  @Test
+  void shouldRejectTransplantWithoutSource() throws URISyntaxException {
+    JsonMockHttpRequest request =
+      JsonMockHttpRequest
+        .post("/v2/folder/space/jam/transplant/vendor/lib")
+        .json("{'sourcePath': 'lib', 'commitMessage': 'move lib'}")
+        .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(400);
+  }
+
+  @Test
+  void shouldHandleRestoreRequest() throws URISyntaxException, IOException {
+    final Changeset changeset = new Changeset("1337", new Date().getTime(), new Person("Trillian"));
+    final ChangesetDto changesetDto = new ChangesetDto();
+    changesetDto.setId(changeset.getId());
+    when(folderService.restore("space", "jam", "develop", "lib", "21", "restore lib")).thenReturn(changeset);
+    when(mapper.map(eq(changeset), any())).thenReturn(changesetDto);
+    JsonMockHttpRequest request =
+      JsonMockHttpRequest
+        .post("/v2/folder/space/jam/restore/lib")
+        .json("{'revision': '21', 'branch': 'develop', 'commitMessage': 'restore lib'}")
+        .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(201);
+    assertThat(response.getContentAsString()).contains("\"id\":\"1337\"");
+  }
+
+  @Test
+  void shouldRejectRestoreWithoutRevision() throws URISyntaxException {
+    JsonMockHttpRequest request =
+      JsonMockHttpRequest
+        .post("/v2/folder/space/jam/restore/lib")
+        .json("{'commitMessage': 'restore lib'}")
+        .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(400);
+  }
+
+  @Test
+  void shouldEmbedParentListingForCreate() throws URISyntaxException, IOException {
+    final Changeset changeset = new Changeset("1337", new Date().getTime(), new Person("Trillian"));
+    final ChangesetDto changesetDto = new ChangesetDto();
+    changesetDto.setId(changeset.getId());
+    final BrowserResult parentListing = new BrowserResult("1337", "1337", new FileObject());
+    final FileObjectDto parentDto = new FileObjectDto();
+    parentDto.setPath("some");
+    when(folderService.create("space", "jam", null, "some/folder", "a new folder is born"))
+      .thenReturn(changeset);
+    when(mapper.map(eq(changeset), any())).thenReturn(changesetDto);
+    when(folderService.getListing("space", "jam", "1337", "some")).thenReturn(parentListing);
+    when(fileObjectMapper.map(parentListing, new NamespaceAndName("space", "jam"), 0)).thenReturn(parentDto);
+    JsonMockHttpRequest request =
+      JsonMockHttpRequest
+        .post("/v2/folder/space/jam/create/some/folder?listing=true")
+        .json("{'commitMessage': 'a new folder is born'}")
+        .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(201);
+    assertThat(response.getContentAsString())
+      .contains("\"revision\":\"1337\"")
+      .contains("\"_embedded\"")
+      .contains("\"id\":\"1337\"")
+      .contains("\"path\":\"some\"");
+  }
+
   @Test
   void shouldNotAllowEmptyCommitMessageForCreate() throws URISyntaxException, IOException {
     JsonMockHttpRequest request =
@@ -142,4 +273,119 @@ class FolderResourceTest {
     verify(folderService, never()).delete(anyString(), anyString(), anyString(), anyString(), anyString());
     assertThat(response.getStatus()).isEqualTo(400);
   }
+
+  @Test
+  void shouldHandleTreeRequest() throws URISyntaxException, IOException {
+    FolderTreeDto tree = new FolderTreeDto("42", "src", emptyList(), "Mg");
+    when(folderTreeService.getTree("space", "jam", "develop", "src", 2, 50, "MQ")).thenReturn(tree);
+    MockHttpRequest request = MockHttpRequest.get("/v2/folder/space/jam/tree/src?revision=develop&depth=2&limit=50&cursor=MQ");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsString())
+      .contains("\"revision\":\"42\"")
+      .contains("\"cursor\":\"Mg\"");
+  }
+
+  @Test
+  void shouldHandleSearchRequest() throws URISyntaxException, IOException {
+    FolderSearchResultDto result = new FolderSearchResultDto("42", "main", singletonList("src/main"));
+    when(folderSearchService.search("space", "jam", null, "main", 50)).thenReturn(result);
+    MockHttpRequest request = MockHttpRequest.get("/v2/folder/space/jam/search?q=main");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsString()).contains("\"paths\":[\"src/main\"]");
+  }
+
+  @Test
+  void shouldStreamArchive() throws URISyntaxException, IOException {
+    FolderArchiveService.FolderArchive archive = new FolderArchiveService.FolderArchive("space", "jam", "42", "src", "abc");
+    when(folderArchiveService.prepare("space", "jam", "develop", "src")).thenReturn(archive);
+    doAnswer(invocation -> {
+      invocation.<OutputStream>getArgument(1).write("zip".getBytes(UTF_8));
+      return null;
+    }).when(folderArchiveService).write(eq(archive), any());
+    MockHttpRequest request = MockHttpRequest.get("/v2/folder/space/jam/archive/src?revision=develop");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsString()).isEqualTo("zip");
+    assertThat(response.getOutputHeaders().getFirst("ETag")).hasToString("\"abc\"");
+    assertThat(response.getOutputHeaders().getFirst("Content-Disposition")).hasToString("attachment; filename=\"src.zip\"; filename*=UTF-8''src.zip");
+  }
+
+  @Test
+  void shouldEscapeArchiveFileName() {
+    assertThat(FolderResource.contentDisposition("say \"hi\".zip"))
+      .isEqualTo("attachment; filename=\"say \\\"hi\\\".zip\"; filename*=UTF-8''say%20%22hi%22.zip");
+    assertThat(FolderResource.contentDisposition("Größe.zip"))
+      .isEqualTo("attachment; filename=\"Gr__e.zip\"; filename*=UTF-8''Gr%C3%B6%C3%9Fe.zip");
+  }
+
+  @Test
+  void shouldAnswerUnchangedArchiveWithNotModified() throws URISyntaxException, IOException {
+    FolderArchiveService.FolderArchive archive = new FolderArchiveService.FolderArchive("space", "jam", "42", "src", "abc");
+    when(folderArchiveService.prepare("space", "jam", null, "src")).thenReturn(archive);
+    MockHttpRequest request = MockHttpRequest.get("/v2/folder/space/jam/archive/src")
+      .header("If-None-Match", "\"abc\"");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(304);
+    verify(folderArchiveService, never()).write(any(), any());
+  }
+
+  @Test
+  void shouldHandleManifestRequest() throws URISyntaxException, IOException {
+    when(folderSearchService.findFoldersNeedingMarkers("space", "jam", "develop", "upload", List.of("a", "b"), 3, 1024))
+      .thenReturn(new FolderManifestResultDto("42", singletonList("b")));
+    JsonMockHttpRequest request =
+      JsonMockHttpRequest
+        .post("/v2/folder/space/jam/manifest/upload")
+        .json("{'revision': 'develop', 'folders': ['a', 'b'], 'fileCount': 3, 'totalBytes': 1024}")
+        .contentType(MediaType.APPLICATION_JSON_TYPE);
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsString()).contains("\"markers\":[\"b\"]");
+  }
+
+  @Test
+  void shouldReturnLastModifiedChangesets() throws URISyntaxException, IOException {
+    when(folderLastModifiedService.getLastModified("space", "jam", "develop", "src"))
+      .thenReturn(new FolderLastModifiedDto("42", "src", singletonList(
+        new FolderLastModifiedEntryDto("main", "src/main", "21", null, "Trillian", "add main")
+      )));
+    MockHttpRequest request = MockHttpRequest.get("/v2/folder/space/jam/last-modified/src?revision=develop");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getContentAsString())
+      .contains("\"revision\":\"42\"")
+      .contains("\"changeset\":\"21\"")
+      .contains("\"author\":\"Trillian\"");
+  }
+
+  @Test
+  void shouldStreamDiff() throws URISyntaxException, IOException {
+    FolderDiffService.FolderDiff diff = new FolderDiffService.FolderDiff("space", "jam", "21", "42", "src");
+    when(folderDiffService.prepare("space", "jam", "v1", "v2", "src")).thenReturn(diff);
+    doAnswer(invocation -> {
+      invocation.<OutputStream>getArgument(1).write("{\"type\":\"added\",\"path\":\"src/main\"}\n".getBytes(UTF_8));
+      return null;
+    }).when(folderDiffService).write(eq(diff), any());
+    MockHttpRequest request = MockHttpRequest.get("/v2/folder/space/jam/diff/src?from=v1&to=v2");
+
+    dispatcher.invoke(request, response);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getOutputHeaders().getFirst("Content-Type")).hasToString("application/x-ndjson");
+    assertThat(response.getContentAsString()).isEqualTo("{\"type\":\"added\",\"path\":\"src/main\"}\n");
+  }
 }
@@ -0,0 +1,287 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.apache.shiro.authz.AuthorizationException;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.ContextEntry;
+import sonia.scm.NotFoundException;
+import sonia.scm.ScmConstraintViolationException;
+import sonia.scm.repository.Added;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Modifications;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Person;
+import sonia.scm.repository.Removed;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.LogCommandBuilder;
+import sonia.scm.repository.api.ModificationsCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SubjectAware("trillian")
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class FolderSearchServiceTest {
+
+  @Mock
+  RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  RepositoryService repositoryService;
+  @Mock(answer = Answers.RETURNS_SELF)
+  BrowseCommandBuilder browseCommandBuilder;
+  @Mock
+  LogCommandBuilder logCommandBuilder;
+  @Mock(answer = Answers.RETURNS_SELF)
+  ModificationsCommandBuilder modificationsCommandBuilder;
+  @Mock
+  FolderLimits folderLimits;
+
+  final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  FolderSearchService searchService;
+
+  @BeforeEach
+  void setUpObjectUnderTest() {
+    lenient().when(repositoryServiceFactory.create(any(NamespaceAndName.class))).thenReturn(repositoryService);
+    lenient().when(repositoryService.getRepository()).thenReturn(repository);
+    lenient().when(repositoryService.getBrowseCommand()).thenReturn(browseCommandBuilder);
+    lenient().when(repositoryService.getLogCommand()).thenReturn(logCommandBuilder);
+    lenient().when(repositoryService.getModificationsCommand()).thenReturn(modificationsCommandBuilder);
+
+    searchService = new FolderSearchService(repositoryServiceFactory, folderLimits);
+  }
+
+  @Test
+  void shouldCheckPermissions() {
+    assertThrows(
+      AuthorizationException.class,
+      () -> searchService.search(repository.getNamespace(), repository.getName(), null, "main", 10)
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldRejectEmptyQuery() {
+    assertThrows(
+      ScmConstraintViolationException.class,
+      () -> searchService.search(repository.getNamespace(), repository.getName(), null, " ", 10)
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldSearchByNameAndPath() throws IOException {
+    when(logCommandBuilder.getChangeset("1")).thenReturn(changeset("1"));
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      result("1"),
+      result("1", directory("src"), directory("docs")),
+      result("1", directory("src/main")),
+      result("1", directory("src/main/java")),
+      result("1"),
+      result("1"),
+      result("1")
+    );
+
+    FolderSearchResultDto byName = searchService.search(repository.getNamespace(), repository.getName(), "master", "jav", 10);
+    FolderSearchResultDto byPath = searchService.search(repository.getNamespace(), repository.getName(), "master", "src/", 10);
+
+    assertThat(byName.getRevision()).isEqualTo("1");
+    assertThat(byName.getPaths()).containsExactly("src/main/java");
+    assertThat(byPath.getPaths()).containsExactly("src/main", "src/main/java");
+    verify(browseCommandBuilder, never()).setRecursive(true);
+    verify(browseCommandBuilder, never()).setLimit(Integer.MAX_VALUE);
+    verify(browseCommandBuilder, times(5)).setDisableCache(true);
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldDeriveIndexFromParentRevision() throws IOException {
+    when(logCommandBuilder.getChangeset("1")).thenReturn(changeset("1"));
+    when(logCommandBuilder.getChangeset("2")).thenReturn(changeset("2", "1"));
+    Modifications modifications = mock(Modifications.class);
+    Added added = mock(Added.class);
+    when(added.getPath()).thenReturn("docs/guide/index.md");
+    Removed removed = mock(Removed.class);
+    when(removed.getPath()).thenReturn("old/file.txt");
+    when(modifications.getAdded()).thenReturn(singletonList(added));
+    when(modifications.getRemoved()).thenReturn(singletonList(removed));
+    when(modifications.getRenamed()).thenReturn(emptyList());
+    when(modifications.getCopied()).thenReturn(emptyList());
+    when(modificationsCommandBuilder.getModifications()).thenReturn(modifications);
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      result("1"),
+      result("1", directory("src"), directory("old")),
+      result("1"),
+      result("1"),
+      result("2")
+    ).thenThrow(NotFoundException.notFound(new ContextEntry.ContextBuilder().in("path", "old")));
+
+    searchService.search(repository.getNamespace(), repository.getName(), "master", "src", 10);
+    FolderSearchResultDto result = searchService.search(repository.getNamespace(), repository.getName(), "master", "/", 10);
+
+    assertThat(result.getRevision()).isEqualTo("2");
+    assertThat(result.getPaths()).containsExactly("docs", "docs/guide", "src");
+    verify(modificationsCommandBuilder).revision("2");
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldDeriveIndexWithEmptyDirectoryAddedInSvn() throws IOException {
+    Repository svnRepository = RepositoryTestData.createHeartOfGold("svn");
+    when(repositoryService.getRepository()).thenReturn(svnRepository);
+    when(logCommandBuilder.getChangeset("1")).thenReturn(changeset("1"));
+    when(logCommandBuilder.getChangeset("2")).thenReturn(changeset("2", "1"));
+    Modifications modifications = mock(Modifications.class);
+    Added added = mock(Added.class);
+    when(added.getPath()).thenReturn("src/empty");
+    when(modifications.getAdded()).thenReturn(singletonList(added));
+    when(modifications.getRemoved()).thenReturn(emptyList());
+    when(modifications.getRenamed()).thenReturn(emptyList());
+    when(modifications.getCopied()).thenReturn(emptyList());
+    when(modificationsCommandBuilder.getModifications()).thenReturn(modifications);
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      result("1"),
+      result("1", directory("src")),
+      result("1"),
+      result("2"),
+      new BrowserResult("2", "master", directory("src/empty"))
+    );
+
+    searchService.search(svnRepository.getNamespace(), svnRepository.getName(), null, "src", 10);
+    FolderSearchResultDto result = searchService.search(svnRepository.getNamespace(), svnRepository.getName(), null, "empty", 10);
+
+    assertThat(result.getRevision()).isEqualTo("2");
+    assertThat(result.getPaths()).containsExactly("src/empty");
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldRebuildIndexWithoutKnownParent() throws IOException {
+    when(logCommandBuilder.getChangeset("2")).thenReturn(changeset("2", "1"));
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(
+      result("2"),
+      result("2", directory("src")),
+      result("2")
+    );
+
+    FolderSearchResultDto result = searchService.search(repository.getNamespace(), repository.getName(), null, "src", 10);
+
+    assertThat(result.getPaths()).containsExactly("src");
+    verify(repositoryService, never()).getModificationsCommand();
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldOnlyRequireMarkersForNewFolders() throws IOException {
+    when(browseCommandBuilder.getBrowserResult())
+      .thenReturn(result("1"), result("1"))
+      .thenThrow(NotFoundException.notFound(new ContextEntry.ContextBuilder().in("path", "upload/new")));
+
+    FolderManifestResultDto result = searchService.findFoldersNeedingMarkers(
+      repository.getNamespace(), repository.getName(), "master", "upload", List.of("/existing", "new/", "existing/new"), 0, 0
+    );
+
+    assertThat(result.getRevision()).isEqualTo("1");
+    assertThat(result.getMarkers()).containsExactly("new", "existing/new");
+    verify(browseCommandBuilder).setPath("upload/existing");
+    verify(browseCommandBuilder).setPath("upload/new");
+    verify(browseCommandBuilder).setPath("upload/existing/new");
+    verify(browseCommandBuilder, times(4)).getBrowserResult();
+    verify(logCommandBuilder, never()).getChangeset(any());
+    verify(browseCommandBuilder, never()).setRecursive(true);
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldValidateManifestPaths() {
+    assertThrows(
+      ScmConstraintViolationException.class,
+      () -> searchService.findFoldersNeedingMarkers(repository.getNamespace(), repository.getName(), "master", "", List.of("a//b"), 0, 0)
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldCheckManifestLimitsBeforeBrowsing() {
+    List<String> folders = List.of("a", "b");
+    doThrow(new FolderLimitExceededException(emptyList(), FolderLimits.MAX_PATHS_PER_BATCH, 1))
+      .when(folderLimits).checkManifest(repository, "upload", folders, 3, 42);
+
+    assertThrows(
+      FolderLimitExceededException.class,
+      () -> searchService.findFoldersNeedingMarkers(repository.getNamespace(), repository.getName(), "master", "upload", folders, 3, 42)
+    );
+    verify(browseCommandBuilder, never()).getBrowserResult();
+  }
+
+  private Changeset changeset(String id, String... parents) {
+    Changeset changeset = new Changeset(id, new Date().getTime(), new Person("Trillian"));
+    changeset.setParents(List.of(parents));
+    return changeset;
+  }
+
+  private BrowserResult result(String revision, FileObject... children) {
+    FileObject root = directory("");
+    root.setChildren(new ArrayList<>(List.of(children)));
+    return new BrowserResult(revision, "master", root);
+  }
+
+  private FileObject directory(String path, FileObject... children) {
+    FileObject directory = new FileObject();
+    directory.setPath(path);
+    directory.setName(path.substring(path.lastIndexOf('/') + 1));
+    directory.setDirectory(true);
+    directory.setChildren(new ArrayList<>(List.of(children)));
+    return directory;
+  }
+}
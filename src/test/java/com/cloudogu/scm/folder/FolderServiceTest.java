@@ -31,18 +31,26 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.AlreadyExistsException;
 import sonia.scm.ScmConstraintViolationException;
 import sonia.scm.api.v2.resources.ScmPathInfoStore;
+import sonia.scm.event.ScmEventBus;
+import sonia.scm.repository.Branch;
 import sonia.scm.repository.BrowserResult;
 import sonia.scm.repository.Changeset;
 import sonia.scm.repository.FileObject;
 import sonia.scm.repository.NamespaceAndName;
 import sonia.scm.repository.Person;
 import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryManager;
 import sonia.scm.repository.RepositoryTestData;
 import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.CatCommandBuilder;
+import sonia.scm.repository.api.Command;
 import sonia.scm.repository.api.LogCommandBuilder;
 import sonia.scm.repository.api.ModifyCommandBuilder;
 import sonia.scm.repository.api.RepositoryService;
@@ -55,15 +63,22 @@ import java.net.URI;
 import java.util.Arrays;
 import java.util.Date;
 
-import static com.cloudogu.scm.folder.FolderService.KEEP_FILE_NAME;
+import static com.cloudogu.scm.folder.KeepFileFolderStrategy.KEEP_FILE_NAME;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @SubjectAware("trillian")
@@ -73,6 +88,8 @@ class FolderServiceTest {
   RepositoryService repositoryService;
   @Mock
   RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  RepositoryManager repositoryManager;
   @Mock(answer = Answers.RETURNS_SELF)
   ModifyCommandBuilder modifyCommandBuilder;
   @Mock
@@ -83,6 +100,14 @@ class FolderServiceTest {
   BrowserResult browserResult;
   @Mock
   LogCommandBuilder logCommandBuilder;
+  @Mock
+  FolderLimits folderLimits;
+  @Mock
+  FolderAdmission folderAdmission;
+  @Mock
+  BrowseCacheWarmer browseCacheWarmer;
+  @Mock
+  ScmEventBus eventBus;
 
   final Repository repository = RepositoryTestData.createHeartOfGold();
 
@@ -92,9 +117,11 @@ class FolderServiceTest {
   void setUpObjectUnderTest() throws IOException {
     ScmPathInfoStore pathInfoStore = new ScmPathInfoStore();
     pathInfoStore.set(() -> URI.create("/"));
+    lenient().when(repositoryManager.get(any(NamespaceAndName.class))).thenReturn(repository);
     lenient().when(repositoryServiceFactory.create(any(NamespaceAndName.class))).thenReturn(repositoryService);
-    when(repositoryService.getRepository()).thenReturn(repository);
-    when(repositoryService.getModifyCommand()).thenReturn(modifyCommandBuilder);
+    lenient().when(repositoryServiceFactory.create(any(Repository.class))).thenReturn(repositoryService);
+    lenient().when(repositoryService.getRepository()).thenReturn(repository);
+    lenient().when(repositoryService.getModifyCommand()).thenReturn(modifyCommandBuilder);
     lenient().when(repositoryService.getBrowseCommand()).thenReturn(browseCommandBuilder);
     lenient().when(browseCommandBuilder.getBrowserResult()).thenReturn(browserResult);
     lenient().when(modifyCommandBuilder.createFile(anyString())).thenReturn(createContentLoader);
@@ -102,7 +129,7 @@ class FolderServiceTest {
     lenient().when(createContentLoader.withData(any(ByteArrayInputStream.class))).thenReturn(modifyCommandBuilder);
     lenient().when(repositoryService.getLogCommand()).thenReturn(logCommandBuilder);
 
-    folderService = new FolderService(repositoryServiceFactory);
+    folderService = new FolderService(repositoryServiceFactory, repositoryManager, singleton(new SvnFolderStrategy()), folderLimits, folderAdmission, browseCacheWarmer, eventBus);
   }
 
   @Nested
@@ -149,6 +176,119 @@ class FolderServiceTest {
       assertThat(changeset.getId()).isEqualTo("1337");
     }
 
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldWarmUpBrowseCacheForNewFolder() throws IOException {
+      Changeset changeset = new Changeset("1337", new Date().getTime(), new Person("Trillian"));
+      when(modifyCommandBuilder.execute()).thenReturn("1337");
+      when(logCommandBuilder.getChangeset("1337")).thenReturn(changeset);
+
+      folderService.create(repository.getNamespace(), repository.getName(), "master", "new/folder/", "create new folder commit");
+
+      verify(browseCacheWarmer).warmUp(repository, changeset, "new/folder");
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldPostEventForCreatedFolder() throws IOException {
+      when(modifyCommandBuilder.execute()).thenReturn("1337");
+
+      folderService.create(repository.getNamespace(), repository.getName(), "master", "new/folder/", "create new folder commit");
+
+      ArgumentCaptor<FolderChangedEvent> captor = ArgumentCaptor.forClass(FolderChangedEvent.class);
+      verify(eventBus).post(captor.capture());
+      FolderChangedEvent event = captor.getValue();
+      assertThat(event.getRepository()).isSameAs(repository);
+      assertThat(event.getBranch()).isEqualTo("master");
+      assertThat(event.getChangesetId()).isEqualTo("1337");
+      assertThat(event.getCreatedFolders()).containsExactly("new/folder");
+      assertThat(event.getDeletedFolders()).isEmpty();
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldNotPostEventIfOperationIsRejected() {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+      doThrow(new FolderOperationRejectedException(emptyList(), 1))
+        .when(folderAdmission).acquire(repository.getNamespaceAndName());
+
+      assertThrows(
+        FolderOperationRejectedException.class,
+        () -> folderService.create(namespace, name, "master", "newFolder", "create new folder commit")
+      );
+      verifyNoInteractions(eventBus);
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldCheckLimitsBeforeModifying() {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+      doThrow(new FolderLimitExceededException(emptyList(), FolderLimits.MAX_DEPTH, 1))
+        .when(folderLimits).checkCreate(repository, "master", "new/folder");
+
+      assertThrows(
+        FolderLimitExceededException.class,
+        () -> folderService.create(namespace, name, "master", "new/folder", "create deep folder")
+      );
+      verify(repositoryService, never()).getModifyCommand();
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldAcquireAdmissionBeforeOpeningRepositoryService() throws IOException {
+      when(modifyCommandBuilder.execute()).thenReturn("1337");
+
+      folderService.create(repository.getNamespace(), repository.getName(), "master", "newFolder", "create new folder commit");
+
+      InOrder inOrder = inOrder(folderAdmission, repositoryServiceFactory);
+      inOrder.verify(folderAdmission).acquire(repository.getNamespaceAndName());
+      inOrder.verify(repositoryServiceFactory).create(repository);
+    }
+
+    @Test
+    void shouldNotAcquireAdmissionWithoutPermission() {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+
+      assertThrows(
+        AuthorizationException.class,
+        () -> folderService.create(namespace, name, "master", "newFolder", "create new folder commit")
+      );
+      verifyNoInteractions(folderAdmission, repositoryServiceFactory);
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldNotOpenRepositoryServiceIfOperationIsRejected() {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+      doThrow(new FolderOperationRejectedException(emptyList(), 1))
+        .when(folderAdmission).acquire(repository.getNamespaceAndName());
+
+      assertThrows(
+        FolderOperationRejectedException.class,
+        () -> folderService.create(namespace, name, "master", "newFolder", "create new folder commit")
+      );
+      verifyNoInteractions(repositoryServiceFactory);
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldNotModifyIfOperationIsRejected() {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+      doThrow(new FolderOperationRejectedException(emptyList(), 1))
+        .when(folderAdmission).acquire(repository.getNamespaceAndName());
+
+      assertThrows(
+        FolderOperationRejectedException.class,
+        () -> folderService.create(namespace, name, "master", "newFolder", "create new folder commit")
+      );
+      verify(repositoryService, never()).getModifyCommand();
+    }
+
     @SubjectAware(permissions = "repository:push:*")
     @Test
     void shouldNotAddSecondTrailingSlashToPath() throws IOException {
@@ -200,6 +340,21 @@ class FolderServiceTest {
       );
     }
 
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldCheckLimitsBeforeModifying() throws IOException {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+      doThrow(new FolderLimitExceededException(emptyList(), FolderLimits.MAX_ENTRIES, 1))
+        .when(folderLimits).checkDelete(repositoryService, "master", "huge");
+
+      assertThrows(
+        FolderLimitExceededException.class,
+        () -> folderService.delete(namespace, name, "master", "huge", "delete huge folder")
+      );
+      verify(repositoryService, never()).getModifyCommand();
+    }
+
     @SubjectAware(permissions = "repository:push:*")
     @Test
     void shouldDeleteFilesRecursivelyAndReturnChangeset() throws IOException {
@@ -223,6 +378,209 @@ class FolderServiceTest {
       assertThat(changeset).isNotNull();
       assertThat(changeset.getId()).isEqualTo("1337");
     }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldWarmUpBrowseCacheForParentFolder() throws IOException {
+      when(browserResult.getFile()).thenReturn(
+        createFileObject("parent",
+          createEmptyDirectoryObject("parent/child"),
+          createFileObject("parent/file.txt")
+        )
+      );
+      Changeset changeset = new Changeset("1337", new Date().getTime(), new Person("Trillian"));
+      when(modifyCommandBuilder.execute()).thenReturn("1337");
+      when(logCommandBuilder.getChangeset("1337")).thenReturn(changeset);
+
+      folderService.delete(repository.getNamespace(), repository.getName(), "master", "parent/child", "delete child");
+
+      verify(browseCacheWarmer).warmUp(repository, changeset, "parent");
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldPostEventForDeletedFolder() throws IOException {
+      when(browserResult.getFile()).thenReturn(
+        createFileObject("",
+          createEmptyDirectoryObject("root")
+        )
+      );
+      when(modifyCommandBuilder.execute()).thenReturn("1337");
+      when(repositoryService.isSupported(Command.BRANCHES)).thenReturn(true);
+      when(repositoryService.getBranchesCommand().getBranches().getBranches()).thenReturn(Arrays.asList(
+        Branch.normalBranch("develop", "21", 0L),
+        Branch.defaultBranch("main", "42", 0L)
+      ));
+
+      folderService.delete(repository.getNamespace(), repository.getName(), null, "root", "delete folders");
+
+      ArgumentCaptor<FolderChangedEvent> captor = ArgumentCaptor.forClass(FolderChangedEvent.class);
+      verify(eventBus).post(captor.capture());
+      FolderChangedEvent event = captor.getValue();
+      assertThat(event.getBranch()).isEqualTo("main");
+      assertThat(event.getChangesetId()).isEqualTo("1337");
+      assertThat(event.getCreatedFolders()).isEmpty();
+      assertThat(event.getDeletedFolders()).containsExactly("root");
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldPostEventWithBranchOfChangeset() throws IOException {
+      when(browserResult.getFile()).thenReturn(
+        createFileObject("",
+          createEmptyDirectoryObject("root")
+        )
+      );
+      Changeset changeset = new Changeset("1337", new Date().getTime(), new Person("Trillian"));
+      changeset.setBranches(singletonList("develop"));
+      when(modifyCommandBuilder.execute()).thenReturn("1337");
+      when(logCommandBuilder.getChangeset("1337")).thenReturn(changeset);
+
+      folderService.delete(repository.getNamespace(), repository.getName(), "", "root", "delete folders");
+
+      ArgumentCaptor<FolderChangedEvent> captor = ArgumentCaptor.forClass(FolderChangedEvent.class);
+      verify(eventBus).post(captor.capture());
+      assertThat(captor.getValue().getBranch()).isEqualTo("develop");
+      verify(repositoryService, never()).getBranchesCommand();
+    }
+  }
+
+  @Nested
+  class TransplantTests {
+
+    @Mock(answer = Answers.RETURNS_SELF)
+    CatCommandBuilder catCommandBuilder;
+
+    @BeforeEach
+    void mockCatCommand() {
+      lenient().when(repositoryService.getCatCommand()).thenReturn(catCommandBuilder);
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldCheckPullPermissionOnSource() {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+
+      assertThrows(
+        AuthorizationException.class,
+        () -> folderService.transplant(namespace, name, "42", "lib", namespace, name, "master", "vendor/lib", "transplant lib")
+      );
+      verify(repositoryService, never()).getModifyCommand();
+    }
+
+    @SubjectAware(permissions = "repository:pull,push:*")
+    @Test
+    void shouldCopyFilesAndEmptyFoldersInOneCommit() throws IOException {
+      FileObject emptyDirectory = createEmptyDirectoryObject("lib/empty");
+      emptyDirectory.setChildren(emptyList());
+      when(browserResult.getRevision()).thenReturn("42");
+      when(browserResult.getFile()).thenReturn(
+        createEmptyDirectoryObject("lib"),
+        createFileObject("lib", createFileObject("lib/a.txt"), createEmptyDirectoryObject("lib/empty")),
+        emptyDirectory
+      );
+      InputStream content = new ByteArrayInputStream("a".getBytes(UTF_8));
+      when(catCommandBuilder.getStream("lib/a.txt")).thenReturn(content);
+      when(modifyCommandBuilder.execute()).thenReturn("1337");
+
+      folderService.transplant(repository.getNamespace(), repository.getName(), "develop", "lib", repository.getNamespace(), repository.getName(), "master", "vendor/lib", "transplant lib");
+
+      verify(browseCommandBuilder).setRevision("develop");
+      verify(catCommandBuilder).setRevision("42");
+      verify(modifyCommandBuilder).createFile("vendor/lib/a.txt");
+      verify(createContentLoader).setOverwrite(false);
+      verify(createContentLoader).withData(content);
+      verify(modifyCommandBuilder).createFile("vendor/lib/empty/" + KEEP_FILE_NAME);
+      verify(modifyCommandBuilder).setBranch("master");
+      verify(modifyCommandBuilder).execute();
+      verify(folderLimits).checkTransplant(repositoryService, "42", "lib", repository, "master", "vendor/lib");
+
+      ArgumentCaptor<FolderChangedEvent> captor = ArgumentCaptor.forClass(FolderChangedEvent.class);
+      verify(eventBus).post(captor.capture());
+      assertThat(captor.getValue().getCreatedFolders()).containsExactly("vendor/lib");
+    }
+
+    @SubjectAware(permissions = "repository:pull,push:*")
+    @Test
+    void shouldNotTransplantFiles() {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+      when(browserResult.getFile()).thenReturn(createFileObject("lib/a.txt"));
+
+      assertThrows(
+        PathIsNotADirectoryException.class,
+        () -> folderService.transplant(namespace, name, null, "lib/a.txt", namespace, name, "master", "vendor/a", "transplant file")
+      );
+      verify(repositoryService, never()).getModifyCommand();
+    }
+  }
+
+  @Nested
+  class RestoreTests {
+
+    @Mock(answer = Answers.RETURNS_SELF)
+    CatCommandBuilder catCommandBuilder;
+
+    @BeforeEach
+    void mockCatCommand() {
+      lenient().when(repositoryService.getCatCommand()).thenReturn(catCommandBuilder);
+    }
+
+    @SubjectAware(permissions = "repository:pull,push:*")
+    @Test
+    void shouldRequireRevision() {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+
+      assertThrows(
+        ScmConstraintViolationException.class,
+        () -> folderService.restore(namespace, name, "master", "parent/lib", null, "restore lib")
+      );
+    }
+
+    @SubjectAware(permissions = "repository:pull,push:*")
+    @Test
+    void shouldRestoreFolderAndRemoveKeepFileOfParent() throws IOException {
+      when(browserResult.getRevision()).thenReturn("21");
+      when(browserResult.getFile()).thenReturn(
+        createEmptyDirectoryObject("parent/lib"),
+        null,
+        createFileObject("parent", createFileObject("parent/" + KEEP_FILE_NAME)),
+        createFileObject("parent/lib", createFileObject("parent/lib/a.txt"))
+      );
+      when(catCommandBuilder.getStream("parent/lib/a.txt")).thenReturn(new ByteArrayInputStream("a".getBytes(UTF_8)));
+      when(modifyCommandBuilder.execute()).thenReturn("1337");
+
+      folderService.restore(repository.getNamespace(), repository.getName(), "master", "parent/lib", "21", "restore lib");
+
+      verify(catCommandBuilder).setRevision("21");
+      verify(modifyCommandBuilder).createFile("parent/lib/a.txt");
+      verify(modifyCommandBuilder).deleteFile("parent/" + KEEP_FILE_NAME);
+      verify(modifyCommandBuilder).setBranch("master");
+      verify(modifyCommandBuilder).execute();
+      ArgumentCaptor<FolderChangedEvent> captor = ArgumentCaptor.forClass(FolderChangedEvent.class);
+      verify(eventBus).post(captor.capture());
+      assertThat(captor.getValue().getCreatedFolders()).containsExactly("parent/lib");
+    }
+
+    @SubjectAware(permissions = "repository:pull,push:*")
+    @Test
+    void shouldNotRestoreExistingFolder() throws IOException {
+      final String namespace = repository.getNamespace();
+      final String name = repository.getName();
+      when(browserResult.getRevision()).thenReturn("21");
+      when(browserResult.getFile()).thenReturn(
+        createEmptyDirectoryObject("parent/lib"),
+        createEmptyDirectoryObject("parent/lib")
+      );
+
+      assertThrows(
+        AlreadyExistsException.class,
+        () -> folderService.restore(namespace, name, "master", "parent/lib", "21", "restore lib")
+      );
+      verify(repositoryService, never()).getModifyCommand();
+    }
   }
 
   @SubjectAware(permissions = "repository:push:*")
@@ -241,6 +599,48 @@ class FolderServiceTest {
     verify(modifyCommandBuilder).createFile("folderWithOneFile/.scmkeep");
   }
 
+  @Nested
+  class SvnTests {
+
+    final Repository svnRepository = RepositoryTestData.createHeartOfGold("svn");
+
+    @BeforeEach
+    void useSvnRepository() {
+      when(repositoryService.getRepository()).thenReturn(svnRepository);
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldDeleteWithoutBrowsingParentOrKeepFile() throws IOException {
+      when(browserResult.getFile()).thenReturn(
+        createFileObject("folderWithOneFile/subfolder",
+          createFileObject("folderWithOneFile/subfolder/file.txt")
+        )
+      );
+      when(modifyCommandBuilder.execute()).thenReturn("1337");
+
+      folderService.delete(svnRepository.getNamespace(), svnRepository.getName(), null, "folderWithOneFile/subfolder", "delete subfolder");
+
+      verify(browseCommandBuilder).setPath("folderWithOneFile/subfolder");
+      verify(browseCommandBuilder, never()).setPath("folderWithOneFile");
+      verify(modifyCommandBuilder).deleteFile("folderWithOneFile/subfolder", true);
+      verify(modifyCommandBuilder, never()).createFile(anyString());
+    }
+
+    @SubjectAware(permissions = "repository:push:*")
+    @Test
+    void shouldNotDeleteFiles() throws IOException {
+      when(browserResult.getFile()).thenReturn(createFileObject("root/notAFolder.txt"));
+
+      final String namespace = svnRepository.getNamespace();
+      final String name = svnRepository.getName();
+      assertThrows(
+        PathIsNotADirectoryException.class,
+        () -> folderService.delete(namespace, name, null, "root/notAFolder.txt", "delete file")
+      );
+    }
+  }
+
   private FileObject createEmptyDirectoryObject(String path) {
     FileObject directory = createFileObject(path);
     directory.setDirectory(true);
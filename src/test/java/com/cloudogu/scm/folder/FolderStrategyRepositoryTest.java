@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.ModifyCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static com.cloudogu.scm.folder.KeepFileFolderStrategy.KEEP_FILE_NAME;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Applies the changes of the folder strategies to real local repositories of each type, to verify that the folders
+ * exist in the committed trees as expected. Repository types without an installed command line client are skipped.
+ */
+class FolderStrategyRepositoryTest {
+
+  @TempDir
+  Path directory;
+
+  private LocalRepository localRepository;
+  private Repository repository;
+  private final Map<String, byte[]> createdFiles = new LinkedHashMap<>();
+  private final List<String> deletedPaths = new ArrayList<>();
+
+  @Nested
+  class GitTests extends RepositoryTypeTests {
+    GitTests() {
+      super("git");
+    }
+  }
+
+  @Nested
+  class HgTests extends RepositoryTypeTests {
+    HgTests() {
+      super("hg");
+    }
+  }
+
+  @Nested
+  class SvnTests extends RepositoryTypeTests {
+    SvnTests() {
+      super("svn");
+    }
+  }
+
+  abstract class RepositoryTypeTests {
+
+    private final String type;
+
+    RepositoryTypeTests(String type) {
+      this.type = type;
+    }
+
+    @BeforeEach
+    void setUpRepository() throws IOException {
+      LocalRepository.assumeSupported(type);
+      localRepository = LocalRepository.create(type, directory);
+      repository = RepositoryTestData.createHeartOfGold(type);
+      createdFiles.put("README.md", "Don't panic".getBytes(UTF_8));
+      createdFiles.put("parent/child/file.txt", "42".getBytes(UTF_8));
+      commit();
+    }
+
+    boolean tracksEmptyDirectories() {
+      return "svn".equals(type);
+    }
+
+    @Test
+    void shouldOnlyKeepEmptyDirectoriesInSvn() throws IOException {
+      // the behavior of the repository types, which the strategies depend on
+      deletedPaths.add("parent/child/file.txt");
+      commit();
+
+      Map<String, Boolean> entries = localRepository.entries();
+      if (tracksEmptyDirectories()) {
+        assertThat(entries).containsEntry("parent/child", true);
+      } else {
+        assertThat(entries).doesNotContainKey("parent/child").doesNotContainKey("parent");
+      }
+    }
+
+    @Test
+    void shouldCreateNestedFolder() throws IOException {
+      strategy().create(modifyCommand(), "a/b");
+      commit();
+
+      Map<String, Boolean> entries = localRepository.entries();
+      assertThat(entries).containsEntry("a", true).containsEntry("a/b", true);
+      // the modify command cannot add empty directories, so every type gets a marker file
+      assertThat(entries).containsEntry("a/b/" + KEEP_FILE_NAME, false);
+    }
+
+    @Test
+    void shouldBrowseCreatedFolderWithMarker() throws IOException {
+      strategy().create(modifyCommand(), "a");
+      commit();
+
+      FileObject folder = repositoryService().getBrowseCommand().setPath("a").getBrowserResult().getFile();
+      assertThat(folder.isDirectory()).isTrue();
+      assertThat(folder.getChildren()).extracting(FileObject::getName).containsExactly(KEEP_FILE_NAME);
+    }
+
+    @Test
+    void shouldKeepParentAfterDeletingItsOnlyFolder() throws IOException {
+      strategy().delete(repositoryService(), null, modifyCommand(), "parent/child");
+      commit();
+
+      Map<String, Boolean> entries = localRepository.entries();
+      assertThat(entries)
+        .doesNotContainKey("parent/child")
+        .doesNotContainKey("parent/child/file.txt")
+        .containsEntry("parent", true)
+        .containsKey("README.md");
+      if (tracksEmptyDirectories()) {
+        assertThat(entries).doesNotContainKey("parent/" + KEEP_FILE_NAME);
+      } else {
+        assertThat(entries).containsEntry("parent/" + KEEP_FILE_NAME, false);
+      }
+    }
+
+    @Test
+    void shouldNotAddMarkerToParentWithOtherContent() throws IOException {
+      createdFiles.put("parent/other.txt", "other".getBytes(UTF_8));
+      commit();
+
+      strategy().delete(repositoryService(), null, modifyCommand(), "parent/child");
+      commit();
+
+      assertThat(localRepository.entries())
+        .doesNotContainKey("parent/child")
+        .doesNotContainKey("parent/" + KEEP_FILE_NAME)
+        .containsEntry("parent/other.txt", false);
+    }
+  }
+
+  private FolderStrategy strategy() {
+    return Stream.of(new SvnFolderStrategy(), new KeepFileFolderStrategy())
+      .filter(strategy -> strategy.isResponsibleFor(repository))
+      .findFirst()
+      .orElseThrow();
+  }
+
+  private void commit() throws IOException {
+    localRepository.commit(createdFiles, deletedPaths);
+    createdFiles.clear();
+    deletedPaths.clear();
+  }
+
+  private RepositoryService repositoryService() throws IOException {
+    AtomicReference<String> browsedPath = new AtomicReference<>("");
+    BrowseCommandBuilder browseCommand = mock(BrowseCommandBuilder.class, RETURNS_SELF);
+    when(browseCommand.setPath(anyString())).thenAnswer(invocation -> {
+      browsedPath.set(invocation.getArgument(0));
+      return browseCommand;
+    });
+    when(browseCommand.getBrowserResult()).thenAnswer(
+      invocation -> new BrowserResult("tip", "tip", localRepository.browse(browsedPath.get()))
+    );
+    RepositoryService repositoryService = mock(RepositoryService.class);
+    when(repositoryService.getRepository()).thenReturn(repository);
+    when(repositoryService.getBrowseCommand()).thenReturn(browseCommand);
+    return repositoryService;
+  }
+
+  private ModifyCommandBuilder modifyCommand() throws IOException {
+    ModifyCommandBuilder modifyCommand = mock(ModifyCommandBuilder.class);
+    when(modifyCommand.createFile(anyString())).thenAnswer(invocation -> {
+      String path = invocation.getArgument(0);
+      ModifyCommandBuilder.WithOverwriteFlagContentLoader loader = mock(ModifyCommandBuilder.WithOverwriteFlagContentLoader.class);
+      when(loader.setOverwrite(anyBoolean())).thenReturn(loader);
+      when(loader.withData(any(InputStream.class))).thenAnswer(data -> {
+        createdFiles.put(path, data.<InputStream>getArgument(0).readAllBytes());
+        return modifyCommand;
+      });
+      return loader;
+    });
+    doAnswer(invocation -> {
+      deletedPaths.add(invocation.getArgument(0));
+      return modifyCommand;
+    }).when(modifyCommand).deleteFile(anyString(), anyBoolean());
+    return modifyCommand;
+  }
+}
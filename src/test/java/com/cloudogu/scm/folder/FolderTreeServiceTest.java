@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.apache.shiro.authz.AuthorizationException;
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sonia.scm.ScmConstraintViolationException;
+import sonia.scm.cache.MapCacheManager;
+import sonia.scm.repository.BrowserResult;
+import sonia.scm.repository.FileObject;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.PostReceiveRepositoryHookEvent;
+import sonia.scm.repository.Repository;
+import sonia.scm.repository.RepositoryTestData;
+import sonia.scm.repository.api.BrowseCommandBuilder;
+import sonia.scm.repository.api.RepositoryService;
+import sonia.scm.repository.api.RepositoryServiceFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SubjectAware("trillian")
+@ExtendWith({MockitoExtension.class, ShiroExtension.class})
+class FolderTreeServiceTest {
+
+  @Mock
+  RepositoryServiceFactory repositoryServiceFactory;
+  @Mock
+  RepositoryService repositoryService;
+  @Mock(answer = Answers.RETURNS_SELF)
+  BrowseCommandBuilder browseCommandBuilder;
+
+  final Repository repository = RepositoryTestData.createHeartOfGold();
+
+  FolderTreeService treeService;
+
+  @BeforeEach
+  void setUpObjectUnderTest() {
+    lenient().when(repositoryServiceFactory.create(any(NamespaceAndName.class))).thenReturn(repositoryService);
+    lenient().when(repositoryService.getRepository()).thenReturn(repository);
+    lenient().when(repositoryService.getBrowseCommand()).thenReturn(browseCommandBuilder);
+
+    treeService = new FolderTreeService(repositoryServiceFactory, new MapCacheManager());
+  }
+
+  @Test
+  void shouldCheckPermissions() {
+    assertThrows(
+      AuthorizationException.class,
+      () -> treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 1, 10, null)
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldValidateDepth() {
+    assertThrows(
+      ScmConstraintViolationException.class,
+      () -> treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 42, 10, null)
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldValidateCursor() {
+    assertThrows(
+      ScmConstraintViolationException.class,
+      () -> treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 1, 10, "no cursor")
+    );
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldReturnOnlyDirectories() throws IOException {
+    mockBrowse(false, directory("src"), file("README.md"), directory("docs"));
+
+    FolderTreeDto tree = treeService.getTree(repository.getNamespace(), repository.getName(), "master", "/", 1, 10, null);
+
+    assertThat(tree.getRevision()).isEqualTo("42");
+    assertThat(tree.getPath()).isEmpty();
+    assertThat(tree.getDirectories())
+      .extracting("path")
+      .containsExactly("src", "docs");
+    assertThat(tree.getCursor()).isNull();
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldPageWithCursor() throws IOException {
+    mockBrowse(false, directory("a"), file("b.txt"), directory("c"), directory("d"));
+
+    FolderTreeDto firstPage = treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 1, 2, null);
+
+    assertThat(firstPage.getDirectories()).extracting("name").containsExactly("a", "c");
+    assertThat(firstPage.getCursor()).isNotNull();
+
+    treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 1, 2, firstPage.getCursor());
+
+    verify(browseCommandBuilder).setOffset(3);
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldCacheUntilNextPush() throws IOException {
+    mockBrowse(false, directory("src"));
+
+    treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 1, 10, null);
+    treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 1, 10, null);
+
+    verify(browseCommandBuilder, times(1)).getBrowserResult();
+
+    PostReceiveRepositoryHookEvent event = mock(PostReceiveRepositoryHookEvent.class);
+    when(event.getRepository()).thenReturn(repository);
+    treeService.onEvent(event);
+    treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 1, 10, null);
+
+    verify(browseCommandBuilder, times(2)).getBrowserResult();
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldNotUseBrowseCacheOfCore() throws IOException {
+    mockBrowse(false, directory("src"));
+
+    treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 1, 10, null);
+
+    verify(browseCommandBuilder).setDisableCache(true);
+  }
+
+  @SubjectAware(permissions = "repository:pull:*")
+  @Test
+  void shouldBoundNestedExpansion() throws IOException {
+    FileObject[] directories = new FileObject[150];
+    for (int i = 0; i < directories.length; i++) {
+      directories[i] = directory("dir" + i);
+    }
+    mockBrowse(false, directories);
+
+    FolderTreeDto tree = treeService.getTree(repository.getNamespace(), repository.getName(), "master", "", 2, 1000, null);
+
+    assertThat(tree.getDirectories()).hasSize(150);
+    FolderTreeEntryDto first = tree.getDirectories().get(0);
+    assertThat(first.getDirectories()).hasSize(FolderTreeService.NESTED_LIMIT);
+    assertThat(first.getCursor()).isNotNull();
+    assertThat(tree.getDirectories().get(149).getDirectories()).isNull();
+    verify(browseCommandBuilder, times(1 + FolderTreeService.MAX_EXPANDED_DIRECTORIES)).getBrowserResult();
+  }
+
+  private void mockBrowse(boolean truncated, FileObject... children) throws IOException {
+    FileObject root = new FileObject();
+    root.setDirectory(true);
+    root.setPath("");
+    root.setChildren(new ArrayList<>(List.of(children)));
+    root.setTruncated(truncated);
+    when(browseCommandBuilder.getBrowserResult()).thenReturn(new BrowserResult("42", "master", root));
+  }
+
+  private FileObject directory(String path) {
+    FileObject directory = file(path);
+    directory.setDirectory(true);
+    return directory;
+  }
+
+  private FileObject file(String path) {
+    FileObject fileObject = new FileObject();
+    fileObject.setPath(path);
+    fileObject.setName(path.substring(path.lastIndexOf('/') + 1));
+    return fileObject;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import org.github.sdorra.jse.ShiroExtension;
+import org.github.sdorra.jse.SubjectAware;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import sonia.scm.ScmConstraintViolationException;
+import sonia.scm.repository.Changeset;
+import sonia.scm.repository.NamespaceAndName;
+import sonia.scm.repository.Person;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SubjectAware("trillian")
+@ExtendWith(ShiroExtension.class)
+class IdempotencyStoreTest {
+
+  private final NamespaceAndName namespaceAndName = new NamespaceAndName("hitchhiker", "HeartOfGold");
+  private final AtomicInteger executions = new AtomicInteger();
+
+  private final IdempotencyStore store = new IdempotencyStore(10, Duration.ofMinutes(5));
+
+  @Test
+  void shouldAlwaysExecuteWithoutKey() throws IOException {
+    store.execute(null, "create", namespaceAndName, "master", "src", this::commit);
+    store.execute("", "create", namespaceAndName, "master", "src", this::commit);
+
+    assertThat(executions).hasValue(2);
+  }
+
+  @Test
+  void shouldReturnOriginalResultForRetry() throws IOException {
+    Changeset first = store.execute("abc", "create", namespaceAndName, "master", "src", this::commit);
+    Changeset retry = store.execute("abc", "create", namespaceAndName, "master", "/src/", this::commit);
+
+    assertThat(retry).isSameAs(first);
+    assertThat(executions).hasValue(1);
+  }
+
+  @Test
+  void shouldScopeKeyByOperationAndPath() throws IOException {
+    store.execute("abc", "create", namespaceAndName, "master", "src", this::commit);
+    store.execute("abc", "delete", namespaceAndName, "master", "src", this::commit);
+    store.execute("abc", "create", namespaceAndName, "master", "docs", this::commit);
+    store.execute("abc", "create", namespaceAndName, "develop", "src", this::commit);
+
+    assertThat(executions).hasValue(4);
+  }
+
+  @Test
+  void shouldNotRememberFailures() throws IOException {
+    assertThrows(IOException.class, () -> store.execute("abc", "create", namespaceAndName, "master", "src", () -> {
+      throw new IOException("timeout");
+    }));
+
+    store.execute("abc", "create", namespaceAndName, "master", "src", this::commit);
+
+    assertThat(executions).hasValue(1);
+  }
+
+  @Test
+  void shouldRejectTooLongKeys() {
+    String key = "x".repeat(IdempotencyStore.MAX_KEY_LENGTH + 1);
+
+    assertThrows(
+      ScmConstraintViolationException.class,
+      () -> store.execute(key, "create", namespaceAndName, "master", "src", this::commit)
+    );
+  }
+
+  private Changeset commit() {
+    return new Changeset(String.valueOf(executions.incrementAndGet()), new Date().getTime(), new Person("Trillian"));
+  }
+}
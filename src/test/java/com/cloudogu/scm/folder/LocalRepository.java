@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-present Cloudogu GmbH and Contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.cloudogu.scm.folder;
+
+import sonia.scm.repository.FileObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * A real repository on the local disk, driven by the command line client of its type. Changes are committed from a
+ * working copy, and the committed tree is read back from the repository, so that tests see what the version control
+ * system actually keeps, e.g. whether an empty directory survives a commit.
+ */
+class LocalRepository {
+
+  private final String type;
+  private final Path workingCopy;
+  private final String url;
+
+  private LocalRepository(String type, Path workingCopy, String url) {
+    this.type = type;
+    this.workingCopy = workingCopy;
+    this.url = url;
+  }
+
+  /**
+   * Skips the current test, unless every command line client, which is needed for the given type, is installed and
+   * works.
+   */
+  static void assumeSupported(String type) {
+    for (String command : commandsOf(type)) {
+      assumeTrue(isWorking(command), () -> command + " is not installed or does not work, skipping " + type + " tests");
+    }
+  }
+
+  private static List<String> commandsOf(String type) {
+    return "svn".equals(type) ? List.of("svn", "svnadmin") : List.of(type);
+  }
+
+  private static boolean isWorking(String command) {
+    try {
+      Process process = new ProcessBuilder(command, "--version").redirectErrorStream(true).start();
+      process.getInputStream().transferTo(OutputStream.nullOutputStream());
+      if (!process.waitFor(30, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+        return false;
+      }
+      return process.exitValue() == 0;
+    } catch (IOException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  static LocalRepository create(String type, Path directory) throws IOException {
+    Path workingCopy = directory.resolve("wc");
+    switch (type) {
+      case "git":
+        run(directory, "git", "init", "-q", workingCopy.toString());
+        return new LocalRepository(type, workingCopy, null);
+      case "hg":
+        run(directory, "hg", "init", workingCopy.toString());
+        return new LocalRepository(type, workingCopy, null);
+      case "svn":
+        Path server = directory.resolve("server");
+        run(directory, "svnadmin", "create", server.toString());
+        String url = server.toUri().toString();
+        run(directory, "svn", "checkout", "-q", url, workingCopy.toString());
+        return new LocalRepository(type, workingCopy, url);
+      default:
+        throw new IllegalArgumentException("unsupported repository type " + type);
+    }
+  }
+
+  /**
+   * Commits the given files and recursive deletions in a single commit.
+   */
+  void commit(Map<String, byte[]> createdFiles, Collection<String> deletedPaths) throws IOException {
+    for (String deleted : deletedPaths) {
+      switch (type) {
+        case "git":
+          run(workingCopy, "git", "rm", "-r", "-q", deleted);
+          break;
+        case "hg":
+          run(workingCopy, "hg", "remove", deleted);
+          break;
+        default:
+          run(workingCopy, "svn", "delete", "-q", deleted);
+      }
+    }
+    for (Map.Entry<String, byte[]> created : createdFiles.entrySet()) {
+      Path file = workingCopy.resolve(created.getKey());
+      Files.createDirectories(file.getParent());
+      Files.write(file, created.getValue());
+    }
+    switch (type) {
+      case "git":
+        run(workingCopy, "git", "add", "-A");
+        run(workingCopy, "git", "-c", "user.name=Trillian", "-c", "user.email=trillian@hitchhiker.com", "commit", "-q", "--allow-empty", "-m", "folder test");
+        break;
+      case "hg":
+        run(workingCopy, "hg", "addremove", "-q");
+        run(workingCopy, "hg", "commit", "-u", "Trillian", "-m", "folder test");
+        break;
+      default:
+        run(workingCopy, "svn", "add", "-q", "--force", ".");
+        run(workingCopy, "svn", "commit", "-q", "-m", "folder test");
+        run(workingCopy, "svn", "update", "-q");
+    }
+  }
+
+  /**
+   * Returns all committed paths of the head revision, mapped to {@code true} for directories. Directories which are
+   * not tracked by the repository type itself are derived from the paths of the files.
+   */
+  Map<String, Boolean> entries() throws IOException {
+    Map<String, Boolean> entries = new TreeMap<>();
+    switch (type) {
+      case "git":
+        for (String line : lines(run(workingCopy, "git", "ls-tree", "-r", "-t", "HEAD"))) {
+          String[] columns = line.split("\t", 2);
+          entries.put(columns[1], columns[0].contains(" tree "));
+        }
+        break;
+      case "hg":
+        for (String line : lines(run(workingCopy, "hg", "manifest"))) {
+          entries.put(line, false);
+        }
+        break;
+      default:
+        for (String line : lines(run(workingCopy, "svn", "list", "-R", url))) {
+          boolean directory = line.endsWith("/");
+          entries.put(directory ? line.substring(0, line.length() - 1) : line, directory);
+        }
+    }
+    for (String path : new ArrayList<>(entries.keySet())) {
+      for (String parent = FolderPathIndex.parentOf(path); !parent.isEmpty(); parent = FolderPathIndex.parentOf(parent)) {
+        entries.put(parent, true);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Lists the given path of the head revision like a browse command with its direct children.
+   */
+  FileObject browse(String path) throws IOException {
+    String normalizedPath = FolderTreeService.normalizePath(path);
+    Map<String, Boolean> entries = entries();
+    if (!normalizedPath.isEmpty() && !entries.containsKey(normalizedPath)) {
+      return null;
+    }
+    FileObject file = fileObject(normalizedPath, normalizedPath.isEmpty() || entries.get(normalizedPath));
+    if (file.isDirectory()) {
+      List<FileObject> children = new ArrayList<>();
+      entries.forEach((childPath, directory) -> {
+        if (FolderPathIndex.parentOf(childPath).equals(normalizedPath)) {
+          children.add(fileObject(childPath, directory));
+        }
+      });
+      file.setChildren(children);
+    }
+    return file;
+  }
+
+  private static FileObject fileObject(String path, boolean directory) {
+    FileObject file = new FileObject();
+    file.setPath(path);
+    file.setName(path.substring(path.lastIndexOf('/') + 1));
+    file.setDirectory(directory);
+    return file;
+  }
+
+  private static List<String> lines(String output) {
+    List<String> lines = new ArrayList<>(Arrays.asList(output.split("\\R")));
+    lines.removeIf(String::isEmpty);
+    return lines;
+  }
+
+  private static String run(Path directory, String... command) throws IOException {
+    Process process = new ProcessBuilder(command).directory(directory.toFile()).redirectErrorStream(true).start();
+    String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+    try {
+      if (process.waitFor() != 0) {
+        throw new IOException(String.join(" ", command) + " failed: " + output);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while running " + String.join(" ", command), e);
+    }
+    return output;
+  }
+}